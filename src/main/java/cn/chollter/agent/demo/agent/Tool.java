@@ -63,4 +63,14 @@ public interface Tool {
     default Duration getTimeout() {
         return null;  // 使用全局配置
     }
+
+    /**
+     * 获取单个结果返回给模型的最大 token 数
+     * 超过时按内容结构压缩，原文可通过句柄读取
+     *
+     * @return 最大 token 数，默认 null 表示使用全局配置
+     */
+    default Integer getMaxObservationTokens() {
+        return null;  // 使用全局配置
+    }
 }
@@ -0,0 +1,84 @@
+package cn.chollter.agent.demo.agent;
+
+import io.micrometer.context.ContextRegistry;
+import reactor.util.context.Context;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 一次任务执行中的工具执行状态：超时次数和已返回给模型的观察结果 token 数
+ * AgentService 在执行任务时写入，工具执行服务据此累计超时、分配观察结果预算，执行结束后据此把执行记录标记为 TIMEOUT；
+ * 同步执行用 call()，流式执行另外通过 Reactor Context 传播
+ */
+public final class ToolExecutionContext {
+
+    private static final String KEY = "agent.tool-execution";
+    private static final ThreadLocal<ToolExecutionContext> CURRENT = new ThreadLocal<>();
+
+    static {
+        ContextRegistry.getInstance().registerThreadLocalAccessor(KEY, CURRENT::get, CURRENT::set, CURRENT::remove);
+    }
+
+    private final AtomicInteger timeouts = new AtomicInteger();
+    private final AtomicLong observationTokens = new AtomicLong();
+
+    /**
+     * 记录一次工具超时
+     */
+    public void recordTimeout() {
+        timeouts.incrementAndGet();
+    }
+
+    public int getTimeouts() {
+        return timeouts.get();
+    }
+
+    public boolean hasTimeouts() {
+        return timeouts.get() > 0;
+    }
+
+    /**
+     * 累计已返回给模型的观察结果 token 数
+     */
+    public void addObservationTokens(long tokens) {
+        observationTokens.addAndGet(tokens);
+    }
+
+    public long getObservationTokens() {
+        return observationTokens.get();
+    }
+
+    /**
+     * 当前线程上的执行状态，不在任务执行中时为 null
+     */
+    public static ToolExecutionContext current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * 使用指定执行状态执行，结束后恢复原来的状态
+     */
+    public static <T> T call(ToolExecutionContext context, Supplier<T> action) {
+        ToolExecutionContext previous = CURRENT.get();
+        CURRENT.set(context);
+        try {
+            return action.get();
+        } finally {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+
+    /**
+     * 用于 contextWrite，把执行状态写入 Reactor Context
+     */
+    public static Function<Context, Context> with(ToolExecutionContext context) {
+        return reactorContext -> reactorContext.put(KEY, context);
+    }
+}
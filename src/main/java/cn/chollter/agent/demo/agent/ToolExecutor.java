@@ -0,0 +1,19 @@
+package cn.chollter.agent.demo.agent;
+
+import java.util.Map;
+
+/**
+ * 工具执行器
+ * 注册表中的工具被 Agent 调用时交给执行器执行，由执行器统一施加超时、结果预算等约束
+ */
+public interface ToolExecutor {
+
+    /**
+     * 执行工具
+     *
+     * @param tool       要执行的工具
+     * @param parameters 工具参数
+     * @return 工具结果；失败或超时时为给模型的观察结果
+     */
+    String execute(Tool tool, Map<String, Object> parameters);
+}
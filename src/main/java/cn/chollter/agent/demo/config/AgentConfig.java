@@ -1,7 +1,6 @@
 package cn.chollter.agent.demo.config;
 
 import cn.chollter.agent.demo.agent.Agent;
-import cn.chollter.agent.demo.agent.Tool;
 import cn.chollter.agent.demo.core.FunctionCallingAgent;
 import cn.chollter.agent.demo.mcp.McpManager;
 import cn.chollter.agent.demo.service.ToolCacheService;
@@ -133,16 +132,16 @@ public class AgentConfig {
     /**
      * 配置 Agent Bean
      * 使用 Function Calling 机制调用 MCP 工具
+     * 本地工具 Bean 由 LocalToolHost 注册到 McpManager，与 MCP 工具一起经 getMcpTools() 提供，这里不再重复传入
      */
     @Bean
     @org.springframework.context.annotation.Primary
     public Agent agent(
             ChatModel chatModel,
-            List<Tool> localTools,
             McpManager mcpManager,
             ObjectMapper objectMapper,
             ToolCacheService toolCacheService) {
         log.info("使用 Function Calling Agent (MCP工具调用)");
-        return new FunctionCallingAgent(chatModel, localTools, objectMapper, toolCacheService, mcpManager);
+        return new FunctionCallingAgent(chatModel, List.of(), objectMapper, toolCacheService, mcpManager);
     }
 }
@@ -5,8 +5,10 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -24,15 +26,172 @@ public class McpConfig {
     private boolean enabled = true;
 
     /**
-     * 编排策略：priority(优先级), load-balance(负载均衡), round-robin(轮询)
+     * 编排策略：priority(优先级), load-balance(负载均衡), round-robin(轮询), parallel(对冲请求)
+     * 多个服务器提供同名工具时按此策略选择副本
      */
     private OrchestrationStrategy orchestrationStrategy = OrchestrationStrategy.PRIORITY;
 
+    /**
+     * 并行启动服务器的线程数
+     * 服务器在后台启动，不阻塞应用启动；启动完成前 readiness 健康检查返回 OUT_OF_SERVICE
+     */
+    private int bootParallelism = 4;
+
+    /**
+     * 外部服务器配置文件（YAML，结构与本配置相同，只读取 mcp.servers）
+     * 设置后定期检查文件修改时间，变化时只重新加载新增、删除和配置有变化的服务器
+     */
+    private String configFile;
+
+    /**
+     * 外部服务器配置文件的检查间隔（毫秒）
+     */
+    private long configWatchIntervalMs = 2000;
+
+    /**
+     * 按 API Key 配置的默认工具标签
+     * 请求未指定 tags / tools 时，只向模型暴露带这些标签的服务器上的工具；未配置的 API Key 不做限制
+     */
+    private Map<String, Set<String>> apiKeyTags = new HashMap<>();
+
+    /**
+     * 服务器故障监控配置
+     */
+    private Supervisor supervisor = new Supervisor();
+
+    /**
+     * 同名工具的副本路由配置
+     */
+    private Routing routing = new Routing();
+
+    /**
+     * 大内容落盘配置
+     */
+    private Content content = new Content();
+
+    /**
+     * 工具结果缓存配置
+     */
+    private ToolCache toolCache = new ToolCache();
+
     /**
      * MCP服务器列表
      */
     private List<McpServer> servers = new ArrayList<>();
 
+    /**
+     * 工具结果大内容落盘配置
+     * 超过阈值的文本和二进制内容写入临时文件，提示词中只保留预览和句柄
+     */
+    @Data
+    public static class Content {
+
+        /**
+         * 落盘阈值（字符数）
+         */
+        private int spillThresholdChars = 256 * 1024;
+
+        /**
+         * 落盘文本保留的预览字符数
+         */
+        private int previewChars = 4000;
+
+        /**
+         * 句柄未被访问时的保留时间（分钟），过期后删除临时文件
+         */
+        private int ttlMinutes = 30;
+    }
+
+    /**
+     * 工具结果缓存配置
+     * 可缓存工具的结果先查本节点内存，再查 Redis；工具是否可缓存和过期时间由 servers[].tools 按工具配置
+     */
+    @Data
+    public static class ToolCache {
+
+        /**
+         * 是否启用工具结果缓存
+         */
+        private boolean enabled = true;
+
+        /**
+         * 本节点内存中最多保留的结果数
+         */
+        private long localMaxEntries = 10000;
+
+        /**
+         * 是否使用 Redis 作为第二级缓存，在多个节点之间共享结果
+         */
+        private boolean redisEnabled = true;
+    }
+
+    /**
+     * 服务器故障监控配置
+     * 检测进程退出、连接断开和连续超时，打开熔断并按指数退避自动重启
+     */
+    @Data
+    public static class Supervisor {
+
+        /**
+         * 是否启用自动重启
+         */
+        private boolean enabled = true;
+
+        /**
+         * 检查间隔（毫秒）
+         */
+        private long checkIntervalMs = 1000;
+
+        /**
+         * 连续超时多少次后熔断并重启
+         */
+        private int timeoutThreshold = 3;
+
+        /**
+         * 首次重启延迟（毫秒），之后每次失败翻倍
+         */
+        private long initialBackoffMs = 1000;
+
+        /**
+         * 最大重启延迟（毫秒）
+         */
+        private long maxBackoffMs = 60000;
+    }
+
+    /**
+     * 同名工具副本路由配置
+     * 按 EWMA 延迟、在途请求数和权重为副本打分，PARALLEL 策略下首个副本超过其 p95 延迟时向第二个副本发送对冲请求
+     */
+    @Data
+    public static class Routing {
+
+        /**
+         * EWMA 平滑系数，越大越偏向最近的延迟
+         */
+        private double ewmaAlpha = 0.2;
+
+        /**
+         * EWMA 衰减时间常数（毫秒）：副本长时间没有新样本时延迟估计按此衰减，
+         * 避免一次冷启动的慢响应让副本再也得不到流量
+         */
+        private long ewmaDecayMs = 10000;
+
+        /**
+         * 计算 p95 所需的最少样本数，不足时不发送对冲请求
+         */
+        private int hedgeMinSamples = 20;
+
+        /**
+         * 对冲请求的最小等待时间（毫秒）
+         */
+        private long hedgeMinDelayMs = 50;
+
+        /**
+         * 调用失败时计入 EWMA 的惩罚延迟（毫秒），快速失败的副本不会因此排到最前
+         */
+        private long errorPenaltyMs = 5000;
+    }
+
     /**
      * 编排策略枚举
      */
@@ -43,12 +202,17 @@ public class McpConfig {
         PRIORITY,
 
         /**
-         * 轮询策略：依次循环选择服务器
+         * 负载均衡策略：按 EWMA 延迟、在途请求数和权重选择得分最低的服务器
+         */
+        LOAD_BALANCE,
+
+        /**
+         * 轮询策略：按权重依次循环选择服务器
          */
         ROUND_ROBIN,
 
         /**
-         * 并行策略：同时尝试所有服务器，使用第一个成功的响应
+         * 并行策略：按负载均衡选择首个服务器，超过其 p95 延迟仍未返回时向第二个服务器发送对冲请求，使用第一个成功的响应
          */
         PARALLEL
     }
@@ -61,7 +225,7 @@ public class McpConfig {
         private String name;
 
         /**
-         * 服务器类型：stdio 或 sse
+         * 服务器类型：stdio、sse（HTTP+SSE）、http（Streamable HTTP）或 unix（Unix 域套接字）
          */
         private String type = "stdio";
 
@@ -82,10 +246,22 @@ public class McpConfig {
         private List<String> env = new ArrayList<>();
 
         /**
-         * 服务器URL（仅SSE类型）
+         * 服务器URL（仅sse/http类型）
+         * sse 类型为 SSE 端点地址，http 类型为 MCP 端点地址
          */
         private String url;
 
+        /**
+         * 附加HTTP请求头（仅sse/http类型），例如 Authorization
+         */
+        private Map<String, String> headers = new HashMap<>();
+
+        /**
+         * 套接字路径（仅unix类型）
+         * 同一主机上长期运行的 MCP 守护进程监听的 Unix 域套接字，多个应用副本共享该进程
+         */
+        private String socketPath;
+
         /**
          * 是否启用
          */
@@ -115,7 +291,7 @@ public class McpConfig {
         private boolean fallback = false;
 
         /**
-         * 最大并发连接数
+         * 最大并发连接数（stdio类型为最大进程数）
          */
         private int maxConnections = 10;
 
@@ -123,5 +299,62 @@ public class McpConfig {
          * 连接超时时间（秒）
          */
         private int connectTimeoutSeconds = 10;
+
+        /**
+         * 单个请求超时时间（秒）
+         * 超时的请求会从等待表移除，并向服务器发送 notifications/cancelled
+         */
+        private int requestTimeoutSeconds = 30;
+
+        /**
+         * 空闲进程回收时间（秒，仅stdio类型）
+         * 连接池中超过此时间没有请求的进程会被关闭，至少保留一个进程
+         */
+        private int idleTimeoutSeconds = 300;
+
+        /**
+         * 保留的 stderr 行数（仅stdio类型），可通过 /actuator/mcpstderr 查看
+         */
+        private int stderrBufferLines = 200;
+
+        /**
+         * 按工具名配置的调用参数，未配置的工具使用默认值
+         */
+        private Map<String, ToolSettings> tools = new HashMap<>();
+    }
+
+    /**
+     * 单个工具的配置
+     */
+    @Data
+    public static class ToolSettings {
+
+        /**
+         * 结果是否可缓存，默认不缓存
+         * 缓存在副本和用户之间共享，只应对结果不随时间和调用方变化的工具开启
+         */
+        private boolean cacheable = false;
+
+        /**
+         * 结果缓存时间（秒），未配置时为 5 分钟
+         */
+        private Long cacheTtlSeconds;
+
+        /**
+         * 执行超时时间（秒），未配置时使用 agent.tool.timeout
+         * 同时受服务器 request-timeout-seconds 限制，慢工具需要一并调大
+         */
+        private Long timeoutSeconds;
+
+        /**
+         * 单个结果返回给模型的最大 token 数，未配置时使用 agent.observation.max-tokens-per-tool
+         */
+        private Integer maxObservationTokens;
+
+        /**
+         * PARALLEL 策略下是否允许向第二个副本发送对冲请求，
+         * 未配置时只对服务器声明 idempotentHint 或 readOnlyHint 的工具对冲
+         */
+        private Boolean hedge;
     }
 }
@@ -2,6 +2,7 @@ package cn.chollter.agent.demo.controller;
 
 import cn.chollter.agent.demo.dto.TaskRequest;
 import cn.chollter.agent.demo.dto.TaskResponse;
+import cn.chollter.agent.demo.mcp.ToolSelector;
 import cn.chollter.agent.demo.security.RateLimit;
 import cn.chollter.agent.demo.security.RateLimitType;
 import cn.chollter.agent.demo.service.AgentService;
@@ -57,13 +58,16 @@ public class AgentController {
             - 复杂任务可能需要较长时间执行
             - 建议设置合理的超时时间
             - 执行过程会被记录到数据库
+            - 可通过 tags / tools 限定暴露给模型的MCP工具，减少提示词中的工具定义
             """)
     public ResponseEntity<TaskResponse> execute(
             @Parameter(description = "任务请求对象", required = true)
-            @Valid @RequestBody TaskRequest request) {
+            @Valid @RequestBody TaskRequest request,
+            @Parameter(hidden = true) @RequestHeader(value = "X-API-Key", required = false) String apiKey) {
         log.info("收到任务请求: {}, 会话ID: {}", request.getTask(), request.getConversationId());
 
-        var agentResponse = agentService.executeTask(request.getConversationId(), request.getTask());
+        var agentResponse = agentService.executeTask(request.getConversationId(), request.getTask(),
+                toolSelector(request, apiKey));
         return ResponseEntity.ok(TaskResponse.fromAgentResponse(agentResponse));
     }
 
@@ -148,17 +152,16 @@ public class AgentController {
             注意事项：
             - 流式响应不包含思考步骤（thoughtSteps）
             - 需要客户端支持 SSE 事件处理
+            - 可通过 tags / tools 限定暴露给模型的MCP工具
             """)
     public Flux<ServerSentEvent<String>> executeStream(
             @Parameter(description = "任务请求对象", required = true)
-            @Valid @RequestBody TaskRequest request) {
+            @Valid @RequestBody TaskRequest request,
+            @Parameter(hidden = true) @RequestHeader(value = "X-API-Key", required = false) String apiKey) {
         log.info("收到流式任务请求: {}, 会话ID: {}", request.getTask(), request.getConversationId());
 
-        if (request.getConversationId() != null) {
-            return agentService.executeTaskStream(request.getConversationId(), request.getTask());
-        } else {
-            return agentService.executeTaskStream(request.getTask());
-        }
+        return agentService.executeTaskStream(request.getConversationId(), request.getTask(),
+                toolSelector(request, apiKey));
     }
 
     /**
@@ -186,4 +189,11 @@ public class AgentController {
         log.info("收到简化流式任务请求: {}", task);
         return agentService.executeTaskStream(task);
     }
+
+    /**
+     * 请求指定的工具范围，未指定时使用 API Key 的默认标签
+     */
+    private ToolSelector toolSelector(TaskRequest request, String apiKey) {
+        return agentService.resolveToolSelector(request.getTags(), request.getTools(), apiKey);
+    }
 }
@@ -8,6 +8,8 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.util.List;
+
 /**
  * 任务请求DTO
  *
@@ -45,4 +47,24 @@ public class TaskRequest {
     )
     private String conversationId;
 
+    /**
+     * 工具标签（可选，只向模型暴露带这些标签的MCP服务器上的工具）
+     */
+    @Schema(
+            description = "工具标签，只向模型暴露带这些标签的MCP服务器上的工具；与 tools 取并集，都不填时使用 API Key 的默认标签",
+            example = "[\"file\", \"local\"]",
+            requiredMode = Schema.RequiredMode.NOT_REQUIRED
+    )
+    private List<String> tags;
+
+    /**
+     * 工具名过滤（可选）
+     */
+    @Schema(
+            description = "工具名过滤：完整名称（github:create_issue）、工具名（create_issue）或以 * 结尾的前缀（github:*）",
+            example = "[\"github:*\"]",
+            requiredMode = Schema.RequiredMode.NOT_REQUIRED
+    )
+    private List<String> tools;
+
 }
@@ -2,6 +2,8 @@ package cn.chollter.agent.demo.exception;
 
 import lombok.Getter;
 
+import java.io.Serial;
+
 /**
  * Agent 异常基类
  * 所有 Agent 相关异常的父类
@@ -12,6 +14,9 @@ import lombok.Getter;
 @Getter
 public class AgentException extends RuntimeException {
 
+    @Serial
+    private static final long serialVersionUID = 1L;
+
     /**
      * 错误码
      */
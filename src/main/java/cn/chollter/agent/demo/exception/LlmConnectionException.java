@@ -1,5 +1,7 @@
 package cn.chollter.agent.demo.exception;
 
+import java.io.Serial;
+
 /**
  * LLM 连接异常
  * 当与 LLM 服务通信失败时抛出
@@ -9,6 +11,9 @@ package cn.chollter.agent.demo.exception;
  */
 public class LlmConnectionException extends AgentException {
 
+    @Serial
+    private static final long serialVersionUID = 1L;
+
     public LlmConnectionException(String message) {
         super("LLM_CONNECTION_ERROR", message);
     }
@@ -1,5 +1,7 @@
 package cn.chollter.agent.demo.exception;
 
+import java.io.Serial;
+
 /**
  * MCP (Model Context Protocol) 相关异常
  * 当 MCP 服务器通信或操作失败时抛出
@@ -9,6 +11,9 @@ package cn.chollter.agent.demo.exception;
  */
 public class McpException extends AgentException {
 
+    @Serial
+    private static final long serialVersionUID = 1L;
+
     public McpException(String message) {
         super("MCP_ERROR", message);
     }
@@ -1,5 +1,7 @@
 package cn.chollter.agent.demo.exception;
 
+import java.io.Serial;
+
 /**
  * 可重试异常
  * 标记此类异常应该触发重试机制
@@ -9,6 +11,9 @@ package cn.chollter.agent.demo.exception;
  */
 public class RetryableException extends AgentException {
 
+    @Serial
+    private static final long serialVersionUID = 1L;
+
     private final int maxRetries;
     private final int currentAttempt;
 
@@ -1,5 +1,7 @@
 package cn.chollter.agent.demo.exception;
 
+import java.io.Serial;
+
 /**
  * 工具执行异常
  * 当工具执行过程中发生错误时抛出
@@ -9,6 +11,9 @@ package cn.chollter.agent.demo.exception;
  */
 public class ToolExecutionException extends AgentException {
 
+    @Serial
+    private static final long serialVersionUID = 1L;
+
     public ToolExecutionException(String toolName, String message) {
         super("TOOL_EXECUTION_ERROR",
                 String.format("工具 '%s' 执行失败: %s", toolName, message),
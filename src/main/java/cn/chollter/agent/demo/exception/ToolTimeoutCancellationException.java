@@ -0,0 +1,38 @@
+package cn.chollter.agent.demo.exception;
+
+import lombok.Getter;
+
+import java.io.Serial;
+import java.time.Duration;
+import java.util.concurrent.CancellationException;
+
+/**
+ * 工具调用因超时被调用方取消
+ * 与普通取消一样使调用停止（future 视为已取消，服务器收到 notifications/cancelled），
+ * 同时保留取消原因，MCP 熔断器据此把它记为一次超时
+ *
+ * @author Chollter
+ * @since 1.0.0
+ */
+@Getter
+public class ToolTimeoutCancellationException extends CancellationException {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 超时的工具名
+     */
+    private final String toolName;
+
+    /**
+     * 生效的超时时间
+     */
+    private final Duration timeout;
+
+    public ToolTimeoutCancellationException(String toolName, Duration timeout) {
+        super(String.format("工具 '%s' 执行超时（%d ms），调用已取消", toolName, timeout.toMillis()));
+        this.toolName = toolName;
+        this.timeout = timeout;
+    }
+}
@@ -0,0 +1,38 @@
+package cn.chollter.agent.demo.exception;
+
+import lombok.Getter;
+
+import java.io.Serial;
+import java.time.Duration;
+
+/**
+ * 工具执行超时异常
+ * 工具执行超过其超时时间时抛出，底层调用已被取消
+ *
+ * @author Chollter
+ * @since 1.0.0
+ */
+@Getter
+public class ToolTimeoutException extends AgentException {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 超时的工具名
+     */
+    private final String toolName;
+
+    /**
+     * 生效的超时时间
+     */
+    private final Duration timeout;
+
+    public ToolTimeoutException(String toolName, Duration timeout) {
+        super("TOOL_TIMEOUT",
+                String.format("工具 '%s' 执行超时（%d ms）", toolName, timeout.toMillis()),
+                "timeout=" + timeout);
+        this.toolName = toolName;
+        this.timeout = timeout;
+    }
+}
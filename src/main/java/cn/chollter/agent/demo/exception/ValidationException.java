@@ -2,6 +2,7 @@ package cn.chollter.agent.demo.exception;
 
 import lombok.Getter;
 
+import java.io.Serial;
 import java.util.List;
 
 /**
@@ -14,6 +15,10 @@ import java.util.List;
 @Getter
 public class ValidationException extends AgentException {
 
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    @SuppressWarnings("serial")
     private final List<String> validationErrors;
 
     public ValidationException(String message) {
@@ -0,0 +1,184 @@
+package cn.chollter.agent.demo.mcp;
+
+import cn.chollter.agent.demo.exception.McpException;
+import cn.chollter.agent.demo.exception.ToolTimeoutCancellationException;
+import cn.chollter.agent.demo.mcp.dto.CallToolResult;
+import cn.chollter.agent.demo.mcp.dto.McpResource;
+import cn.chollter.agent.demo.mcp.dto.McpTool;
+import cn.chollter.agent.demo.mcp.dto.ResourceContent;
+import cn.chollter.agent.demo.mcp.dto.ResourceTemplate;
+import cn.chollter.agent.demo.mcp.dto.ToolCall;
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BiConsumer;
+
+/**
+ * 带熔断的MCP连接
+ * 熔断打开时工具调用立即失败；调用超时（含调用方超时后取消）计入熔断器，调用成功即清零。
+ * tools/list 不经过熔断，服务器重启时需要用它重新注册工具
+ */
+public class CircuitBreakingConnection implements McpConnection {
+
+    private final McpConnection delegate;
+    private final McpCircuitBreaker circuitBreaker;
+
+    public CircuitBreakingConnection(McpConnection delegate, McpCircuitBreaker circuitBreaker) {
+        this.delegate = delegate;
+        this.circuitBreaker = circuitBreaker;
+    }
+
+    /**
+     * 被包装的连接
+     */
+    public McpConnection getDelegate() {
+        return delegate;
+    }
+
+    @Override
+    public String getServerName() {
+        return delegate.getServerName();
+    }
+
+    @Override
+    public List<McpTool> listTools() throws IOException {
+        return delegate.listTools();
+    }
+
+    @Override
+    public CompletableFuture<List<McpTool>> listToolsAsync() {
+        return delegate.listToolsAsync();
+    }
+
+    @Override
+    public String callTool(String toolName, Map<String, Object> arguments) throws IOException {
+        if (!circuitBreaker.allowRequest()) {
+            throw rejected();
+        }
+        try {
+            String result = delegate.callTool(toolName, arguments);
+            circuitBreaker.recordSuccess();
+            return result;
+        } catch (IOException e) {
+            if (e.getCause() instanceof TimeoutException) {
+                circuitBreaker.recordTimeout();
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public CompletableFuture<String> callToolAsync(String toolName, Map<String, Object> arguments) {
+        if (!circuitBreaker.allowRequest()) {
+            return CompletableFuture.failedFuture(rejected());
+        }
+        CompletableFuture<String> future = delegate.callToolAsync(toolName, arguments);
+        return recorded(future);
+    }
+
+    @Override
+    public CompletableFuture<CallToolResult> callToolResultAsync(String toolName, Map<String, Object> arguments) {
+        if (!circuitBreaker.allowRequest()) {
+            return CompletableFuture.failedFuture(rejected());
+        }
+        CompletableFuture<CallToolResult> future = delegate.callToolResultAsync(toolName, arguments);
+        return recorded(future);
+    }
+
+    @Override
+    public List<CompletableFuture<String>> callToolsBatch(List<ToolCall> calls) {
+        if (!circuitBreaker.allowRequest()) {
+            return calls.stream().map(call -> CompletableFuture.<String>failedFuture(rejected())).toList();
+        }
+        return delegate.callToolsBatch(calls).stream()
+                .map(this::recorded)
+                .toList();
+    }
+
+    /**
+     * 结果计入熔断器后原样返回：回调挂在原 future 上，调用方直接取消原 future，
+     * 取消（包括调用方超时的取消）同样会经过 record；若返回 whenComplete 派生的 future，派生 future 先被取消时回调不会执行
+     */
+    private <T> CompletableFuture<T> recorded(CompletableFuture<T> future) {
+        future.whenComplete(this::record);
+        return future;
+    }
+
+    private void record(Object result, Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null
+                ? error.getCause() : error;
+        // 请求截止时间到期，或调用方的工具超时先到期并取消了请求
+        if (cause instanceof TimeoutException || cause instanceof ToolTimeoutCancellationException) {
+            circuitBreaker.recordTimeout();
+        } else if (cause == null) {
+            circuitBreaker.recordSuccess();
+        }
+    }
+
+    @Override
+    public List<McpResource> listResources() throws IOException {
+        return delegate.listResources();
+    }
+
+    @Override
+    public List<ResourceTemplate> listResourceTemplates() throws IOException {
+        return delegate.listResourceTemplates();
+    }
+
+    @Override
+    public ResourceContent readResource(String uri) throws IOException {
+        if (!circuitBreaker.allowRequest()) {
+            throw rejected();
+        }
+        return delegate.readResource(uri);
+    }
+
+    @Override
+    public void subscribeResource(String uri) throws IOException {
+        delegate.subscribeResource(uri);
+    }
+
+    @Override
+    public void unsubscribeResource(String uri) throws IOException {
+        delegate.unsubscribeResource(uri);
+    }
+
+    @Override
+    public boolean isResourceSubscribeSupported() {
+        return delegate.isResourceSubscribeSupported();
+    }
+
+    private McpException rejected() {
+        return new McpException(getServerName(), "服务器不可用（熔断中），等待自动重启");
+    }
+
+    @Override
+    public void addNotificationListener(BiConsumer<String, JsonNode> listener) {
+        delegate.addNotificationListener(listener);
+    }
+
+    @Override
+    public int getPendingRequestCount() {
+        return delegate.getPendingRequestCount();
+    }
+
+    @Override
+    public long getTimeoutCount() {
+        return delegate.getTimeoutCount();
+    }
+
+    @Override
+    public boolean isAlive() {
+        return delegate.isAlive();
+    }
+
+    @Override
+    public void close() {
+        delegate.close();
+    }
+}
@@ -0,0 +1,167 @@
+package cn.chollter.agent.demo.mcp;
+
+import cn.chollter.agent.demo.agent.Tool;
+import cn.chollter.agent.demo.agent.ToolExecutor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 进程内工具适配器
+ * 把 Java 实现的本地工具与 MCP 工具登记在同一个注册表中：
+ * - 直接调用工具方法，参数和结果不经过 JSON-RPC 序列化，也没有进程间往返
+ * - 可缓存的工具与 MCP 工具共用结果缓存和并发合并，键为工具名加规范化参数
+ * - 工具名保持原样（不加 server: 前缀），在注册表中归属于 {@link #HOST}
+ */
+@Slf4j
+public class LocalToolAdapter implements Tool {
+
+    /**
+     * 本地工具在注册表中的服务器名
+     */
+    public static final String HOST = "local";
+
+    private final Tool delegate;
+    private final SingleFlight<ToolCallKey, String> singleFlight;
+    private final ToolResultCache resultCache;
+    private final AtomicReference<ToolExecutor> executor;
+    private final LongAdder invocations = new LongAdder();
+
+    LocalToolAdapter(Tool delegate, SingleFlight<ToolCallKey, String> singleFlight, ToolResultCache resultCache,
+                     AtomicReference<ToolExecutor> executor) {
+        this.delegate = delegate;
+        this.singleFlight = singleFlight;
+        this.resultCache = resultCache;
+        this.executor = executor;
+    }
+
+    /**
+     * 被适配的本地工具
+     */
+    public Tool getDelegate() {
+        return delegate;
+    }
+
+    /**
+     * 实际执行次数（不含缓存命中和合并的调用）
+     */
+    public long getInvocationCount() {
+        return invocations.sum();
+    }
+
+    @Override
+    public String getName() {
+        return delegate.getName();
+    }
+
+    @Override
+    public String getDescription() {
+        return delegate.getDescription();
+    }
+
+    @Override
+    public String getParameterSchema() {
+        return delegate.getParameterSchema();
+    }
+
+    @Override
+    public boolean isCacheable() {
+        return delegate.isCacheable();
+    }
+
+    @Override
+    public Duration getCacheTtl() {
+        return delegate.getCacheTtl();
+    }
+
+    @Override
+    public Duration getTimeout() {
+        return delegate.getTimeout();
+    }
+
+    @Override
+    public Integer getMaxObservationTokens() {
+        return delegate.getMaxObservationTokens();
+    }
+
+    /**
+     * 设置了工具执行器时经由执行器（超时、结果预算），执行器再调用 {@link #executeLocally}
+     */
+    @Override
+    public String execute(Map<String, Object> parameters) {
+        ToolExecutor toolExecutor = executor.get();
+        if (toolExecutor != null) {
+            return toolExecutor.execute(this, parameters);
+        }
+        return executeLocally(parameters);
+    }
+
+    /**
+     * 在调用线程上执行
+     * 可缓存的工具先查两级缓存，未命中时同参数的并发调用只执行一次，成功结果写回缓存
+     */
+    public String executeLocally(Map<String, Object> parameters) {
+        if (!delegate.isCacheable()) {
+            return invoke(parameters);
+        }
+
+        ToolCallKey key = ToolCallKey.of(getName(), parameters);
+        Duration ttl = delegate.getCacheTtl();
+        if (resultCache.isEnabled()) {
+            String cached = resultCache.get(key, ttl);
+            if (cached != null) {
+                return cached;
+            }
+        }
+
+        // 首个调用方在 execute 内同步执行工具，其余调用方等待其结果
+        CompletableFuture<String> result = singleFlight.execute(key, () -> {
+            try {
+                String text = invoke(parameters);
+                if (resultCache.isEnabled() && !text.startsWith("Error:")) {
+                    resultCache.put(key, text, ttl);
+                }
+                return CompletableFuture.completedFuture(text);
+            } catch (RuntimeException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        });
+        return await(result);
+    }
+
+    private String invoke(Map<String, Object> parameters) {
+        invocations.increment();
+        return delegate.execute(parameters);
+    }
+
+    /**
+     * 等待合并的结果；等待线程被中断（超时）时放弃等待，不影响其他调用方
+     */
+    private String await(CompletableFuture<String> result) {
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            result.cancel(false);
+            Thread.currentThread().interrupt();
+            throw new CancellationException("本地工具调用已中断: " + getName());
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new CompletionException(cause);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return HOST + ":" + getName();
+    }
+}
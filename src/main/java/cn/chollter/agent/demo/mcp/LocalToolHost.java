@@ -0,0 +1,35 @@
+package cn.chollter.agent.demo.mcp;
+
+import cn.chollter.agent.demo.agent.Tool;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * 进程内工具宿主
+ * 所有单例创建完成后，把容器中的 Tool bean（如 {@link cn.chollter.agent.demo.mcp.content.ReadContentTool}）
+ * 注册到 McpManager，与 MCP 工具一起通过 getMcpTools / getTool 提供
+ * 本地工具大多依赖 McpManager，延迟到此时获取可以避免循环依赖
+ */
+@Slf4j
+@Component
+public class LocalToolHost implements SmartInitializingSingleton {
+
+    private final McpManager mcpManager;
+    private final ObjectProvider<Tool> tools;
+
+    public LocalToolHost(McpManager mcpManager, ObjectProvider<Tool> tools) {
+        this.mcpManager = mcpManager;
+        this.tools = tools;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        List<Tool> localTools = tools.orderedStream().toList();
+        int registered = mcpManager.registerLocalTools(localTools);
+        log.info("进程内工具注册完成，共 {} 个", registered);
+    }
+}
@@ -0,0 +1,55 @@
+package cn.chollter.agent.demo.mcp;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * MCP服务器熔断器
+ * 连续超时达到阈值或服务器崩溃时打开，打开期间工具调用立即失败，不再等待超时；
+ * 由监控任务重启服务器，重启成功后关闭（重启本身即为探测，不设半开状态）
+ */
+public class McpCircuitBreaker {
+
+    public enum State {
+        CLOSED,  // 正常
+        OPEN     // 熔断中
+    }
+
+    private final int timeoutThreshold;
+    private final AtomicInteger consecutiveTimeouts = new AtomicInteger();
+    private volatile State state = State.CLOSED;
+
+    public McpCircuitBreaker(int timeoutThreshold) {
+        this.timeoutThreshold = Math.max(1, timeoutThreshold);
+    }
+
+    public boolean allowRequest() {
+        return state == State.CLOSED;
+    }
+
+    public void recordSuccess() {
+        consecutiveTimeouts.set(0);
+    }
+
+    public void recordTimeout() {
+        if (consecutiveTimeouts.incrementAndGet() >= timeoutThreshold) {
+            state = State.OPEN;
+        }
+    }
+
+    public void open() {
+        state = State.OPEN;
+    }
+
+    public void reset() {
+        consecutiveTimeouts.set(0);
+        state = State.CLOSED;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public int getConsecutiveTimeouts() {
+        return consecutiveTimeouts.get();
+    }
+}
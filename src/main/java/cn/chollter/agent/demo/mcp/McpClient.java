@@ -1,81 +1,200 @@
 package cn.chollter.agent.demo.mcp;
 
+import cn.chollter.agent.demo.exception.McpException;
+import cn.chollter.agent.demo.exception.ToolTimeoutCancellationException;
+import cn.chollter.agent.demo.mcp.content.ContentBlockDeserializer;
+import cn.chollter.agent.demo.mcp.content.ContentStore;
+import cn.chollter.agent.demo.mcp.dto.CallToolResult;
+import cn.chollter.agent.demo.mcp.dto.ContentBlock;
+import cn.chollter.agent.demo.mcp.dto.JsonRpcError;
+import cn.chollter.agent.demo.mcp.dto.JsonRpcRequest;
+import cn.chollter.agent.demo.mcp.dto.JsonRpcResponse;
+import cn.chollter.agent.demo.mcp.dto.ListResourceTemplatesResult;
+import cn.chollter.agent.demo.mcp.dto.ListResourcesResult;
+import cn.chollter.agent.demo.mcp.dto.ListToolsResult;
+import cn.chollter.agent.demo.mcp.dto.McpResource;
+import cn.chollter.agent.demo.mcp.dto.McpTool;
+import cn.chollter.agent.demo.mcp.dto.ResourceContent;
+import cn.chollter.agent.demo.mcp.dto.ResourceTemplate;
+import cn.chollter.agent.demo.mcp.dto.ToolCall;
+import cn.chollter.agent.demo.mcp.transport.McpTransport;
+import cn.chollter.agent.demo.mcp.transport.StdioTransport;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.StreamReadConstraints;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
 import lombok.extern.slf4j.Slf4j;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.OutputStreamWriter;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
 /**
  * MCP客户端
- * 通过stdio协议与MCP服务器通信
+ * 负责 JSON-RPC 协议处理，底层通过 McpTransport 与MCP服务器通信（stdio、SSE 或 Streamable HTTP）
+ *
+ * 请求采用多路复用模型：每个请求在 pendingRequests 中登记一个 CompletableFuture 及其结果类型，
+ * 响应处理线程用流式 API 读取每一行，只解析一次就把类型化的 result 交给等待方。
+ * 注意：future 的回调默认在响应处理线程上执行，回调中不要做阻塞操作。
+ *
+ * 服务器支持 JSON-RPC 批量请求时，callToolsBatch 把多个调用合并为一次写出，响应数组按 id 分发给各自的 future。
+ *
+ * 请求截止时间由所有客户端共享的定时器跟踪：到期时移除登记、让调用方失败，
+ * 并向服务器发送 notifications/cancelled，让服务器停止处理已被放弃的请求。
  */
 @Slf4j
-public class McpClient implements AutoCloseable {
+public final class McpClient implements McpConnection {
 
     private final String serverName;
-    private final Process process;
-    private final BufferedReader reader;
-    private final OutputStreamWriter writer;
+    private final McpTransport transport;
     private final ObjectMapper objectMapper;
     private final AtomicLong requestId = new AtomicLong(0);
-    private final Map<Long, RequestContext> pendingRequests = new ConcurrentHashMap<>();
-
-    private static final int TIMEOUT_MS = 30000;
+    private final Map<Long, PendingRequest<?>> pendingRequests = new ConcurrentHashMap<>();
+    private final List<BiConsumer<String, JsonNode>> notificationListeners = new CopyOnWriteArrayList<>();
+    private final Map<String, ProgressRoute> progressRoutes = new ConcurrentHashMap<>();
+    private final AtomicLong progressTokens = new AtomicLong(0);
+
+    private final JavaType jsonNodeType;
+    private final JavaType listToolsType;
+    private final JavaType listResourcesType;
+    private final JavaType listResourceTemplatesType;
+    private final JavaType resourceContentType;
+    private final JavaType callToolType;
+
+    // 请求的协议版本：批量请求、工具注解和 Streamable HTTP 都来自该版本，服务器不支持时回落到它支持的版本
+    private static final String PROTOCOL_VERSION = "2025-03-26";
+    private static final Duration DEFAULT_TIMEOUT = Duration.ofSeconds(30);
+    // 单个 JSON 字符串的最大字符数（约 64MB 解析缓冲）
+    private static final int MAX_STRING_CHARS = 32 * 1024 * 1024;
     private static final long REQUEST_ID_MASK = 0xFFFFFFFFL;
+
+    // 所有客户端共享的截止时间定时器，取消的任务立即从队列移除，避免已完成请求的定时任务堆积
+    private static final ScheduledThreadPoolExecutor DEADLINE_TIMER = createDeadlineTimer();
+
+    private final long timeoutMs;
+    private final AtomicLong timeoutCount = new AtomicLong();
     private volatile boolean running = true;
+    private volatile boolean batchSupported = false;
+    private volatile boolean resourceSubscribeSupported = false;
 
-    private static class RequestContext {
-        final long requestId;
-        final long timestamp;
-        String result;
-        final Object lock = new Object();
+    /**
+     * 等待中的请求：结果类型 + 完成回调
+     */
+    private record PendingRequest<T>(JavaType resultType, CompletableFuture<T> future) {
 
-        RequestContext(long requestId) {
-            this.requestId = requestId;
-            this.timestamp = System.currentTimeMillis();
+        @SuppressWarnings("unchecked")
+        void complete(Object result) {
+            future.complete((T) result);
         }
     }
 
+    /**
+     * 进度通知的转发目标
+     */
+    private record ProgressRoute(String toolName, Consumer<McpProgress> listener) {
+    }
+
+    private static final String PROGRESS = "notifications/progress";
+
+    /**
+     * 启动本地stdio服务器进程
+     */
     public McpClient(String serverName, List<String> command, List<String> env) throws IOException {
+        this(serverName, new StdioTransport(serverName, command, env));
+    }
+
+    /**
+     * 使用指定传输层连接MCP服务器，并完成初始化握手
+     */
+    public McpClient(String serverName, McpTransport transport) throws IOException {
+        this(serverName, transport, DEFAULT_TIMEOUT);
+    }
+
+    /**
+     * 使用指定传输层和请求超时连接MCP服务器，并完成初始化握手
+     */
+    public McpClient(String serverName, McpTransport transport, Duration requestTimeout) throws IOException {
+        this(serverName, transport, requestTimeout, ContentStore.defaultStore());
+    }
+
+    /**
+     * 使用指定传输层、请求超时和大内容存储连接MCP服务器，并完成初始化握手
+     */
+    public McpClient(String serverName, McpTransport transport, Duration requestTimeout,
+                     ContentStore contentStore) throws IOException {
         this.serverName = serverName;
-        this.objectMapper = new ObjectMapper();
-
-        log.info("启动MCP服务器: {} 命令: {}", serverName, String.join(" ", command));
-
-        ProcessBuilder pb = new ProcessBuilder(command);
-        log.debug("准备启动进程，命令: {}", String.join(" ", command));
-        if (env != null && !env.isEmpty()) {
-            Map<String, String> environment = pb.environment();
-            for (String e : env) {
-                String[] parts = e.split("=", 2);
-                if (parts.length == 2) {
-                    environment.put(parts[0], parts[1]);
-                }
-            }
+        this.transport = transport;
+        this.timeoutMs = requestTimeout.toMillis();
+        this.objectMapper = createObjectMapper(contentStore);
+        this.jsonNodeType = objectMapper.constructType(JsonNode.class);
+        this.listToolsType = objectMapper.constructType(ListToolsResult.class);
+        this.listResourcesType = objectMapper.constructType(ListResourcesResult.class);
+        this.listResourceTemplatesType = objectMapper.constructType(ListResourceTemplatesResult.class);
+        this.resourceContentType = objectMapper.constructType(ResourceContent.class);
+        this.callToolType = objectMapper.constructType(CallToolResult.class);
+
+        transport.start(new TransportListener());
+
+        // 初始化连接
+        try {
+            await(initializeAsync());
+        } catch (IOException | RuntimeException e) {
+            transport.close();
+            throw e;
         }
-        pb.redirectErrorStream(true);
 
-        this.process = pb.start();
-        this.reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
-        this.writer = new OutputStreamWriter(process.getOutputStream());
+        log.debug("服务器 {} 已完成初始化握手", serverName);
+    }
 
-        // 启动响应处理线程
-        startResponseHandler();
+    /**
+     * 协议专用的 ObjectMapper：大内容块落盘，单个字符串的长度上限从默认的 20M 字符放宽到 {@link #MAX_STRING_CHARS}
+     * 超长字符串在落盘前仍要完整缓冲在解析器中（每字符 2 字节），上限保证单条消息的内存占用有界，超出时请求失败
+     */
+    private static ObjectMapper createObjectMapper(ContentStore contentStore) {
+        JsonFactory factory = JsonFactory.builder()
+                .streamReadConstraints(StreamReadConstraints.builder().maxStringLength(MAX_STRING_CHARS).build())
+                .build();
+        SimpleModule module = new SimpleModule("mcp-content");
+        module.addDeserializer(ContentBlock.class, new ContentBlockDeserializer(contentStore));
+        return new ObjectMapper(factory).registerModule(module);
+    }
 
-        // 初始化连接
-        initialize();
+    private static ScheduledThreadPoolExecutor createDeadlineTimer() {
+        ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread thread = new Thread(r, "MCP-Deadline");
+            thread.setDaemon(true);
+            return thread;
+        });
+        timer.setRemoveOnCancelPolicy(true);
+        return timer;
     }
 
-    private void initialize() throws IOException {
-        // 发送initialize请求
+    /**
+     * 发送 initialize 请求和 initialized 通知
+     */
+    private CompletableFuture<Void> initializeAsync() {
         Map<String, Object> params = new HashMap<>();
-        params.put("protocolVersion", "2024-11-05");
+        params.put("protocolVersion", PROTOCOL_VERSION);
         params.put("capabilities", Map.of(
             "roots", Map.of(),
             "sampling", Map.of()
@@ -85,207 +204,573 @@ public class McpClient implements AutoCloseable {
             "version", "1.0.0"
         ));
 
-        Map<String, Object> response = sendRequest("initialize", params);
-        log.info("MCP服务器 {} 初始化成功: {}", serverName, response);
+        return this.<JsonNode>sendRequestAsync("initialize", params, jsonNodeType)
+                .thenCompose(response -> {
+                    log.info("MCP服务器 {} 初始化成功: {}", serverName, response);
+                    batchSupported = supportsBatch(response);
+                    resourceSubscribeSupported = response.path("capabilities").path("resources")
+                            .path("subscribe").asBoolean(false);
+                    return sendNotificationAsync("notifications/initialized", Map.of());
+                });
+    }
 
-        // 发送initialized通知
-        sendNotification("notifications/initialized", Map.of());
+    /**
+     * JSON-RPC 批量请求只在 2025-03-26 版协议中标准化，服务器协商为其他版本时需在 experimental 能力中声明 batch
+     */
+    private static boolean supportsBatch(JsonNode initializeResult) {
+        return PROTOCOL_VERSION.equals(initializeResult.path("protocolVersion").asText())
+                || initializeResult.path("capabilities").path("experimental").has("batch");
+    }
 
-        // 等待服务器处理initialized通知
-        try {
-            Thread.sleep(100);
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
+    /**
+     * 传输层回调
+     */
+    private class TransportListener implements McpTransport.Listener {
+
+        @Override
+        public void onMessage(String message) {
+            try {
+                handleMessage(message);
+            } catch (JsonProcessingException e) {
+                // 不符合协议的输出（如服务器误写到 stdout 的日志），不逐行打印堆栈
+                log.warn("忽略无法解析的MCP消息: {} ({})", message, e.getOriginalMessage());
+            } catch (Exception e) {
+                log.error("处理MCP响应失败: {}", message, e);
+            }
         }
 
-        log.debug("服务器 {} 已完成初始化握手", serverName);
-    }
+        @Override
+        public void onDisconnected(Throwable cause) {
+            failPendingRequests(new McpException(serverName, "连接已断开", cause));
+        }
 
-    private void startResponseHandler() {
-        Thread handler = new Thread(() -> {
-            try {
-                String line;
-                while (running && (line = reader.readLine()) != null) {
-                    if (line.isEmpty()) continue;
-                    String trimmedLine = line.trim();
-                    if (!trimmedLine.startsWith("{")) {
-                        log.info("跳过 MCP 服务端非 JSON 输出: {}", line);
-                        continue;
-                    }
-                    try {
-                        @SuppressWarnings("unchecked")
-                        Map<String, Object> message = objectMapper.readValue(line, Map.class);
-                        handleResponse(message);
-                    } catch (Exception e) {
-                        log.error("处理MCP响应失败: {}", line, e);
-                    }
-                }
-            } catch (IOException e) {
-                if (running) {
-                    log.error("MCP响应处理器错误", e);
+        @Override
+        public void onReconnected() {
+            initializeAsync().whenComplete((ignored, error) -> {
+                if (error != null) {
+                    log.error("MCP服务器 {} 重新初始化失败", serverName, error);
                 } else {
-                    log.debug("MCP响应处理器正常关闭");
+                    log.info("MCP服务器 {} 已重新初始化", serverName);
                 }
+            });
+        }
+    }
+
+    /**
+     * 让所有等待中的请求立即失败
+     */
+    private void failPendingRequests(Throwable cause) {
+        for (Long id : new ArrayList<>(pendingRequests.keySet())) {
+            PendingRequest<?> pending = pendingRequests.remove(id);
+            if (pending != null) {
+                pending.future().completeExceptionally(cause);
             }
-        });
-        handler.setDaemon(true);
-        handler.setName("MCP-ResponseHandler-" + serverName);
-        handler.start();
-    }
-
-    @SuppressWarnings("unchecked")
-    private void handleResponse(Map<String, Object> message) {
-        Object id = message.get("id");
-        log.debug("收到消息: id={}, keys={}", id, message.keySet());
-
-        if (id instanceof Number) {
-            long requestId = ((Number) id).longValue() & REQUEST_ID_MASK;
-            RequestContext context = pendingRequests.remove(requestId);
-            if (context != null) {
-                synchronized (context.lock) {
-                    if (message.containsKey("result")) {
-                        try {
-                            Object resultObj = message.get("result");
-                            log.debug("序列化结果: type={}, value={}", resultObj.getClass(), resultObj);
-                            context.result = objectMapper.writeValueAsString(resultObj);
-                        } catch (Exception e) {
-                            log.error("序列化结果失败", e);
-                            context.result = "{\"error\": \"Failed to serialize result\"}";
-                        }
-                    } else if (message.containsKey("error")) {
-                        Map<String, Object> error = (Map<String, Object>) message.get("error");
-                        context.result = "{\"error\": \"" + error.get("message") + "\"}";
-                    }
-                    context.lock.notifyAll();
+        }
+    }
+
+    /**
+     * 用流式 API 解析一条 JSON-RPC 消息，批量响应（数组）逐个元素处理
+     */
+    private void handleMessage(String line) throws IOException {
+        try (JsonParser parser = objectMapper.createParser(line)) {
+            JsonToken token = parser.nextToken();
+            if (token == JsonToken.START_ARRAY) {
+                while (parser.nextToken() == JsonToken.START_OBJECT) {
+                    handleObject(parser, line);
                 }
+            } else if (token == JsonToken.START_OBJECT) {
+                handleObject(parser, line);
             } else {
-                log.warn("未找到对应的请求上下文: id={}", requestId);
+                log.warn("忽略非对象的 MCP 消息: {}", line);
             }
         }
     }
 
-    private Map<String, Object> sendRequest(String method, Map<String, Object> params) throws IOException {
-        long id = requestId.incrementAndGet() & REQUEST_ID_MASK;
-        RequestContext context = new RequestContext(id);
-        pendingRequests.put(id, context);
+    /**
+     * 解析一个 JSON-RPC 对象，parser 位于 START_OBJECT，处理后位于对应的 END_OBJECT
+     * 若 id 先于 result 出现，result 直接按登记的类型反序列化；
+     * 否则先缓冲为 TokenBuffer（保存的是 token 而不是文本），拿到 id 后再转换，不会重新解析文本
+     */
+    private void handleObject(JsonParser parser, String line) throws IOException {
+        Long id = null;
+        String method = null;
+        PendingRequest<?> pending = null;
+        boolean hasResult = false;
+        Object result = null;
+        TokenBuffer bufferedResult = null;
+        JsonRpcError error = null;
+        JsonNode params = null;
 
-        Map<String, Object> request = new HashMap<>();
-        request.put("jsonrpc", "2.0");
-        request.put("id", id);
-        request.put("method", method);
-        if (params != null) {
-            request.put("params", params);
+        try {
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                switch (field) {
+                    case "id" -> {
+                        if (value.isNumeric()) {
+                            id = parser.getLongValue() & REQUEST_ID_MASK;
+                            pending = pendingRequests.get(id);
+                        }
+                    }
+                    case "result" -> {
+                        hasResult = true;
+                        if (pending != null) {
+                            result = objectMapper.readValue(parser, pending.resultType());
+                        } else {
+                            bufferedResult = new TokenBuffer(parser);
+                            bufferedResult.copyCurrentStructure(parser);
+                        }
+                    }
+                    case "error" -> error = objectMapper.readValue(parser, JsonRpcError.class);
+                    case "method" -> method = parser.getValueAsString();
+                    case "params" -> params = objectMapper.readTree(parser);
+                    default -> parser.skipChildren();
+                }
+            }
+
+            if (bufferedResult != null && id != null && (pending = pendingRequests.get(id)) != null) {
+                try (JsonParser buffered = bufferedResult.asParser(objectMapper)) {
+                    buffered.nextToken();
+                    result = objectMapper.readValue(buffered, pending.resultType());
+                }
+            }
+        } catch (IOException e) {
+            // 结果无法按预期类型解析时，立即让调用方失败，而不是等到超时
+            PendingRequest<?> failed = id != null ? pendingRequests.remove(id) : null;
+            if (failed != null) {
+                failed.future().completeExceptionally(
+                        new McpException(serverName, "解析响应失败: " + e.getMessage(), e));
+            }
+            throw e;
         }
 
-        String json = objectMapper.writeValueAsString(request);
-        log.debug("发送请求: {}", json);
-        synchronized (writer) {
-            writer.write(json);
-            writer.write("\n");
-            writer.flush();
+        if (method != null) {
+            if (id == null) {
+                handleNotification(method, params);
+            } else {
+                // 服务器发来的请求（如 sampling），当前不处理
+                log.debug("忽略服务器请求: method={}, id={}", method, id);
+            }
+            return;
+        }
+        if (id == null) {
+            log.warn("忽略没有 id 的 MCP 响应: {}", line);
+            return;
+        }
+
+        pending = pendingRequests.remove(id);
+        if (pending == null) {
+            log.warn("未找到对应的请求上下文: id={}", id);
+            return;
         }
 
-        // 等待响应
-        synchronized (context.lock) {
+        if (error == null && !hasResult) {
+            pending.future().completeExceptionally(new McpException(serverName, "响应缺少 result 字段"));
+            return;
+        }
+        completeResponse(pending, new JsonRpcResponse<>(id, result, error));
+    }
+
+    /**
+     * 分发服务器通知给已注册的监听器
+     */
+    private void handleNotification(String method, JsonNode params) {
+        log.debug("收到服务器通知: server={}, method={}", serverName, method);
+        if (PROGRESS.equals(method) && params != null) {
+            routeProgress(params);
+        }
+        for (BiConsumer<String, JsonNode> listener : notificationListeners) {
             try {
-                context.lock.wait(TIMEOUT_MS);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                throw new IOException("请求被中断", e);
+                listener.accept(method, params);
+            } catch (Exception e) {
+                log.error("处理MCP通知失败: method={}", method, e);
             }
         }
+    }
 
-        if (context.result == null) {
-            log.error("请求超时: method={}, id={}", method, id);
-            throw new IOException("请求超时");
+    private void routeProgress(JsonNode params) {
+        ProgressRoute route = progressRoutes.get(params.path("progressToken").asText());
+        if (route == null) {
+            return;
         }
+        JsonNode total = params.get("total");
+        try {
+            route.listener().accept(new McpProgress(serverName, route.toolName(),
+                    params.path("progress").asDouble(),
+                    total != null && total.isNumber() ? total.asDouble() : null,
+                    params.path("message").asText(null)));
+        } catch (Exception e) {
+            log.error("转发工具进度失败: {}", route.toolName(), e);
+        }
+    }
+
+    @Override
+    public void addNotificationListener(BiConsumer<String, JsonNode> listener) {
+        notificationListeners.add(listener);
+    }
 
-        log.debug("收到响应: method={}, result={}", method, context.result);
+    private void completeResponse(PendingRequest<?> pending, JsonRpcResponse<?> response) {
+        if (response.isError()) {
+            pending.future().completeExceptionally(new McpException(serverName, response.error().message()));
+        } else {
+            pending.complete(response.result());
+        }
+    }
+
+    /**
+     * 异步发送请求
+     * 返回的 future 在收到响应、服务器返回错误或超过截止时间时完成；
+     * 调用方取消 future 时，同样会通知服务器取消该请求
+     */
+    private <T> CompletableFuture<T> sendRequestAsync(String method, Object params, JavaType resultType) {
+        long id = requestId.incrementAndGet() & REQUEST_ID_MASK;
+        CompletableFuture<T> future = register(id, method, resultType);
 
+        String json;
         try {
-            Map<String, Object> fullResponse = objectMapper.readValue(context.result, Map.class);
-            log.debug("解析后的响应: method={}, response={}", method, fullResponse);
+            json = objectMapper.writeValueAsString(JsonRpcRequest.request(id, method, params));
+        } catch (IOException e) {
+            pendingRequests.remove(id);
+            future.completeExceptionally(e);
+            return future;
+        }
 
-            // 返回 result 字段，如果不存在则返回整个响应
-            Object result = fullResponse.get("result");
-            if (result instanceof Map) {
-                return (Map<String, Object>) result;
+        log.debug("发送请求: {}", json);
+        transport.send(json).whenComplete((sent, error) -> {
+            if (error != null && pendingRequests.remove(id) != null) {
+                future.completeExceptionally(error instanceof CompletionException && error.getCause() != null
+                        ? error.getCause() : error);
             }
+        });
 
-            // 如果没有 result 字段或不是 Map 类型，返回整个响应
-            return fullResponse;
-        } catch (Exception e) {
-            log.error("解析响应失败: method={}, result={}, error={}", method, context.result, e.getMessage());
-            return Map.of("result", context.result);
+        return future;
+    }
+
+    /**
+     * 批量发送请求：所有请求合并为一个 JSON 数组一次写出，各自登记 future 和截止时间
+     */
+    private <T> List<CompletableFuture<T>> sendBatchAsync(String method, List<?> paramsList, JavaType resultType) {
+        List<Long> ids = new ArrayList<>(paramsList.size());
+        List<CompletableFuture<T>> futures = new ArrayList<>(paramsList.size());
+        List<JsonRpcRequest> requests = new ArrayList<>(paramsList.size());
+        for (Object params : paramsList) {
+            long id = requestId.incrementAndGet() & REQUEST_ID_MASK;
+            ids.add(id);
+            futures.add(register(id, method, resultType));
+            requests.add(JsonRpcRequest.request(id, method, params));
+        }
+
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(requests);
+        } catch (IOException e) {
+            failAll(ids, e);
+            return futures;
+        }
+
+        log.debug("发送批量请求: {} 个 {}", requests.size(), method);
+        transport.send(json).whenComplete((sent, error) -> {
+            if (error != null) {
+                failAll(ids, error instanceof CompletionException && error.getCause() != null
+                        ? error.getCause() : error);
+            }
+        });
+        return futures;
+    }
+
+    private void failAll(List<Long> ids, Throwable cause) {
+        for (Long id : ids) {
+            PendingRequest<?> pending = pendingRequests.remove(id);
+            if (pending != null) {
+                pending.future().completeExceptionally(cause);
+            }
         }
     }
 
-    private void sendNotification(String method, Map<String, Object> params) throws IOException {
-        Map<String, Object> notification = new HashMap<>();
-        notification.put("jsonrpc", "2.0");
-        notification.put("method", method);
-        if (params != null) {
-            notification.put("params", params);
+    /**
+     * 请求到达截止时间：移除登记、让调用方失败，并通知服务器取消
+     */
+    private void expire(long id, String method) {
+        PendingRequest<?> pending = pendingRequests.remove(id);
+        if (pending == null) {
+            return;
         }
+        timeoutCount.incrementAndGet();
+        log.error("请求超时: method={}, id={}, timeout={}ms", method, id, timeoutMs);
+        pending.future().completeExceptionally(
+                new TimeoutException("请求超时: " + method + " (" + timeoutMs + "ms)"));
+        cancelOnServer(id, method, "请求超时");
+    }
 
-        String json = objectMapper.writeValueAsString(notification);
-        synchronized (writer) {
-            writer.write(json);
-            writer.write("\n");
-            writer.flush();
+    /**
+     * 发送 notifications/cancelled，initialize 请求按协议不可取消
+     */
+    private void cancelOnServer(long id, String method, String reason) {
+        if ("initialize".equals(method) || !isAlive()) {
+            return;
         }
+        sendNotificationAsync("notifications/cancelled", Map.of("requestId", id, "reason", reason))
+                .whenComplete((ignored, error) -> {
+                    if (error != null) {
+                        log.debug("发送取消通知失败: id={}", id, error);
+                    }
+                });
+    }
+
+    /**
+     * 登记等待中的请求并安排截止时间
+     */
+    private <T> CompletableFuture<T> register(long id, String method, JavaType resultType) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        pendingRequests.put(id, new PendingRequest<>(resultType, future));
+
+        ScheduledFuture<?> deadline = DEADLINE_TIMER.schedule(
+                () -> expire(id, method), timeoutMs, TimeUnit.MILLISECONDS);
+        future.whenComplete((result, error) -> {
+            deadline.cancel(false);
+            if (future.isCancelled() && pendingRequests.remove(id) != null) {
+                cancelOnServer(id, method, error instanceof ToolTimeoutCancellationException ? "调用方超时" : "客户端取消");
+            }
+        });
+        return future;
     }
 
-    public List<Map<String, Object>> listTools() throws IOException {
-        // sendRequest 现在直接返回 result 字段，包含 tools 键
-        Map<String, Object> response = sendRequest("tools/list", Map.of());
-        log.debug("tools/list 响应: {}", response);
+    /**
+     * 同步发送请求，阻塞等待响应
+     */
+    private <T> T sendRequest(String method, Object params, JavaType resultType) throws IOException {
+        return await(sendRequestAsync(method, params, resultType));
+    }
 
-        Object tools = response.get("tools");
-        if (tools instanceof List) {
-            List<Map<String, Object>> toolList = (List<Map<String, Object>>) tools;
-            log.info("获取到 {} 个工具", toolList.size());
-            return toolList;
+    /**
+     * 等待 future 完成，并将异常还原为 IOException 或运行时异常
+     */
+    private static <T> T await(CompletableFuture<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("请求被中断", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof TimeoutException) {
+                throw new IOException("请求超时", cause);
+            }
+            if (cause instanceof IOException ioException) {
+                throw ioException;
+            }
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IOException(cause);
         }
+    }
 
-        log.warn("无法解析工具列表，响应: {}", response);
-        return Collections.emptyList();
+    private CompletableFuture<Void> sendNotificationAsync(String method, Object params) {
+        try {
+            return transport.send(objectMapper.writeValueAsString(JsonRpcRequest.notification(method, params)));
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
     }
 
+    @Override
+    public String getServerName() {
+        return serverName;
+    }
+
+    @Override
+    public int getPendingRequestCount() {
+        return pendingRequests.size();
+    }
+
+    @Override
+    public long getTimeoutCount() {
+        return timeoutCount.get();
+    }
+
+    @Override
+    public boolean isAlive() {
+        return running && transport.isAlive();
+    }
+
+    @Override
+    public List<McpTool> listTools() throws IOException {
+        return await(listToolsAsync());
+    }
+
+    /**
+     * 异步获取工具列表
+     */
+    @Override
+    public CompletableFuture<List<McpTool>> listToolsAsync() {
+        return this.<ListToolsResult>sendRequestAsync("tools/list", Map.of(), listToolsType)
+                .thenApply(result -> {
+                    log.info("获取到 {} 个工具", result.tools().size());
+                    return result.tools();
+                });
+    }
+
+    @Override
     public String callTool(String toolName, Map<String, Object> arguments) throws IOException {
+        return await(callToolAsync(toolName, arguments));
+    }
+
+    /**
+     * 异步调用工具
+     * 调用线程只负责写出请求，结果由响应处理线程完成
+     */
+    @Override
+    public CompletableFuture<String> callToolAsync(String toolName, Map<String, Object> arguments) {
+        CompletableFuture<CallToolResult> future = callToolResultAsync(toolName, arguments);
+        return McpFutures.propagateCancel(future.thenApply(CallToolResult::joinText), future);
+    }
+
+    @Override
+    public CompletableFuture<CallToolResult> callToolResultAsync(String toolName, Map<String, Object> arguments) {
         Map<String, Object> params = new HashMap<>();
         params.put("name", toolName);
         params.put("arguments", arguments);
+        String progressToken = attachProgressToken(toolName, params);
 
-        Map<String, Object> response = sendRequest("tools/call", params);
-        Object result = response.get("result");
-
-        if (result instanceof Map) {
-            Map<?, ?> resultMap = (Map<?, ?>) result;
-            Object content = resultMap.get("content");
-            if (content instanceof List) {
-                StringBuilder sb = new StringBuilder();
-                for (Object item : (List<?>) content) {
-                    if (item instanceof Map) {
-                        Object text = ((Map<?, ?>) item).get("text");
-                        if (text != null) {
-                            if (!sb.isEmpty()) sb.append("\n");
-                            sb.append(text);
-                        }
-                    }
-                }
-                return sb.toString();
+        CompletableFuture<CallToolResult> future = sendRequestAsync("tools/call", params, callToolType);
+        if (progressToken != null) {
+            future.whenComplete((result, error) -> progressRoutes.remove(progressToken));
+        }
+        return future;
+    }
+
+    /**
+     * 调用线程处于流式执行中时，为调用附带 progressToken 并登记进度转发目标
+     */
+    private String attachProgressToken(String toolName, Map<String, Object> params) {
+        Consumer<McpProgress> listener = McpProgressContext.current();
+        if (listener == null) {
+            return null;
+        }
+        String token = serverName + "-" + progressTokens.incrementAndGet();
+        progressRoutes.put(token, new ProgressRoute(toolName, listener));
+        params.put("_meta", Map.of("progressToken", token));
+        return token;
+    }
+
+    /**
+     * 批量调用工具
+     * 服务器支持批量请求时合并为一次写出，否则逐个发送；返回的 future 与 calls 一一对应
+     */
+    @Override
+    public List<CompletableFuture<String>> callToolsBatch(List<ToolCall> calls) {
+        if (!batchSupported || calls.size() < 2) {
+            return calls.stream()
+                    .map(call -> callToolAsync(call.name(), call.arguments()))
+                    .toList();
+        }
+
+        List<Map<String, Object>> paramsList = new ArrayList<>(calls.size());
+        List<String> tokens = new ArrayList<>(calls.size());
+        for (ToolCall call : calls) {
+            Map<String, Object> params = new HashMap<>();
+            params.put("name", call.name());
+            params.put("arguments", call.arguments());
+            tokens.add(attachProgressToken(call.name(), params));
+            paramsList.add(params);
+        }
+        List<CompletableFuture<CallToolResult>> futures = sendBatchAsync("tools/call", paramsList, callToolType);
+        List<CompletableFuture<String>> results = new ArrayList<>(futures.size());
+        for (int i = 0; i < futures.size(); i++) {
+            String progressToken = tokens.get(i);
+            if (progressToken != null) {
+                futures.get(i).whenComplete((result, error) -> progressRoutes.remove(progressToken));
+            }
+            results.add(McpFutures.propagateCancel(futures.get(i).thenApply(CallToolResult::joinText), futures.get(i)));
+        }
+        return results;
+    }
+
+    /**
+     * 服务器是否支持 JSON-RPC 批量请求
+     */
+    public boolean isBatchSupported() {
+        return batchSupported;
+    }
+
+    @Override
+    public List<McpResource> listResources() throws IOException {
+        ListResourcesResult result = sendRequest("resources/list", Map.of(), listResourcesType);
+        return result.resources();
+    }
+
+    @Override
+    public List<ResourceTemplate> listResourceTemplates() throws IOException {
+        ListResourceTemplatesResult result = sendRequest("resources/templates/list", Map.of(), listResourceTemplatesType);
+        return result.resourceTemplates();
+    }
+
+    @Override
+    public ResourceContent readResource(String uri) throws IOException {
+        return await(readResourceAsync(uri));
+    }
+
+    /**
+     * 异步读取资源内容
+     */
+    public CompletableFuture<ResourceContent> readResourceAsync(String uri) {
+        return sendRequestAsync("resources/read", Map.of("uri", uri), resourceContentType);
+    }
+
+    /**
+     * 按模板读取资源，模板变量的值做 URL 编码后替换
+     */
+    public ResourceContent readResourceTemplate(String uriTemplate, Map<String, Object> arguments) throws IOException {
+        return readResource(expandTemplate(uriTemplate, arguments));
+    }
+
+    /**
+     * 展开 URI 模板中的 {name} 变量（RFC 6570 简单展开）
+     */
+    public static String expandTemplate(String uriTemplate, Map<String, Object> arguments) {
+        StringBuilder sb = new StringBuilder(uriTemplate.length());
+        int i = 0;
+        while (i < uriTemplate.length()) {
+            int open = uriTemplate.indexOf('{', i);
+            int close = open < 0 ? -1 : uriTemplate.indexOf('}', open);
+            if (close < 0) {
+                sb.append(uriTemplate, i, uriTemplate.length());
+                break;
             }
-            return String.valueOf(content);
+            sb.append(uriTemplate, i, open);
+            Object value = arguments.get(uriTemplate.substring(open + 1, close));
+            if (value != null) {
+                sb.append(URLEncoder.encode(String.valueOf(value), StandardCharsets.UTF_8).replace("+", "%20"));
+            }
+            i = close + 1;
         }
+        return sb.toString();
+    }
 
-        return String.valueOf(result);
+    @Override
+    public void subscribeResource(String uri) throws IOException {
+        sendRequest("resources/subscribe", Map.of("uri", uri), jsonNodeType);
     }
 
+    @Override
+    public void unsubscribeResource(String uri) throws IOException {
+        sendRequest("resources/unsubscribe", Map.of("uri", uri), jsonNodeType);
+    }
+
+    @Override
+    public boolean isResourceSubscribeSupported() {
+        return resourceSubscribeSupported;
+    }
+
+    /**
+     * 获取单个工具的定义（JSON格式）
+     * 每次调用都会发起 tools/list，工具适配器应使用 McpToolIndex
+     */
     public String getToolSchema(String toolName) throws IOException {
-        List<Map<String, Object>> tools = listTools();
-        for (Map<String, Object> tool : tools) {
-            if (toolName.equals(tool.get("name"))) {
+        List<McpTool> tools = listTools();
+        for (McpTool tool : tools) {
+            if (toolName.equals(tool.name())) {
                 return objectMapper.writeValueAsString(tool);
             }
         }
@@ -297,20 +782,13 @@ public class McpClient implements AutoCloseable {
         // 先设置停止标志，让响应处理器线程优雅退出
         running = false;
 
-        try {
-            sendNotification("shutdown", Map.of());
-            sendNotification("notifications/exit", Map.of());
-        } catch (Exception e) {
-            log.error("关闭MCP连接时出错", e);
+        if (transport.ownsServer()) {
+            sendNotificationAsync("shutdown", Map.of());
+            sendNotificationAsync("notifications/exit", Map.of());
         }
 
-        try {
-            if (writer != null) writer.close();
-            if (reader != null) reader.close();
-            if (process != null) process.destroy();
-        } catch (IOException e) {
-            log.error("关闭MCP进程时出错", e);
-        }
+        transport.close();
+        failPendingRequests(new McpException(serverName, "连接已关闭"));
 
         log.info("MCP服务器 {} 已关闭", serverName);
     }
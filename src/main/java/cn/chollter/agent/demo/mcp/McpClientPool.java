@@ -0,0 +1,380 @@
+package cn.chollter.agent.demo.mcp;
+
+import cn.chollter.agent.demo.exception.McpException;
+import cn.chollter.agent.demo.mcp.dto.CallToolResult;
+import cn.chollter.agent.demo.mcp.dto.McpResource;
+import cn.chollter.agent.demo.mcp.dto.McpTool;
+import cn.chollter.agent.demo.mcp.dto.ResourceContent;
+import cn.chollter.agent.demo.mcp.dto.ResourceTemplate;
+import cn.chollter.agent.demo.mcp.dto.ToolCall;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+
+/**
+ * MCP客户端池
+ * 同一个 stdio 服务器最多启动 maxConnections 个进程：
+ * - 首个进程在创建时启动，其余进程在所有进程都有在途请求时按需后台启动
+ * - 每次调用分派给在途请求最少的进程
+ * - 空闲超过 idleTimeout 的进程被回收（至少保留一个）
+ * - 首个进程承载资源订阅，退出后由存活的进程接替并重新订阅
+ */
+@Slf4j
+public final class McpClientPool implements McpConnection {
+
+    /**
+     * 进程工厂，每次调用启动一个新的 MCP 服务器进程并完成握手
+     */
+    @FunctionalInterface
+    public interface ClientFactory {
+        McpClient create() throws IOException;
+    }
+
+    private static final class PooledClient {
+        final McpClient client;
+        volatile long lastUsedAt = System.currentTimeMillis();
+
+        PooledClient(McpClient client) {
+            this.client = client;
+        }
+    }
+
+    private static final String RESOURCE_UPDATED = "notifications/resources/updated";
+
+    private final String serverName;
+    private final ClientFactory factory;
+    private final int maxConnections;
+    private final long idleTimeoutMs;
+    private final List<PooledClient> clients = new CopyOnWriteArrayList<>();
+    private final List<BiConsumer<String, JsonNode>> notificationListeners = new CopyOnWriteArrayList<>();
+    // 经首个进程订阅的资源，首个进程被接替时在新进程上重新订阅
+    private final Set<String> subscriptions = ConcurrentHashMap.newKeySet();
+    // 首个进程的接替与空闲回收互斥，回收不会误删刚接替的进程
+    private final Object primaryLock = new Object();
+    private final AtomicBoolean growing = new AtomicBoolean(false);
+    private final AtomicLong retiredTimeoutCount = new AtomicLong();
+    private final ScheduledFuture<?> reaper;
+    private volatile boolean closed = false;
+
+    public McpClientPool(String serverName, ClientFactory factory, int maxConnections,
+                         Duration idleTimeout, ScheduledExecutorService scheduler) throws IOException {
+        this.serverName = serverName;
+        this.factory = factory;
+        this.maxConnections = Math.max(1, maxConnections);
+        this.idleTimeoutMs = idleTimeout.toMillis();
+
+        clients.add(new PooledClient(factory.create()));
+
+        if (this.maxConnections > 1 && idleTimeoutMs > 0) {
+            long period = Math.max(1000, idleTimeoutMs / 2);
+            this.reaper = scheduler.scheduleWithFixedDelay(this::retireIdleClients, period, period, TimeUnit.MILLISECONDS);
+        } else {
+            this.reaper = null;
+        }
+    }
+
+    /**
+     * 首个进程（用于需要单个客户端的场景，如编排器注册和资源订阅）
+     * 首个进程已退出而池中还有存活进程时先完成接替；没有存活进程时返回已退出的进程，由健康检查整体重启
+     *
+     * @throws McpException 池已关闭
+     */
+    public McpClient getPrimaryClient() {
+        PooledClient primary = primary();
+        return primary.client.isAlive() ? primary.client : promote(primary);
+    }
+
+    /**
+     * 池中第一个进程；遍历写时复制的快照，不会与并发的关闭交错出越界
+     */
+    private PooledClient primary() {
+        Iterator<PooledClient> iterator = clients.iterator();
+        if (closed || !iterator.hasNext()) {
+            throw new McpException(serverName, "MCP客户端池已关闭");
+        }
+        return iterator.next();
+    }
+
+    /**
+     * 用首个存活的进程接替已退出的首个进程
+     * 接替后在新进程上重新订阅原有资源，并对这些资源发出 notifications/resources/updated，
+     * 让监听方丢弃进程退出期间可能错过更新的缓存内容
+     */
+    private McpClient promote(PooledClient dead) {
+        PooledClient successor;
+        synchronized (primaryLock) {
+            PooledClient current = primary();
+            if (current != dead) {
+                return current.client;
+            }
+            successor = clients.stream().filter(pooled -> pooled.client.isAlive()).findFirst().orElse(null);
+            if (successor == null) {
+                return dead.client;
+            }
+            clients.remove(successor);
+            clients.set(0, successor);
+        }
+        log.warn("MCP服务器 {} 的首个进程已退出，由其他进程接替，重新订阅 {} 个资源", serverName, subscriptions.size());
+        dead.client.close();
+        retiredTimeoutCount.addAndGet(dead.client.getTimeoutCount());
+
+        for (String uri : subscriptions) {
+            try {
+                successor.client.subscribeResource(uri);
+            } catch (Exception e) {
+                log.warn("MCP服务器 {} 重新订阅资源失败: {}", serverName, uri, e);
+            }
+            JsonNode params = JsonNodeFactory.instance.objectNode().put("uri", uri);
+            notificationListeners.forEach(listener -> listener.accept(RESOURCE_UPDATED, params));
+        }
+        return successor.client;
+    }
+
+    /**
+     * 当前进程数
+     */
+    public int size() {
+        return clients.size();
+    }
+
+    /**
+     * 选择在途请求最少的可用进程；所有进程都繁忙且未达上限时，后台扩容
+     */
+    private McpClient acquire() {
+        PooledClient best = null;
+        int bestLoad = Integer.MAX_VALUE;
+        for (PooledClient pooled : clients) {
+            if (!pooled.client.isAlive()) {
+                continue;
+            }
+            int load = pooled.client.getPendingRequestCount();
+            if (load < bestLoad) {
+                best = pooled;
+                bestLoad = load;
+            }
+        }
+
+        if (best == null) {
+            throw new McpException(serverName, "没有可用的MCP进程");
+        }
+        if (bestLoad > 0 && clients.size() < maxConnections) {
+            grow();
+        }
+
+        best.lastUsedAt = System.currentTimeMillis();
+        return best.client;
+    }
+
+    /**
+     * 后台启动一个新进程，同一时间最多一个启动任务
+     */
+    private void grow() {
+        if (closed || !growing.compareAndSet(false, true)) {
+            return;
+        }
+        Thread starter = new Thread(() -> {
+            try {
+                if (clients.size() < maxConnections && !closed) {
+                    McpClient client = factory.create();
+                    if (closed) {
+                        client.close();
+                        return;
+                    }
+                    notificationListeners.forEach(client::addNotificationListener);
+                    clients.add(new PooledClient(client));
+                    log.info("MCP服务器 {} 扩容，当前进程数: {}", serverName, clients.size());
+                }
+            } catch (Exception e) {
+                log.error("MCP服务器 {} 扩容失败", serverName, e);
+            } finally {
+                growing.set(false);
+            }
+        });
+        starter.setDaemon(true);
+        starter.setName("MCP-PoolGrow-" + serverName);
+        starter.start();
+    }
+
+    /**
+     * 回收空闲进程和已退出的进程；首个进程始终保留，已退出时先由存活进程接替
+     */
+    private void retireIdleClients() {
+        try {
+            getPrimaryClient();
+        } catch (McpException e) {
+            // 池已关闭，回收任务随之取消
+            return;
+        }
+        long now = System.currentTimeMillis();
+        synchronized (primaryLock) {
+            List<PooledClient> snapshot = List.copyOf(clients);
+            for (PooledClient pooled : snapshot.subList(Math.min(1, snapshot.size()), snapshot.size())) {
+                boolean dead = !pooled.client.isAlive();
+                boolean idle = pooled.client.getPendingRequestCount() == 0
+                        && now - pooled.lastUsedAt > idleTimeoutMs;
+                if ((dead || idle) && clients.remove(pooled)) {
+                    log.info("回收MCP进程: {} ({})，当前进程数: {}", serverName, dead ? "已退出" : "空闲", clients.size());
+                    pooled.client.close();
+                    retiredTimeoutCount.addAndGet(pooled.client.getTimeoutCount());
+                }
+            }
+        }
+    }
+
+    @Override
+    public String getServerName() {
+        return serverName;
+    }
+
+    @Override
+    public List<McpTool> listTools() throws IOException {
+        return acquire().listTools();
+    }
+
+    @Override
+    public CompletableFuture<List<McpTool>> listToolsAsync() {
+        return acquire().listToolsAsync();
+    }
+
+    @Override
+    public String callTool(String toolName, Map<String, Object> arguments) throws IOException {
+        return acquire().callTool(toolName, arguments);
+    }
+
+    @Override
+    public CompletableFuture<String> callToolAsync(String toolName, Map<String, Object> arguments) {
+        return acquire().callToolAsync(toolName, arguments);
+    }
+
+    @Override
+    public CompletableFuture<CallToolResult> callToolResultAsync(String toolName, Map<String, Object> arguments) {
+        return acquire().callToolResultAsync(toolName, arguments);
+    }
+
+    /**
+     * 资源相关请求固定发往首个进程：订阅状态属于进程会话，首个进程不会被空闲回收，退出时由接替的进程重新订阅
+     */
+    @Override
+    public List<McpResource> listResources() throws IOException {
+        return getPrimaryClient().listResources();
+    }
+
+    @Override
+    public List<ResourceTemplate> listResourceTemplates() throws IOException {
+        return getPrimaryClient().listResourceTemplates();
+    }
+
+    @Override
+    public ResourceContent readResource(String uri) throws IOException {
+        return getPrimaryClient().readResource(uri);
+    }
+
+    @Override
+    public void subscribeResource(String uri) throws IOException {
+        getPrimaryClient().subscribeResource(uri);
+        subscriptions.add(uri);
+    }
+
+    @Override
+    public void unsubscribeResource(String uri) throws IOException {
+        subscriptions.remove(uri);
+        getPrimaryClient().unsubscribeResource(uri);
+    }
+
+    @Override
+    public boolean isResourceSubscribeSupported() {
+        return getPrimaryClient().isResourceSubscribeSupported();
+    }
+
+    /**
+     * 整批分派给同一个进程，保证一次写出
+     */
+    @Override
+    public List<CompletableFuture<String>> callToolsBatch(List<ToolCall> calls) {
+        return acquire().callToolsBatch(calls);
+    }
+
+    /**
+     * 通知监听器注册到池中所有进程，包括之后扩容启动的进程
+     * 同一通知可能由多个进程各发一次，监听器需要幂等
+     */
+    @Override
+    public void addNotificationListener(BiConsumer<String, JsonNode> listener) {
+        notificationListeners.add(listener);
+        for (PooledClient pooled : clients) {
+            pooled.client.addNotificationListener(listener);
+        }
+    }
+
+    @Override
+    public int getPendingRequestCount() {
+        int total = 0;
+        for (PooledClient pooled : clients) {
+            total += pooled.client.getPendingRequestCount();
+        }
+        return total;
+    }
+
+    /**
+     * 包含已回收进程的超时数
+     */
+    @Override
+    public long getTimeoutCount() {
+        long total = retiredTimeoutCount.get();
+        for (PooledClient pooled : clients) {
+            total += pooled.client.getTimeoutCount();
+        }
+        return total;
+    }
+
+    /**
+     * 首个进程（必要时由存活进程接替后）存活时可用；池中已没有存活进程时不可用
+     */
+    @Override
+    public boolean isAlive() {
+        if (closed) {
+            return false;
+        }
+        try {
+            return getPrimaryClient().isAlive();
+        } catch (McpException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        if (reaper != null) {
+            reaper.cancel(false);
+        }
+        List<PooledClient> snapshot;
+        synchronized (primaryLock) {
+            snapshot = List.copyOf(clients);
+            clients.clear();
+        }
+        for (PooledClient pooled : snapshot) {
+            try {
+                pooled.client.close();
+            } catch (Exception e) {
+                log.error("关闭MCP客户端时出错", e);
+            }
+        }
+    }
+}
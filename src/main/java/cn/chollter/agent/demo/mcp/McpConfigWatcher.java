@@ -0,0 +1,102 @@
+package cn.chollter.agent.demo.mcp;
+
+import cn.chollter.agent.demo.config.McpConfig;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.source.ConfigurationPropertySources;
+import org.springframework.boot.env.YamlPropertySourceLoader;
+import org.springframework.core.env.PropertySource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * MCP服务器配置文件监听
+ * 配置了 mcp.config-file 时定期检查文件修改时间，变化后按 Spring 的宽松绑定规则读取其中的 mcp.servers，
+ * 交给 McpManager 对比并只重新加载有变化的服务器；文件格式错误或缺少 mcp.servers（如写入到一半）时保留当前配置，
+ * 下次检查时重新读取。要移除全部服务器需显式写出空列表 servers: []
+ * 启动时的内容由 McpManager 在启动服务器前读取，这里只处理之后的修改
+ */
+@Slf4j
+@Component
+public class McpConfigWatcher {
+
+    private final McpManager mcpManager;
+    private final Path file;
+    private final ScheduledExecutorService scheduler;
+    private volatile FileTime lastModified;
+
+    public McpConfigWatcher(McpConfig mcpConfig, McpManager mcpManager) {
+        this.mcpManager = mcpManager;
+        if (!mcpConfig.isEnabled() || mcpConfig.getConfigFile() == null || mcpConfig.getConfigFile().isBlank()) {
+            this.file = null;
+            this.scheduler = null;
+            return;
+        }
+
+        this.file = Path.of(mcpConfig.getConfigFile()).toAbsolutePath();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "MCP-ConfigWatch");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.lastModified = modifiedTime(file);
+        long interval = Math.max(100, mcpConfig.getConfigWatchIntervalMs());
+        scheduler.scheduleWithFixedDelay(this::check, interval, interval, TimeUnit.MILLISECONDS);
+        log.info("监听MCP服务器配置文件: {}", file);
+    }
+
+    private void check() {
+        try {
+            if (!Files.exists(file)) {
+                return;
+            }
+            FileTime modified = Files.getLastModifiedTime(file);
+            if (modified.equals(lastModified)) {
+                return;
+            }
+            List<McpConfig.McpServer> servers = readServers(file);
+            lastModified = modified;
+            mcpManager.applyServerConfigs(servers);
+        } catch (Exception e) {
+            log.error("读取MCP服务器配置文件失败，保留当前配置: {}", file, e);
+        }
+    }
+
+    private static FileTime modifiedTime(Path file) {
+        try {
+            return Files.exists(file) ? Files.getLastModifiedTime(file) : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 读取配置文件中的 mcp.servers
+     * 文件为空、被截断或没有 mcp.servers 时抛出 IOException，不会被当作移除全部服务器
+     */
+    public static List<McpConfig.McpServer> readServers(Path file) throws IOException {
+        List<PropertySource<?>> sources = new YamlPropertySourceLoader()
+                .load("mcp-config-file", new FileSystemResource(file));
+        return new Binder(ConfigurationPropertySources.from(sources))
+                .bind("mcp.servers", Bindable.listOf(McpConfig.McpServer.class))
+                .orElseThrow(() -> new IOException("配置文件中没有 mcp.servers: " + file));
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package cn.chollter.agent.demo.mcp;
+
+import cn.chollter.agent.demo.mcp.dto.CallToolResult;
+import cn.chollter.agent.demo.mcp.dto.McpResource;
+import cn.chollter.agent.demo.mcp.dto.McpTool;
+import cn.chollter.agent.demo.mcp.dto.ResourceContent;
+import cn.chollter.agent.demo.mcp.dto.ResourceTemplate;
+import cn.chollter.agent.demo.mcp.dto.ToolCall;
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiConsumer;
+
+/**
+ * MCP连接
+ * 单个 McpClient 与按服务器聚合的 McpClientPool 的公共抽象，供工具适配器调用
+ */
+public interface McpConnection extends AutoCloseable {
+
+    /**
+     * 服务器名称
+     */
+    String getServerName();
+
+    /**
+     * 获取工具列表
+     */
+    List<McpTool> listTools() throws IOException;
+
+    /**
+     * 异步获取工具列表
+     */
+    CompletableFuture<List<McpTool>> listToolsAsync();
+
+    /**
+     * 调用工具
+     */
+    String callTool(String toolName, Map<String, Object> arguments) throws IOException;
+
+    /**
+     * 异步调用工具
+     */
+    CompletableFuture<String> callToolAsync(String toolName, Map<String, Object> arguments);
+
+    /**
+     * 异步调用工具，返回完整结果（含 isError 和各内容块），供需要区分工具级错误和落盘内容的调用方使用
+     */
+    CompletableFuture<CallToolResult> callToolResultAsync(String toolName, Map<String, Object> arguments);
+
+    /**
+     * 批量调用同一服务器的多个工具，返回的 future 与 calls 一一对应
+     */
+    List<CompletableFuture<String>> callToolsBatch(List<ToolCall> calls);
+
+    /**
+     * 获取资源列表
+     */
+    List<McpResource> listResources() throws IOException;
+
+    /**
+     * 获取资源模板列表
+     */
+    List<ResourceTemplate> listResourceTemplates() throws IOException;
+
+    /**
+     * 读取资源内容
+     */
+    ResourceContent readResource(String uri) throws IOException;
+
+    /**
+     * 订阅资源更新，资源变化时服务器发送 notifications/resources/updated
+     */
+    void subscribeResource(String uri) throws IOException;
+
+    /**
+     * 取消订阅资源更新
+     */
+    void unsubscribeResource(String uri) throws IOException;
+
+    /**
+     * 服务器是否支持资源订阅
+     */
+    boolean isResourceSubscribeSupported();
+
+    /**
+     * 注册服务器通知监听器（method, params），在响应处理线程上回调，不要阻塞
+     */
+    void addNotificationListener(BiConsumer<String, JsonNode> listener);
+
+    /**
+     * 当前等待响应的请求数
+     */
+    int getPendingRequestCount();
+
+    /**
+     * 累计超时的请求数
+     */
+    long getTimeoutCount();
+
+    /**
+     * 连接是否可用
+     */
+    boolean isAlive();
+
+    @Override
+    void close();
+}
@@ -0,0 +1,37 @@
+package cn.chollter.agent.demo.mcp;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * CompletableFuture 工具方法
+ */
+final class McpFutures {
+
+    private McpFutures() {
+    }
+
+    /**
+     * thenApply / whenComplete 派生出的 future 被取消时不会影响上游，
+     * 这里把取消传回上游，使 McpClient 能移除等待项并向服务器发送 notifications/cancelled
+     * 取消原因（如 {@link cn.chollter.agent.demo.exception.ToolTimeoutCancellationException}）原样传递
+     */
+    static <T> CompletableFuture<T> propagateCancel(CompletableFuture<T> derived, CompletableFuture<?> source) {
+        derived.whenComplete((result, error) -> {
+            if (derived.isCancelled()) {
+                cancel(source, error);
+            }
+        });
+        return derived;
+    }
+
+    /**
+     * 以 cause 中的取消异常取消 future，future 同样视为已取消（isCancelled 为 true）
+     */
+    static void cancel(CompletableFuture<?> future, Throwable cause) {
+        Throwable unwrapped = cause instanceof CompletionException && cause.getCause() != null ? cause.getCause() : cause;
+        future.completeExceptionally(unwrapped instanceof CancellationException cancellation
+                ? cancellation : new CancellationException());
+    }
+}
@@ -0,0 +1,41 @@
+package cn.chollter.agent.demo.mcp;
+
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * MCP 健康检查
+ * 任一服务器仍在启动时返回 OUT_OF_SERVICE，用于 readiness 探针；
+ * 启动失败或正在自动重启的服务器不影响整体状态，只在详情中体现
+ */
+@Component("mcp")
+public class McpHealthIndicator implements HealthIndicator {
+
+    private final McpManager mcpManager;
+
+    public McpHealthIndicator(McpManager mcpManager) {
+        this.mcpManager = mcpManager;
+    }
+
+    @Override
+    public Health health() {
+        Map<String, Object> servers = new LinkedHashMap<>();
+        mcpManager.getServerStatuses().forEach((name, status) -> {
+            Map<String, Object> detail = new LinkedHashMap<>();
+            detail.put("state", status.state());
+            detail.put("tools", status.toolCount());
+            detail.put("bootMs", status.bootDuration().toMillis());
+            if (status.error() != null) {
+                detail.put("error", status.error());
+            }
+            servers.put(name, detail);
+        });
+
+        Health.Builder builder = mcpManager.isBootCompleted() ? Health.up() : Health.outOfService();
+        return builder.withDetail("servers", servers).build();
+    }
+}
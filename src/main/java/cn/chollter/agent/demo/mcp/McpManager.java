@@ -1,19 +1,47 @@
 package cn.chollter.agent.demo.mcp;
 
 import cn.chollter.agent.demo.agent.Tool;
+import cn.chollter.agent.demo.agent.ToolExecutor;
 import cn.chollter.agent.demo.config.McpConfig;
+import cn.chollter.agent.demo.exception.McpException;
+import cn.chollter.agent.demo.mcp.content.ContentStore;
+import cn.chollter.agent.demo.mcp.dto.McpResource;
+import cn.chollter.agent.demo.mcp.dto.McpTool;
+import cn.chollter.agent.demo.mcp.dto.ResourceContent;
+import cn.chollter.agent.demo.mcp.dto.ResourceTemplate;
+import cn.chollter.agent.demo.mcp.dto.ToolCall;
+import cn.chollter.agent.demo.mcp.transport.SseTransport;
+import cn.chollter.agent.demo.mcp.transport.StderrRingBuffer;
+import cn.chollter.agent.demo.mcp.transport.StdioTransport;
+import cn.chollter.agent.demo.mcp.transport.StreamableHttpTransport;
+import cn.chollter.agent.demo.mcp.transport.UnixSocketTransport;
 import cn.chollter.agent.demo.mcp.orchestration.McpOrchestrator;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
 import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
-import java.util.stream.Collectors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * MCP管理器
@@ -24,22 +52,81 @@ import java.util.stream.Collectors;
 @Component
 public class McpManager {
 
-    private final Map<String, McpClient> clients = new ConcurrentHashMap<>();
-    private final List<Tool> mcpTools = new ArrayList<>();
+    private final Map<String, McpConnection> clients = new ConcurrentHashMap<>();
+    private final Map<String, McpToolIndex> toolIndexes = new ConcurrentHashMap<>();
+    // 工具注册表快照：读取无锁，注册和注销时在 registryLock 内构建新快照整体替换
+    private final AtomicReference<McpToolRegistry> toolRegistry = new AtomicReference<>(McpToolRegistry.EMPTY);
+    // 按名称索引的服务器配置，配置文件变化时整体替换
+    private volatile Map<String, McpConfig.McpServer> serverConfigs = Map.of();
+    private final Map<String, McpServerStatus> serverStatuses = new ConcurrentHashMap<>();
+    private final Map<String, McpCircuitBreaker> circuitBreakers = new ConcurrentHashMap<>();
+    private final Map<String, Integer> restartAttempts = new ConcurrentHashMap<>();
+    private final Set<String> pendingRestarts = ConcurrentHashMap.newKeySet();
+    private final Map<String, Object> reloadLocks = new ConcurrentHashMap<>();
+    private final Set<String> meteredServers = ConcurrentHashMap.newKeySet();
+    private final Map<String, StderrRingBuffer> stderrBuffers = new ConcurrentHashMap<>();
+    // 工具注册表快照的替换（含同名工具副本的登记）串行执行
+    private final Object registryLock = new Object();
+    private final McpToolRouter toolRouter;
+    // 可缓存工具的并发调用合并，所有服务器共用
+    private final SingleFlight<ToolCallKey, String> toolCallFlights = new SingleFlight<>();
+    // 注册表中的工具经由此执行器执行（ToolExecutionService），未设置时直接调用
+    private final AtomicReference<ToolExecutor> toolExecutor = new AtomicReference<>();
+    private final ToolResultCache toolResultCache;
+    private final ContentStore contentStore;
     private final McpConfig mcpConfig;
     private final ObjectMapper objectMapper;
     private final McpOrchestrator orchestrator;
+    private final MeterRegistry meterRegistry;
 
     // 工具列表缓存，10分钟过期，5分钟刷新
-    private final LoadingCache<String, List<Map<String, Object>>> toolCache;
+    private final LoadingCache<String, List<McpTool>> toolCache;
+
+    // 资源列表缓存，5分钟过期，3分钟刷新，资源列表变化通知时失效
+    private final LoadingCache<String, List<McpResource>> resourceListCache;
+
+    // 资源内容缓存：只缓存已订阅的资源，由 notifications/resources/updated 失效而不是按时间过期
+    private final Cache<ResourceKey, ResourceContent> resourceCache;
+    private final Set<ResourceKey> subscribedResources = ConcurrentHashMap.newKeySet();
+    private final Map<ResourceKey, Long> resourceVersions = new ConcurrentHashMap<>();
+
+    private record ResourceKey(String serverName, String uri) {
+    }
+
+    private static final String TOOLS_LIST_CHANGED = "notifications/tools/list_changed";
+    private static final String RESOURCES_LIST_CHANGED = "notifications/resources/list_changed";
+    private static final String RESOURCE_UPDATED = "notifications/resources/updated";
+    private static final Set<String> LOCAL_TOOL_TAGS = Set.of(LocalToolAdapter.HOST);
+    private static final AtomicInteger bootThreadCounter = new AtomicInteger();
+
+    // 服务器启动线程池：各服务器并行启动，不阻塞 Spring 容器
+    private final ExecutorService bootExecutor;
+
+    // 连接池维护任务（空闲进程回收）
+    private final ScheduledExecutorService maintenanceScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "MCP-Maintenance");
+        thread.setDaemon(true);
+        return thread;
+    });
 
     /**
      * 构造函数
      */
-    public McpManager(McpConfig mcpConfig, ObjectMapper objectMapper, McpOrchestrator orchestrator) {
+    public McpManager(McpConfig mcpConfig, ObjectMapper objectMapper, McpOrchestrator orchestrator,
+                      MeterRegistry meterRegistry, ToolResultCache toolResultCache) {
         this.mcpConfig = mcpConfig;
         this.objectMapper = objectMapper;
         this.orchestrator = orchestrator;
+        this.meterRegistry = meterRegistry;
+        this.toolResultCache = toolResultCache;
+
+        McpConfig.Content content = mcpConfig.getContent();
+        try {
+            this.contentStore = new ContentStore(content.getSpillThresholdChars(), content.getPreviewChars(),
+                    Duration.ofMinutes(content.getTtlMinutes()));
+        } catch (IOException e) {
+            throw new IllegalStateException("无法创建MCP内容临时目录", e);
+        }
 
         // 初始化工具列表缓存
         this.toolCache = com.github.benmanes.caffeine.cache.Caffeine.newBuilder()
@@ -48,9 +135,70 @@ public class McpManager {
                 .maximumSize(100)
                 .build(this::loadToolsFromServer);
 
+        this.resourceListCache = com.github.benmanes.caffeine.cache.Caffeine.newBuilder()
+                .expireAfterWrite(5, TimeUnit.MINUTES)
+                .refreshAfterWrite(3, TimeUnit.MINUTES)
+                .maximumSize(100)
+                .recordStats()
+                .build(this::loadResourcesFromServer);
+
+        // 容量和长时间未访问只用于限制内存，被淘汰的资源同时取消订阅
+        // 取消订阅是阻塞的 RPC，放到虚拟线程上执行，不占用缓存的维护线程
+        this.resourceCache = com.github.benmanes.caffeine.cache.Caffeine.newBuilder()
+                .maximumSize(1000)
+                .expireAfterAccess(30, TimeUnit.MINUTES)
+                .recordStats()
+                .removalListener((ResourceKey key, ResourceContent value, RemovalCause cause) -> {
+                    if (key != null && cause.wasEvicted()) {
+                        Thread.ofVirtual().name("MCP-Unsubscribe-" + key.serverName()).start(() -> unsubscribe(key));
+                    }
+                })
+                .build();
+
+        this.bootExecutor = Executors.newFixedThreadPool(Math.max(1, mcpConfig.getBootParallelism()), r -> {
+            Thread thread = new Thread(r, "MCP-Boot-" + bootThreadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        loadConfigFile();
+        this.serverConfigs = indexServers(mcpConfig.getServers());
+        this.toolRouter = new McpToolRouter(mcpConfig, name -> serverConfigs.get(name), clients::get,
+                this::isAvailable, maintenanceScheduler);
+
         initialize();
+
+        McpConfig.Supervisor supervisor = mcpConfig.getSupervisor();
+        if (mcpConfig.isEnabled() && supervisor.isEnabled()) {
+            maintenanceScheduler.scheduleWithFixedDelay(this::superviseServers,
+                    supervisor.getCheckIntervalMs(), supervisor.getCheckIntervalMs(), TimeUnit.MILLISECONDS);
+        }
     }
 
+    /**
+     * 配置了外部服务器配置文件时，以文件中的服务器列表为准；之后的修改由 McpConfigWatcher 应用
+     */
+    private void loadConfigFile() {
+        String configFile = mcpConfig.getConfigFile();
+        if (configFile == null || configFile.isBlank()) {
+            return;
+        }
+        Path file = Path.of(configFile);
+        if (!Files.exists(file)) {
+            log.warn("MCP服务器配置文件不存在，使用 application.yml 中的配置: {}", file.toAbsolutePath());
+            return;
+        }
+        try {
+            mcpConfig.setServers(new ArrayList<>(McpConfigWatcher.readServers(file)));
+            log.info("从配置文件加载了 {} 个MCP服务器: {}", mcpConfig.getServers().size(), file.toAbsolutePath());
+        } catch (Exception e) {
+            log.error("读取MCP服务器配置文件失败，使用 application.yml 中的配置: {}", file.toAbsolutePath(), e);
+        }
+    }
+
+    /**
+     * 在后台并行启动所有服务器，工具在各自服务器就绪后加入注册表
+     */
     private void initialize() {
         if (!mcpConfig.isEnabled()) {
             log.info("MCP未启用");
@@ -65,80 +213,395 @@ public class McpManager {
                 continue;
             }
 
-            try {
-                initializeServer(serverConfig);
-            } catch (Exception e) {
-                log.error("初始化MCP服务器失败: {}", serverConfig.getName(), e);
-            }
+            serverStatuses.put(serverConfig.getName(), McpServerStatus.starting());
+            bootExecutor.execute(() -> bootServer(serverConfig));
         }
+    }
 
-        log.info("MCP管理器初始化完成，共加载 {} 个工具", mcpTools.size());
+    /**
+     * 启动单个服务器并记录启动状态
+     */
+    private void bootServer(McpConfig.McpServer serverConfig) {
+        String serverName = serverConfig.getName();
+        McpServerStatus status = serverStatuses.getOrDefault(serverName, McpServerStatus.starting());
+        try {
+            int toolCount = initializeServer(serverConfig);
+            McpServerStatus ready = status.ready(toolCount);
+            serverStatuses.put(serverName, ready);
+            circuitBreaker(serverName).reset();
+            log.info("MCP服务器 {} 就绪，耗时 {} ms，当前共 {} 个工具",
+                    serverName, ready.bootDuration().toMillis(), toolRegistry.get().size());
+        } catch (Exception e) {
+            serverStatuses.put(serverName, status.failed(e.getMessage()));
+            log.error("初始化MCP服务器失败: {}", serverName, e);
+        }
     }
 
-    private void initializeServer(McpConfig.McpServer serverConfig) throws Exception {
+    /**
+     * 连接服务器并注册其工具
+     * 服务器已在运行时（重新加载、自动重启），旧连接和旧工具在新连接列出工具前继续提供服务，
+     * 随后在同一个注册表快照中替换该服务器的工具，再关闭旧连接
+     *
+     * @return 注册的工具数
+     */
+    private int initializeServer(McpConfig.McpServer serverConfig) throws Exception {
         log.info("连接MCP服务器: {} 类型: {}", serverConfig.getName(), serverConfig.getType());
 
-        if ("stdio".equals(serverConfig.getType())) {
-            List<String> command = new ArrayList<>();
-            command.add(serverConfig.getCommand());
-            if (serverConfig.getArgs() != null) {
-                command.addAll(serverConfig.getArgs());
+        String serverName = serverConfig.getName();
+        McpConnection client = new CircuitBreakingConnection(createConnection(serverConfig), circuitBreaker(serverName));
+
+        // 工具索引：所有适配器共享，工具列表变化时失效
+        McpToolIndex toolIndex = new McpToolIndex(serverName, () -> toolCache.get(serverName), objectMapper);
+        List<McpTool> tools;
+        try {
+            client.addNotificationListener((method, params) -> {
+                switch (method) {
+                    case TOOLS_LIST_CHANGED -> {
+                        log.info("服务器 {} 工具列表已变化，使缓存失效", serverName);
+                        toolCache.invalidate(serverName);
+                        toolIndex.invalidate();
+                    }
+                    case RESOURCES_LIST_CHANGED -> {
+                        log.info("服务器 {} 资源列表已变化，使缓存失效", serverName);
+                        resourceListCache.invalidate(serverName);
+                    }
+                    case RESOURCE_UPDATED -> {
+                        String uri = params != null ? params.path("uri").asText(null) : null;
+                        if (uri != null) {
+                            log.debug("服务器 {} 资源已更新: {}", serverName, uri);
+                            ResourceKey key = new ResourceKey(serverName, uri);
+                            // 运行在响应处理线程上，不能等待正在进行的读取；版本号使读取中途的更新不被旧内容覆盖
+                            if (subscribedResources.contains(key)) {
+                                resourceVersions.merge(key, 1L, Long::sum);
+                            }
+                            resourceCache.invalidate(key);
+                        }
+                    }
+                    default -> {
+                    }
+                }
+            });
+
+            // 直接从新连接获取工具列表：缓存和连接表在替换前仍属于旧连接
+            tools = client.listTools();
+        } catch (Exception e) {
+            client.close();
+            throw e;
+        }
+        log.info("服务器 {} 提供了 {} 个工具", serverName, tools.size());
+
+        McpConnection oldClient;
+        synchronized (registryLock) {
+            oldClient = clients.put(serverName, client);
+            toolIndexes.put(serverName, toolIndex);
+            toolCache.put(serverName, tools);
+            replaceServerTools(serverName, tools, toolIndex);
+        }
+        registerMetrics(serverName);
+
+        // 旧连接上的资源订阅随旧连接一起失效
+        if (oldClient != null) {
+            invalidateResources(serverName);
+            orchestrator.unregisterClient(serverName);
+        }
+        // 注册到编排器（编排器按单客户端工作，连接池注册其首个进程）
+        orchestrator.registerClient(serverName, primaryClient(client));
+        log.info("服务器 {} 优先级: {}, 权重: {}, 标签: {}, 最大连接数: {}",
+                serverName,
+                serverConfig.getPriority(),
+                serverConfig.getWeight(),
+                serverConfig.getTags(),
+                serverConfig.getMaxConnections());
+
+        if (oldClient != null) {
+            oldClient.close();
+        }
+        return tools.size();
+    }
+
+    /**
+     * 用服务器的新工具列表替换它在注册表中的工具，调用方持有 registryLock
+     * 其他服务器已提供的同名工具只登记为副本，由路由器选择；该服务器原来提供的工具保留对外名称，
+     * 新列表中不再提供但仍有其他副本的工具改由副本提供。整个替换在一个新快照中完成
+     */
+    private void replaceServerTools(String serverName, List<McpTool> tools, McpToolIndex toolIndex) {
+        McpToolRegistry current = toolRegistry.get();
+        Map<String, McpToolAdapter> previous = new HashMap<>();
+        for (Tool tool : current.byServer(serverName)) {
+            if (tool instanceof McpToolAdapter adapter) {
+                previous.put(adapter.getToolName(), adapter);
             }
+        }
+        toolRouter.removeServer(serverName);
 
-            McpClient client = new McpClient(
-                serverConfig.getName(),
-                command,
-                serverConfig.getEnv()
-            );
-
-            clients.put(serverConfig.getName(), client);
-            // 注册到编排器
-            orchestrator.registerClient(serverConfig.getName(), client);
-            log.info("服务器 {} 优先级: {}, 权重: {}, 标签: {}",
-                    serverConfig.getName(),
-                    serverConfig.getPriority(),
-                    serverConfig.getWeight(),
-                    serverConfig.getTags());
-
-            // 从缓存获取服务器提供的工具列表
-            List<Map<String, Object>> tools = getToolsFromCache(serverConfig.getName(), client);
-            log.info("服务器 {} 提供了 {} 个工具", serverConfig.getName(), tools.size());
-
-            // 为每个工具创建适配器
-            for (Map<String, Object> toolInfo : tools) {
-                String toolName = (String) toolInfo.get("name");
-                String description = (String) toolInfo.get("description");
-
-                McpToolAdapter adapter = new McpToolAdapter(
-                    serverConfig.getName(),
+        List<Tool> adapters = new ArrayList<>(tools.size());
+        for (McpTool toolInfo : tools) {
+            String toolName = toolInfo.name();
+            McpToolAdapter existing = previous.remove(toolName);
+            if (!toolRouter.addReplica(toolName, serverName) && existing == null) {
+                log.info("登记MCP工具副本: {}:{}，副本: {}", serverName, toolName, toolRouter.getReplicas(toolName));
+                continue;
+            }
+
+            adapters.add(new McpToolAdapter(
+                    existing != null ? existing.getName() : serverName + ":" + toolName,
+                    serverName,
                     toolName,
-                    description,
-                    client,
-                    objectMapper
-                );
+                    toolInfo.description(),
+                    toolSettings(serverName, toolName),
+                    toolRouter,
+                    toolCallFlights,
+                    toolResultCache,
+                    toolIndex,
+                    objectMapper,
+                    toolExecutor
+            ));
+            log.info("注册MCP工具: {}:{} - {}", serverName, toolName, toolInfo.description());
+        }
+        for (McpToolAdapter adapter : previous.values()) {
+            Tool rehomed = rehome(adapter);
+            if (rehomed != null) {
+                adapters.add(rehomed);
+            }
+        }
+        toolRegistry.set(current.withoutServer(serverName).withTools(adapters));
+    }
 
-                mcpTools.add(adapter);
-                log.info("注册MCP工具: {}:{} - {}", serverConfig.getName(), toolName, description);
+    /**
+     * 设置工具执行器：此后注册表中的 MCP 工具和本地工具被同步调用时都交给它执行
+     */
+    public void setToolExecutor(ToolExecutor executor) {
+        toolExecutor.set(executor);
+    }
+
+    /**
+     * 注册进程内的本地工具，与 MCP 工具一起提供
+     * 调用直接执行工具方法，可缓存的工具与 MCP 工具共用结果缓存和并发合并；
+     * 已注册的同名工具（包括已包装的适配器本身）跳过
+     *
+     * @return 新注册的工具数
+     */
+    public int registerLocalTools(Collection<? extends Tool> tools) {
+        synchronized (registryLock) {
+            McpToolRegistry current = toolRegistry.get();
+            List<LocalToolAdapter> adapters = new ArrayList<>();
+            for (Tool tool : tools) {
+                if (tool instanceof McpToolAdapter || tool instanceof LocalToolAdapter) {
+                    continue;
+                }
+                if (current.get(tool.getName()) != null) {
+                    log.warn("本地工具与已注册工具同名，跳过: {}", tool.getName());
+                    continue;
+                }
+                adapters.add(new LocalToolAdapter(tool, toolCallFlights, toolResultCache, toolExecutor));
+                log.info("注册本地工具: {} - {}", tool.getName(), tool.getDescription());
+            }
+            toolRegistry.set(current.withTools(adapters));
+            return adapters.size();
+        }
+    }
+
+    /**
+     * 服务器可以接收请求：连接存活且未熔断
+     */
+    private boolean isAvailable(String serverName) {
+        McpConnection client = clients.get(serverName);
+        return client != null && client.isAlive() && circuitBreaker(serverName).allowRequest();
+    }
+
+    /**
+     * 注销服务器的工具：该服务器名下的适配器若仍有其他副本，改挂到剩余的首个副本上继续提供
+     * 改挂后对外名称不变，模型和调用方看到的工具名不受服务器重启或重载影响；
+     * 服务器恢复后登记为副本，由路由器按得分分配流量
+     * 移除和改挂在同一个新快照里完成，读取方不会看到工具短暂消失
+     */
+    private void unregisterTools(String serverName) {
+        synchronized (registryLock) {
+            McpToolRegistry current = toolRegistry.get();
+            toolRouter.removeServer(serverName);
+
+            List<Tool> rehomed = new ArrayList<>();
+            for (Tool tool : current.byServer(serverName)) {
+                if (tool instanceof McpToolAdapter adapter) {
+                    Tool replacement = rehome(adapter);
+                    if (replacement != null) {
+                        rehomed.add(replacement);
+                    }
+                }
+            }
+            toolRegistry.set(current.withoutServer(serverName).withTools(rehomed));
+        }
+    }
+
+    /**
+     * 把适配器改挂到剩余的首个副本上，对外名称不变；没有其他副本时返回 null
+     */
+    private Tool rehome(McpToolAdapter adapter) {
+        List<String> remaining = toolRouter.getReplicas(adapter.getToolName());
+        if (remaining.isEmpty()) {
+            return null;
+        }
+        String owner = remaining.get(0);
+        McpToolIndex toolIndex = toolIndexes.get(owner);
+        if (toolIndex == null) {
+            return null;
+        }
+        log.info("MCP工具 {} 改由副本 {} 提供", adapter.getName(), owner);
+        return new McpToolAdapter(adapter.getName(), owner, adapter.getToolName(), adapter.getDescription(),
+                toolSettings(owner, adapter.getToolName()), toolRouter, toolCallFlights, toolResultCache,
+                toolIndex, objectMapper, toolExecutor);
+    }
+
+    /**
+     * 按服务器类型创建连接
+     * stdio：按 maxConnections 池化本地进程；sse / http：单个客户端，通过 HTTP 连接复用并发请求；
+     * unix：单个客户端连接共享的守护进程，并发请求在同一套接字上按 id 复用
+     */
+    private McpConnection createConnection(McpConfig.McpServer serverConfig) throws IOException {
+        String serverName = serverConfig.getName();
+        Duration connectTimeout = Duration.ofSeconds(serverConfig.getConnectTimeoutSeconds());
+        Duration requestTimeout = Duration.ofSeconds(serverConfig.getRequestTimeoutSeconds());
+
+        return switch (serverConfig.getType()) {
+            case "stdio" -> {
+                List<String> command = new ArrayList<>();
+                command.add(serverConfig.getCommand());
+                if (serverConfig.getArgs() != null) {
+                    command.addAll(serverConfig.getArgs());
+                }
+                // 重启后沿用同一个缓冲，保留崩溃前的输出
+                StderrRingBuffer stderr = stderrBuffers.computeIfAbsent(serverName,
+                        name -> new StderrRingBuffer(serverConfig.getStderrBufferLines()));
+                yield new McpClientPool(
+                    serverName,
+                    () -> new McpClient(serverName,
+                            new StdioTransport(serverName, command, serverConfig.getEnv(), stderr),
+                            requestTimeout, contentStore),
+                    serverConfig.getMaxConnections(),
+                    Duration.ofSeconds(serverConfig.getIdleTimeoutSeconds()),
+                    maintenanceScheduler
+                );
             }
-        } else if ("sse".equals(serverConfig.getType())) {
-            log.warn("SSE类型的MCP服务器暂不支持: {}", serverConfig.getName());
+            case "sse" -> new McpClient(serverName, new SseTransport(
+                    serverName, URI.create(serverConfig.getUrl()), serverConfig.getHeaders(), connectTimeout), requestTimeout, contentStore);
+            case "http", "streamable-http" -> new McpClient(serverName, new StreamableHttpTransport(
+                    serverName, URI.create(serverConfig.getUrl()), serverConfig.getHeaders(), connectTimeout), requestTimeout, contentStore);
+            case "unix" -> {
+                if (serverConfig.getSocketPath() == null || serverConfig.getSocketPath().isBlank()) {
+                    throw new McpException(serverName, "unix类型的服务器需要配置 socket-path");
+                }
+                yield new McpClient(serverName, new UnixSocketTransport(
+                        serverName, Path.of(serverConfig.getSocketPath()), connectTimeout), requestTimeout, contentStore);
+            }
+            default -> throw new McpException(serverName, "不支持的服务器类型: " + serverConfig.getType());
+        };
+    }
+
+    /**
+     * 注册服务器级指标，按名称读取当前连接，重新加载后指标继续有效
+     */
+    private void registerMetrics(String serverName) {
+        if (!meteredServers.add(serverName)) {
+            return;
+        }
+        Gauge.builder("mcp.requests.pending", clients,
+                        map -> Optional.ofNullable(map.get(serverName)).map(McpConnection::getPendingRequestCount).orElse(0))
+                .description("等待MCP服务器响应的请求数")
+                .tag("server", serverName)
+                .register(meterRegistry);
+        FunctionCounter.builder("mcp.requests.timeout", clients,
+                        map -> Optional.ofNullable(map.get(serverName)).map(McpConnection::getTimeoutCount).orElse(0L))
+                .description("超时并被取消的MCP请求数")
+                .tag("server", serverName)
+                .register(meterRegistry);
+    }
+
+    private static McpClient primaryClient(McpConnection connection) {
+        if (connection instanceof CircuitBreakingConnection breaking) {
+            return primaryClient(breaking.getDelegate());
         }
+        return connection instanceof McpClientPool pool ? pool.getPrimaryClient() : (McpClient) connection;
     }
 
     /**
      * 获取所有MCP工具
+     * 在 {@link McpToolScope} 范围内调用时只返回范围内的工具
      */
     public List<Tool> getMcpTools() {
-        return Collections.unmodifiableList(mcpTools);
+        ToolSelector selector = McpToolScope.current();
+        if (selector == null || selector.isEmpty()) {
+            return toolRegistry.get().tools();
+        }
+        return getMcpTools(selector);
+    }
+
+    /**
+     * 获取匹配指定范围的MCP工具
+     * 工具的标签为提供该工具的所有副本服务器的标签，本地工具带有 {@value LocalToolAdapter#HOST} 标签
+     */
+    public List<Tool> getMcpTools(ToolSelector selector) {
+        List<Tool> tools = toolRegistry.get().tools();
+        if (selector.isEmpty()) {
+            return tools;
+        }
+        List<Tool> selected = new ArrayList<>();
+        for (Tool tool : tools) {
+            if (tool instanceof McpToolAdapter adapter) {
+                Set<String> tags = new HashSet<>();
+                for (String server : toolRouter.getReplicas(adapter.getToolName())) {
+                    tags.addAll(serverTags(server));
+                }
+                if (selector.matches(tool.getName(), adapter.getToolName(), tags)) {
+                    selected.add(tool);
+                }
+            } else if (selector.matches(tool.getName(), tool.getName(), LOCAL_TOOL_TAGS)) {
+                selected.add(tool);
+            }
+        }
+        return Collections.unmodifiableList(selected);
+    }
+
+    /**
+     * 确定请求的工具范围：请求显式指定的 tags / tools 优先，否则使用 API Key 的默认标签
+     */
+    public ToolSelector resolveToolSelector(Collection<String> tags, Collection<String> tools, String apiKey) {
+        ToolSelector requested = ToolSelector.of(tags, tools);
+        if (!requested.isEmpty() || apiKey == null) {
+            return requested;
+        }
+        Set<String> defaultTags = mcpConfig.getApiKeyTags().get(apiKey);
+        return defaultTags == null ? requested : new ToolSelector(defaultTags, null);
+    }
+
+    private Set<String> serverTags(String serverName) {
+        McpConfig.McpServer server = serverConfigs.get(serverName);
+        return server != null && server.getTags() != null ? server.getTags() : Set.of();
+    }
+
+    /**
+     * 按注册名（server:tool）获取工具，不存在时返回 null
+     */
+    public Tool getTool(String name) {
+        return toolRegistry.get().get(name);
     }
 
     /**
      * 按服务器名称获取工具
      */
     public List<Tool> getToolsByServer(String serverName) {
-        return mcpTools.stream()
-            .filter(tool -> tool.getName().startsWith(serverName + ":"))
-            .collect(Collectors.toList());
+        return toolRegistry.get().byServer(serverName);
+    }
+
+    /**
+     * 批量调用同一服务器的多个工具
+     * 服务器支持 JSON-RPC 批量请求时一次写出，返回的 future 与 calls 一一对应
+     */
+    public List<CompletableFuture<String>> callToolsBatch(String serverName, List<ToolCall> calls) {
+        McpConnection client = clients.get(serverName);
+        if (client == null) {
+            throw new McpException(serverName, "服务器未连接");
+        }
+        return client.callToolsBatch(calls);
     }
 
     /**
@@ -150,35 +613,202 @@ public class McpManager {
 
     /**
      * 重新加载指定服务器
+     * 已启动过的服务器记为重启中而不是启动中，不影响就绪状态；新连接就绪前旧连接继续提供工具
      */
     public void reloadServer(String serverName) {
+        reload(serverName, serverStatuses.containsKey(serverName)
+                ? McpServerStatus.restarting("重新加载") : McpServerStatus.starting());
+    }
+
+    /**
+     * 重新启动服务器并替换旧连接，同一服务器的重新加载串行执行
+     */
+    private void reload(String serverName, McpServerStatus status) {
+        synchronized (reloadLocks.computeIfAbsent(serverName, name -> new Object())) {
+            doReload(serverName, status);
+        }
+    }
+
+    private void doReload(String serverName, McpServerStatus status) {
         log.info("重新加载MCP服务器: {}", serverName);
-        // 移除旧的工具
-        mcpTools.removeIf(tool -> tool.getName().startsWith(serverName + ":"));
+        McpConfig.McpServer serverConfig = serverConfigs.get(serverName);
+        if (serverConfig == null || !serverConfig.isEnabled()) {
+            removeServer(serverName);
+            serverStatuses.remove(serverName);
+            return;
+        }
 
-        // 清除缓存
+        serverStatuses.put(serverName, status);
+        bootServer(serverConfig);
+        McpServerStatus result = serverStatuses.get(serverName);
+        if (result != null && result.state() == McpServerStatus.State.FAILED) {
+            // 新连接启动失败：旧连接（通常已不可用）不再保留，其工具改由副本提供或移除
+            removeServer(serverName);
+        }
+    }
+
+    /**
+     * 注销工具、清除缓存并关闭连接
+     */
+    private void removeServer(String serverName) {
+        unregisterTools(serverName);
         toolCache.invalidate(serverName);
+        toolIndexes.remove(serverName);
+        invalidateResources(serverName);
 
-        // 关闭旧连接
-        McpClient oldClient = clients.remove(serverName);
+        McpConnection oldClient = clients.remove(serverName);
         if (oldClient != null) {
             oldClient.close();
         }
-
-        // 从编排器注销
         orchestrator.unregisterClient(serverName);
+    }
 
-        // 重新初始化
-        Optional<McpConfig.McpServer> serverConfig = mcpConfig.getServers().stream()
-                .filter(s -> s.getName().equals(serverName))
-                .findFirst();
+    /**
+     * 应用新的服务器列表（配置文件变化时调用）
+     * 与当前配置逐个比较：新增、删除和配置有变化的服务器各自重新加载，未变化的服务器不受影响；
+     * 每次重新加载都构建新的工具注册表快照整体替换
+     */
+    public synchronized void applyServerConfigs(List<McpConfig.McpServer> servers) {
+        Map<String, McpConfig.McpServer> previous = serverConfigs;
+        Map<String, McpConfig.McpServer> next = indexServers(servers);
 
-        if (serverConfig.isPresent() && serverConfig.get().isEnabled()) {
-            try {
-                initializeServer(serverConfig.get());
-            } catch (Exception e) {
-                log.error("重新加载MCP服务器失败: {}", serverName, e);
+        Set<String> changed = new LinkedHashSet<>();
+        for (String name : previous.keySet()) {
+            if (!next.containsKey(name)) {
+                changed.add(name);
+            }
+        }
+        next.forEach((name, server) -> {
+            if (!server.equals(previous.get(name))) {
+                changed.add(name);
+            }
+        });
+
+        mcpConfig.setServers(new ArrayList<>(servers));
+        serverConfigs = next;
+        if (changed.isEmpty()) {
+            return;
+        }
+
+        log.info("MCP服务器配置已变化，重新加载: {}", changed);
+        for (String name : changed) {
+            bootExecutor.execute(() -> reloadServer(name));
+        }
+    }
+
+    private static Map<String, McpConfig.McpServer> indexServers(List<McpConfig.McpServer> servers) {
+        Map<String, McpConfig.McpServer> byName = new LinkedHashMap<>();
+        for (McpConfig.McpServer server : servers) {
+            byName.putIfAbsent(server.getName(), server);
+        }
+        return Collections.unmodifiableMap(byName);
+    }
+
+    /**
+     * servers[].tools 中指定工具的配置，未配置时返回 null
+     */
+    private McpConfig.ToolSettings toolSettings(String serverName, String toolName) {
+        McpConfig.McpServer server = serverConfigs.get(serverName);
+        return server != null ? server.getTools().get(toolName) : null;
+    }
+
+    /**
+     * 获取工具结果大内容存储，用于按句柄读取落盘的完整内容
+     */
+    public ContentStore getContentStore() {
+        return contentStore;
+    }
+
+    /**
+     * 获取各 stdio 服务器的 stderr 缓冲
+     */
+    public Map<String, StderrRingBuffer> getStderrBuffers() {
+        return Collections.unmodifiableMap(stderrBuffers);
+    }
+
+    /**
+     * 获取各服务器的启动状态
+     */
+    public Map<String, McpServerStatus> getServerStatuses() {
+        return Collections.unmodifiableMap(serverStatuses);
+    }
+
+    /**
+     * 是否所有已启用的服务器都已完成启动（就绪或失败）
+     */
+    public boolean isBootCompleted() {
+        return serverStatuses.values().stream()
+                .noneMatch(status -> status.state() == McpServerStatus.State.STARTING);
+    }
+
+    // ==================== 故障监控 ====================
+
+    private McpCircuitBreaker circuitBreaker(String serverName) {
+        return circuitBreakers.computeIfAbsent(serverName,
+                name -> new McpCircuitBreaker(mcpConfig.getSupervisor().getTimeoutThreshold()));
+    }
+
+    /**
+     * 检查各服务器：进程退出、连接断开、连续超时或启动失败时打开熔断并安排重启
+     */
+    private void superviseServers() {
+        for (McpConfig.McpServer serverConfig : serverConfigs.values()) {
+            String serverName = serverConfig.getName();
+            McpServerStatus status = serverStatuses.get(serverName);
+            if (!serverConfig.isEnabled() || status == null || pendingRestarts.contains(serverName)) {
+                continue;
+            }
+
+            String reason = switch (status.state()) {
+                case STARTING, RESTARTING -> null;
+                case FAILED -> "启动失败: " + status.error();
+                case READY -> {
+                    McpConnection client = clients.get(serverName);
+                    McpCircuitBreaker breaker = circuitBreaker(serverName);
+                    if (client == null || !client.isAlive()) {
+                        yield "进程已退出或连接已断开";
+                    }
+                    if (!breaker.allowRequest()) {
+                        yield "连续超时 " + breaker.getConsecutiveTimeouts() + " 次";
+                    }
+                    yield null;
+                }
+            };
+            if (reason != null) {
+                scheduleRestart(serverName, reason);
+            }
+        }
+    }
+
+    /**
+     * 按指数退避安排重启，重启期间熔断保持打开，调用立即失败
+     */
+    private void scheduleRestart(String serverName, String reason) {
+        McpConfig.Supervisor supervisor = mcpConfig.getSupervisor();
+        circuitBreaker(serverName).open();
+        int attempt = restartAttempts.merge(serverName, 1, Integer::sum);
+        long delay = Math.min(supervisor.getMaxBackoffMs(),
+                supervisor.getInitialBackoffMs() << Math.min(attempt - 1, 20));
+
+        log.warn("MCP服务器 {} 异常（{}），{} ms 后第 {} 次重启", serverName, reason, delay, attempt);
+        if (serverStatuses.get(serverName).state() == McpServerStatus.State.READY) {
+            serverStatuses.put(serverName, McpServerStatus.restarting(reason));
+        }
+        pendingRestarts.add(serverName);
+        maintenanceScheduler.schedule(() -> bootExecutor.execute(() -> restartServer(serverName, reason)),
+                delay, TimeUnit.MILLISECONDS);
+    }
+
+    private void restartServer(String serverName, String reason) {
+        try {
+            reload(serverName, McpServerStatus.restarting(reason));
+            McpServerStatus status = serverStatuses.get(serverName);
+            if (status != null && status.state() == McpServerStatus.State.READY) {
+                restartAttempts.remove(serverName);
+                log.info("MCP服务器 {} 已自动重启", serverName);
             }
+        } finally {
+            pendingRestarts.remove(serverName);
         }
     }
 
@@ -186,7 +816,16 @@ public class McpManager {
      * 获取编排器统计信息
      */
     public Map<String, Object> getOrchestrationStats() {
-        return orchestrator.getStats();
+        Map<String, Object> stats = new LinkedHashMap<>(orchestrator.getStats());
+        stats.put("routing", toolRouter.getStats());
+        Map<String, Object> localTools = new LinkedHashMap<>();
+        for (Tool tool : toolRegistry.get().byServer(LocalToolAdapter.HOST)) {
+            if (tool instanceof LocalToolAdapter adapter) {
+                localTools.put(adapter.getName(), adapter.getInvocationCount());
+            }
+        }
+        stats.put("localTools", localTools);
+        return stats;
     }
 
     // ==================== 缓存相关方法 ====================
@@ -194,8 +833,8 @@ public class McpManager {
     /**
      * 从服务器加载工具列表（用于缓存加载）
      */
-    private List<Map<String, Object>> loadToolsFromServer(String serverName) {
-        McpClient client = clients.get(serverName);
+    private List<McpTool> loadToolsFromServer(String serverName) {
+        McpConnection client = clients.get(serverName);
         if (client == null) {
             log.warn("服务器 {} 未连接", serverName);
             return Collections.emptyList();
@@ -203,18 +842,159 @@ public class McpManager {
 
         try {
             log.debug("从服务器 {} 加载工具列表", serverName);
-            return client.listTools();
+            List<McpTool> tools = client.listTools();
+            // 工具列表刷新后，索引下次访问时按新列表重建
+            McpToolIndex index = toolIndexes.get(serverName);
+            if (index != null) {
+                index.invalidate();
+            }
+            return tools;
         } catch (Exception e) {
             log.error("加载工具列表失败: {}", serverName, e);
             return Collections.emptyList();
         }
     }
 
+    // ==================== 资源相关方法 ====================
+
+    private McpConnection requireClient(String serverName) {
+        McpConnection client = clients.get(serverName);
+        if (client == null) {
+            throw new McpException(serverName, "服务器未连接");
+        }
+        return client;
+    }
+
+    /**
+     * 从服务器加载资源列表（用于缓存加载）
+     */
+    private List<McpResource> loadResourcesFromServer(String serverName) {
+        McpConnection client = clients.get(serverName);
+        if (client == null) {
+            return Collections.emptyList();
+        }
+        try {
+            return client.listResources();
+        } catch (Exception e) {
+            log.error("加载资源列表失败: {}", serverName, e);
+            return Collections.emptyList();
+        }
+    }
+
+    /**
+     * 获取指定服务器的资源
+     */
+    public List<McpResource> getResources(String serverName) {
+        return resourceListCache.get(serverName);
+    }
+
+    /**
+     * 获取所有服务器的资源
+     */
+    public Map<String, List<McpResource>> getAllResources() {
+        Map<String, List<McpResource>> result = new HashMap<>();
+        for (String serverName : clients.keySet()) {
+            result.put(serverName, getResources(serverName));
+        }
+        return result;
+    }
+
+    /**
+     * 读取资源
+     * 服务器支持订阅时，首次读取先订阅再读取并缓存，之后直接返回缓存，收到更新通知后重新读取；
+     * 不支持订阅的服务器无法得知内容变化，每次都从服务器读取
+     */
+    public ResourceContent readResource(String serverName, String uri) {
+        McpConnection client = requireClient(serverName);
+        try {
+            if (!client.isResourceSubscribeSupported()) {
+                return client.readResource(uri);
+            }
+            // 在缓存外读取：读取要等待响应处理线程送达结果，而该线程处理更新通知时会使缓存项失效，
+            // 若在缓存的计算过程中读取，两者互相等待直到超时
+            ResourceKey key = new ResourceKey(serverName, uri);
+            ResourceContent cached = resourceCache.getIfPresent(key);
+            if (cached != null) {
+                return cached;
+            }
+            // 先订阅后读取，读取期间发生的更新不会被遗漏
+            if (subscribedResources.add(key)) {
+                try {
+                    client.subscribeResource(uri);
+                } catch (IOException e) {
+                    subscribedResources.remove(key);
+                    throw e;
+                }
+            }
+            Long version = resourceVersions.get(key);
+            ResourceContent content = client.readResource(uri);
+            // 读取期间收到更新通知或订阅已失效（如重连）时不缓存
+            if (subscribedResources.contains(key) && Objects.equals(version, resourceVersions.get(key))) {
+                resourceCache.put(key, content);
+            }
+            return content;
+        } catch (IOException e) {
+            throw new McpException(serverName, "读取资源失败: " + uri + " - " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 获取资源模板
+     */
+    public List<ResourceTemplate> getResourceTemplates(String serverName) {
+        try {
+            return requireClient(serverName).listResourceTemplates();
+        } catch (IOException e) {
+            throw new McpException(serverName, "获取资源模板失败: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 使用模板读取资源，展开后的 URI 与普通资源共用缓存
+     */
+    public ResourceContent readResourceTemplate(String serverName, String uriTemplate, Map<String, Object> arguments) {
+        return readResource(serverName, McpClient.expandTemplate(uriTemplate, arguments));
+    }
+
+    private void unsubscribe(ResourceKey key) {
+        if (!subscribedResources.remove(key)) {
+            return;
+        }
+        resourceVersions.remove(key);
+        McpConnection client = clients.get(key.serverName());
+        if (client == null) {
+            return;
+        }
+        try {
+            client.unsubscribeResource(key.uri());
+        } catch (Exception e) {
+            log.debug("取消订阅资源失败: {}:{}", key.serverName(), key.uri(), e);
+        }
+    }
+
+    private void invalidateResources(String serverName) {
+        resourceListCache.invalidate(serverName);
+        subscribedResources.removeIf(key -> key.serverName().equals(serverName));
+        resourceVersions.keySet().removeIf(key -> key.serverName().equals(serverName));
+        resourceCache.asMap().keySet().removeIf(key -> key.serverName().equals(serverName));
+    }
+
+    /**
+     * 刷新指定服务器的资源缓存
+     */
+    public void refreshResourceCache(String serverName) {
+        log.info("刷新服务器 {} 的资源缓存", serverName);
+        resourceListCache.refresh(serverName);
+        resourceCache.asMap().keySet().removeIf(key -> key.serverName().equals(serverName));
+    }
+
     /**
-     * 从缓存获取工具列表，如果缓存不存在则加载
+     * 清除所有资源缓存
      */
-    private List<Map<String, Object>> getToolsFromCache(String serverName, McpClient client) {
-        return toolCache.get(serverName);
+    public void clearResourceCache() {
+        log.info("清除所有资源缓存");
+        resourceListCache.invalidateAll();
+        resourceCache.invalidateAll();
     }
 
     /**
@@ -243,18 +1023,39 @@ public class McpManager {
             "hitRate", toolCache.stats().hitRate(),
             "missRate", toolCache.stats().missRate()
         ));
+        stats.put("resourceListCache", Map.of(
+            "size", resourceListCache.estimatedSize(),
+            "hitRate", resourceListCache.stats().hitRate(),
+            "missRate", resourceListCache.stats().missRate()
+        ));
+        stats.put("resourceCache", Map.of(
+            "size", resourceCache.estimatedSize(),
+            "subscribed", subscribedResources.size(),
+            "hitRate", resourceCache.stats().hitRate(),
+            "missRate", resourceCache.stats().missRate()
+        ));
+        stats.put("toolCallSingleFlight", Map.of(
+            "inFlight", toolCallFlights.getInFlight(),
+            "executions", toolCallFlights.getExecutions(),
+            "shared", toolCallFlights.getShared()
+        ));
+        stats.put("toolResults", toolResultCache.getStats());
         return stats;
     }
 
     @PreDestroy
     public void destroy() {
         log.info("关闭MCP管理器");
-        mcpTools.clear();
+        toolRegistry.set(McpToolRegistry.EMPTY);
 
         // 清理缓存
         toolCache.invalidateAll();
+        toolIndexes.clear();
+        resourceListCache.invalidateAll();
+        subscribedResources.clear();
+        resourceCache.invalidateAll();
 
-        for (McpClient client : clients.values()) {
+        for (McpConnection client : clients.values()) {
             try {
                 client.close();
             } catch (Exception e) {
@@ -263,5 +1064,8 @@ public class McpManager {
         }
 
         clients.clear();
+        contentStore.close();
+        bootExecutor.shutdownNow();
+        maintenanceScheduler.shutdownNow();
     }
 }
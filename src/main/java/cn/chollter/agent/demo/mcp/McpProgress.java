@@ -0,0 +1,13 @@
+package cn.chollter.agent.demo.mcp;
+
+/**
+ * MCP工具执行进度（来自 notifications/progress）
+ *
+ * @param server   服务器名称
+ * @param tool     工具名称
+ * @param progress 当前进度
+ * @param total    总量，未知时为 null
+ * @param message  进度说明，可能为 null
+ */
+public record McpProgress(String server, String tool, double progress, Double total, String message) {
+}
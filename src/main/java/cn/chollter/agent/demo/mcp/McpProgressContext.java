@@ -0,0 +1,40 @@
+package cn.chollter.agent.demo.mcp;
+
+import io.micrometer.context.ContextRegistry;
+import reactor.util.context.Context;
+
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * 工具进度的接收方
+ * 流式执行时 AgentService 通过 Reactor Context 写入当前执行的接收方，
+ * 开启自动上下文传播（spring.reactor.context-propagation=auto）后，在执行工具的线程上可通过 current() 取到；
+ * McpClient 发起 tools/call 时据此附带 progressToken，并把进度通知转发给该接收方
+ */
+public final class McpProgressContext {
+
+    private static final String KEY = "mcp.progress";
+    private static final ThreadLocal<Consumer<McpProgress>> CURRENT = new ThreadLocal<>();
+
+    static {
+        ContextRegistry.getInstance().registerThreadLocalAccessor(KEY, CURRENT::get, CURRENT::set, CURRENT::remove);
+    }
+
+    private McpProgressContext() {
+    }
+
+    /**
+     * 当前线程上的进度接收方，不在流式执行中时为 null
+     */
+    public static Consumer<McpProgress> current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * 用于 contextWrite，把进度接收方写入 Reactor Context
+     */
+    public static Function<Context, Context> with(Consumer<McpProgress> listener) {
+        return context -> context.put(KEY, listener);
+    }
+}
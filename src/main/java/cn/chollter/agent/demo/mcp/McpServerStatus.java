@@ -0,0 +1,46 @@
+package cn.chollter.agent.demo.mcp;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * MCP服务器启动状态
+ *
+ * @param state     当前状态
+ * @param startedAt 开始启动时间
+ * @param readyAt   就绪（或失败）时间，启动中为 null
+ * @param toolCount 已注册的工具数
+ * @param error     失败或重启原因
+ */
+public record McpServerStatus(State state, Instant startedAt, Instant readyAt, int toolCount, String error) {
+
+    public enum State {
+        STARTING,  // 启动中
+        READY,     // 已就绪
+        FAILED,    // 启动失败
+        RESTARTING // 崩溃后自动重启中
+    }
+
+    public static McpServerStatus starting() {
+        return new McpServerStatus(State.STARTING, Instant.now(), null, 0, null);
+    }
+
+    public McpServerStatus ready(int toolCount) {
+        return new McpServerStatus(State.READY, startedAt, Instant.now(), toolCount, null);
+    }
+
+    public McpServerStatus failed(String error) {
+        return new McpServerStatus(State.FAILED, startedAt, Instant.now(), 0, error);
+    }
+
+    public static McpServerStatus restarting(String reason) {
+        return new McpServerStatus(State.RESTARTING, Instant.now(), null, 0, reason);
+    }
+
+    /**
+     * 启动耗时，启动中时为已经过的时间
+     */
+    public Duration bootDuration() {
+        return Duration.between(startedAt, readyAt != null ? readyAt : Instant.now());
+    }
+}
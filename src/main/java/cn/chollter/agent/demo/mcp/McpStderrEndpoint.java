@@ -0,0 +1,49 @@
+package cn.chollter.agent.demo.mcp;
+
+import cn.chollter.agent.demo.mcp.transport.StderrRingBuffer;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * MCP服务器 stderr 查看端点
+ * GET /actuator/mcpstderr 返回各服务器的行数统计，GET /actuator/mcpstderr/{server} 返回最近的 stderr 输出
+ */
+@Component
+@Endpoint(id = "mcpstderr")
+public class McpStderrEndpoint {
+
+    private final McpManager mcpManager;
+
+    public McpStderrEndpoint(McpManager mcpManager) {
+        this.mcpManager = mcpManager;
+    }
+
+    @ReadOperation
+    public Map<String, Object> servers() {
+        Map<String, Object> result = new TreeMap<>();
+        mcpManager.getStderrBuffers().forEach((name, buffer) -> result.put(name, Map.of(
+                "totalLines", buffer.getTotalLines(),
+                "bufferedLines", buffer.size()
+        )));
+        return result;
+    }
+
+    @ReadOperation
+    public Map<String, Object> server(@Selector String server) {
+        StderrRingBuffer buffer = mcpManager.getStderrBuffers().get(server);
+        if (buffer == null) {
+            return null;
+        }
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("server", server);
+        result.put("totalLines", buffer.getTotalLines());
+        result.put("lines", buffer.snapshot());
+        return result;
+    }
+}
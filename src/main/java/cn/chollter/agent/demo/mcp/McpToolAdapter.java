@@ -1,29 +1,65 @@
 package cn.chollter.agent.demo.mcp;
 
 import cn.chollter.agent.demo.agent.Tool;
+import cn.chollter.agent.demo.agent.ToolExecutor;
+import cn.chollter.agent.demo.config.McpConfig;
+import cn.chollter.agent.demo.mcp.dto.CallToolResult;
+import cn.chollter.agent.demo.mcp.dto.McpTool;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
+import java.time.Duration;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * MCP工具适配器
  * 将MCP服务器提供的工具适配为项目的Tool接口
+ * 调用经 {@link McpToolRouter} 分派，多个服务器提供同名工具时由路由器选择副本；
+ * 可缓存的工具先查 {@link ToolResultCache}，未命中时经 {@link SingleFlight} 合并参数相同的并发调用；
+ * 调用前按 inputSchema 预编译的 {@link ToolArgumentValidator} 校验参数，不合法时直接返回校验结果，不发往服务器
+ * 对外名称在首次注册时确定，提供者下线后改由其他副本提供时保持不变，模型看到的工具名不随重启或重载变化
  */
 @Slf4j
 @RequiredArgsConstructor
 public class McpToolAdapter implements Tool {
 
+    // 对外名称（首次注册时为 server:tool）
+    private final String name;
     private final String serverName;
     private final String toolName;
     private final String description;
-    private final McpClient mcpClient;
+    // servers[].tools 中该工具的配置，未配置时为 null
+    private final McpConfig.ToolSettings settings;
+    private final McpToolRouter router;
+    private final SingleFlight<ToolCallKey, String> singleFlight;
+    private final ToolResultCache resultCache;
+    private final McpToolIndex toolIndex;
     private final ObjectMapper objectMapper;
+    // McpManager 持有的工具执行器，未设置时直接调用
+    private final AtomicReference<ToolExecutor> executor;
 
     @Override
     public String getName() {
-        return serverName + ":" + toolName;
+        return name;
+    }
+
+    /**
+     * 当前提供该工具的服务器名（工具描述、参数 schema 和 servers[].tools 配置的来源）
+     * 改由其他副本提供后与名称中的服务器前缀不同
+     */
+    public String getServerName() {
+        return serverName;
+    }
+
+    /**
+     * MCP服务器上的工具名（不含服务器前缀）
+     */
+    public String getToolName() {
+        return toolName;
     }
 
     @Override
@@ -31,23 +67,158 @@ public class McpToolAdapter implements Tool {
         return description;
     }
 
+    /**
+     * 同步执行，设置了工具执行器时经由执行器（超时、结果预算），执行器再调用 {@link #executeAsync}
+     */
     @Override
     public String execute(Map<String, Object> parameters) {
-        try {
-            log.info("执行MCP工具: {} 参数: {}", getName(), parameters);
-            String result = mcpClient.callTool(toolName, parameters);
-            log.info("MCP工具执行成功: {} 结果: {}", getName(), result);
+        ToolExecutor toolExecutor = executor.get();
+        if (toolExecutor != null) {
+            return toolExecutor.execute(this, parameters);
+        }
+        return executeAsync(parameters).join();
+    }
+
+    /**
+     * 异步执行工具
+     * 不占用调用线程等待 MCP 响应，失败时同样返回错误描述而不是异常
+     */
+    public CompletableFuture<String> executeAsync(Map<String, Object> parameters) {
+        log.info("执行MCP工具: {} 参数: {}", getName(), parameters);
+        ToolArgumentValidator.Result validation = validate(parameters);
+        if (!validation.isValid()) {
+            log.warn("MCP工具参数校验失败，未发送请求: {} {}", getName(), validation.errors());
+            return CompletableFuture.completedFuture(validationObservation(validation));
+        }
+        if (!validation.coercions().isEmpty()) {
+            log.debug("MCP工具参数已转换: {} {}", getName(), validation.coercions());
+        }
+        CompletableFuture<String> call = call(validation.arguments());
+        // 调用方取消时一并取消底层调用，未完成的结果不会写入缓存
+        return McpFutures.propagateCancel(call.handle((result, error) -> {
+            if (error != null) {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null
+                        ? error.getCause() : error;
+                log.error("MCP工具执行失败: {}", getName(), cause);
+                return "Error: 工具执行失败 - " + cause.getMessage();
+            }
+            // 结果可能很大，只记录长度
+            if (result.startsWith(CallToolResult.ERROR_PREFIX)) {
+                log.warn("MCP工具返回错误: {} 结果长度: {}", getName(), result.length());
+            } else {
+                log.info("MCP工具执行成功: {} 结果长度: {}", getName(), result.length());
+            }
             return result;
+        }), call);
+    }
+
+    private CompletableFuture<String> call(Map<String, Object> parameters) {
+        if (!isCacheable()) {
+            CompletableFuture<CallToolResult> future = router.callToolResultAsync(toolName, parameters, isHedgeable());
+            return McpFutures.propagateCancel(future.thenApply(CallToolResult::joinText), future);
+        }
+
+        ToolCallKey key = ToolCallKey.of(getName(), parameters);
+        if (!resultCache.isEnabled()) {
+            return singleFlight.execute(key, () -> {
+                CompletableFuture<CallToolResult> future = router.callToolResultAsync(toolName, parameters, isHedgeable());
+                return McpFutures.propagateCancel(future.thenApply(CallToolResult::joinText), future);
+            });
+        }
+        String cached = resultCache.getLocal(key);
+        if (cached != null) {
+            log.debug("MCP工具命中本节点缓存: {}", getName());
+            return CompletableFuture.completedFuture(cached);
+        }
+        // Redis 查询和实际调用都在 single-flight 内，并发的相同调用只查询一次
+        return singleFlight.execute(key, () -> resultCache.load(key, getCacheTtl(),
+                () -> router.callToolResultAsync(toolName, parameters, isHedgeable())));
+    }
+
+    /**
+     * 按工具索引中预编译的校验器校验参数；索引不可用（服务器未响应 tools/list）时不校验，交给服务器处理
+     */
+    private ToolArgumentValidator.Result validate(Map<String, Object> parameters) {
+        ToolArgumentValidator validator;
+        try {
+            validator = toolIndex.getValidator(toolName);
+        } catch (Exception e) {
+            log.debug("读取工具参数校验器失败: {}", getName(), e);
+            validator = ToolArgumentValidator.ACCEPT_ALL;
+        }
+        return validator.validate(parameters);
+    }
+
+    /**
+     * 参数不合法时返回给模型的观察结果：逐条列出错误并附上参数 schema，便于模型下一轮直接修正
+     */
+    private String validationObservation(ToolArgumentValidator.Result validation) {
+        StringBuilder sb = new StringBuilder("Error: 工具参数校验失败，未调用工具 ").append(getName()).append('\n');
+        validation.errors().forEach(error -> sb.append("- ").append(error).append('\n'));
+        McpTool tool = toolIndex.getTool(toolName);
+        if (tool != null && tool.inputSchema() != null) {
+            sb.append("参数 schema: ").append(tool.inputSchema());
+        }
+        return sb.toString().stripTrailing();
+    }
+
+    /**
+     * 结果缓存在副本间共享，只有 servers[].tools 显式配置 cacheable 的工具才缓存
+     */
+    @Override
+    public boolean isCacheable() {
+        return settings != null && settings.isCacheable();
+    }
+
+    /**
+     * 对冲会把同一请求发给两个副本，有副作用的工具可能执行两次：
+     * servers[].tools 配置了 hedge 时以配置为准，否则只对服务器声明幂等或只读的工具对冲
+     */
+    boolean isHedgeable() {
+        if (settings != null && settings.getHedge() != null) {
+            return settings.getHedge();
+        }
+        try {
+            McpTool tool = toolIndex.getTool(toolName);
+            return tool != null && tool.annotations() != null
+                    && (tool.annotations().isIdempotent() || tool.annotations().isReadOnly());
         } catch (Exception e) {
-            log.error("MCP工具执行失败: {}", getName(), e);
-            return "Error: 工具执行失败 - " + e.getMessage();
+            log.debug("读取工具注解失败: {}", getName(), e);
+            return false;
         }
     }
 
+    @Override
+    public Duration getCacheTtl() {
+        if (settings != null && settings.getCacheTtlSeconds() != null) {
+            return Duration.ofSeconds(settings.getCacheTtlSeconds());
+        }
+        return Tool.super.getCacheTtl();
+    }
+
+    /**
+     * servers[].tools 配置的超时时间，未配置时使用全局配置
+     */
+    @Override
+    public Duration getTimeout() {
+        if (settings != null && settings.getTimeoutSeconds() != null) {
+            return Duration.ofSeconds(settings.getTimeoutSeconds());
+        }
+        return null;
+    }
+
+    @Override
+    public Integer getMaxObservationTokens() {
+        return settings != null ? settings.getMaxObservationTokens() : null;
+    }
+
+    /**
+     * 从服务器共享的工具索引读取 schema，不再每次发起 tools/list
+     */
     @Override
     public String getParameterSchema() {
         try {
-            return mcpClient.getToolSchema(toolName);
+            return toolIndex.getSchema(toolName);
         } catch (Exception e) {
             log.error("获取工具schema失败: {}", getName(), e);
             return "{}";
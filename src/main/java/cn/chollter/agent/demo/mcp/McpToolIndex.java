@@ -0,0 +1,99 @@
+package cn.chollter.agent.demo.mcp;
+
+import cn.chollter.agent.demo.mcp.dto.McpTool;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * 单个MCP服务器的工具索引
+ * 由一次 tools/list 结果构建，按工具名 O(1) 查找定义、预先序列化好的 schema 和预先编译的参数校验器，
+ * 同一服务器的所有工具适配器共享一个索引；收到 notifications/tools/list_changed 时失效，下次访问重新加载
+ */
+@Slf4j
+public class McpToolIndex {
+
+    private record Snapshot(Map<String, McpTool> tools, Map<String, String> schemas,
+                            Map<String, ToolArgumentValidator> validators) {
+    }
+
+    private final String serverName;
+    private final Supplier<List<McpTool>> loader;
+    private final ObjectMapper objectMapper;
+    private volatile Snapshot snapshot;
+
+    public McpToolIndex(String serverName, Supplier<List<McpTool>> loader, ObjectMapper objectMapper) {
+        this.serverName = serverName;
+        this.loader = loader;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * 按工具名获取定义
+     */
+    public McpTool getTool(String toolName) {
+        return current().tools().get(toolName);
+    }
+
+    /**
+     * 按工具名获取 schema（JSON格式），不存在时返回 "{}"
+     */
+    public String getSchema(String toolName) {
+        return current().schemas().getOrDefault(toolName, "{}");
+    }
+
+    /**
+     * 按工具名获取参数校验器，工具不存在或没有 inputSchema 时不做校验
+     */
+    public ToolArgumentValidator getValidator(String toolName) {
+        return current().validators().getOrDefault(toolName, ToolArgumentValidator.ACCEPT_ALL);
+    }
+
+    private Snapshot build(List<McpTool> tools) {
+        Map<String, McpTool> byName = new HashMap<>(tools.size() * 2);
+        Map<String, String> schemas = new HashMap<>(tools.size() * 2);
+        Map<String, ToolArgumentValidator> validators = new HashMap<>(tools.size() * 2);
+        for (McpTool tool : tools) {
+            byName.put(tool.name(), tool);
+            try {
+                schemas.put(tool.name(), objectMapper.writeValueAsString(tool));
+            } catch (JsonProcessingException e) {
+                log.error("序列化工具schema失败: {}:{}", serverName, tool.name(), e);
+            }
+            try {
+                validators.put(tool.name(), ToolArgumentValidator.compile(tool.inputSchema()));
+            } catch (RuntimeException e) {
+                log.warn("编译工具参数schema失败，调用前不做校验: {}:{}", serverName, tool.name(), e);
+            }
+        }
+        log.debug("服务器 {} 工具索引已构建，共 {} 个工具", serverName, byName.size());
+        return new Snapshot(Map.copyOf(byName), Map.copyOf(schemas), Map.copyOf(validators));
+    }
+
+    /**
+     * 使索引失效，下次访问时重新加载
+     */
+    public void invalidate() {
+        snapshot = null;
+    }
+
+    private Snapshot current() {
+        Snapshot current = snapshot;
+        if (current != null) {
+            return current;
+        }
+        synchronized (this) {
+            current = snapshot;
+            if (current == null) {
+                current = build(loader.get());
+                snapshot = current;
+            }
+            return current;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package cn.chollter.agent.demo.mcp;
+
+import cn.chollter.agent.demo.agent.Tool;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * MCP工具注册表快照
+ * 不可变：按 server:tool 名称和按服务器的索引都在构建时生成，读取无需加锁；
+ * 注册和注销工具时构建新快照，由 McpManager 通过 AtomicReference 整体替换
+ */
+final class McpToolRegistry {
+
+    static final McpToolRegistry EMPTY = new McpToolRegistry(List.of());
+
+    private final List<Tool> tools;
+    private final Map<String, Tool> byName;
+    private final Map<String, List<Tool>> byServer;
+
+    private McpToolRegistry(List<Tool> tools) {
+        Map<String, Tool> names = new LinkedHashMap<>(tools.size() * 2);
+        Map<String, List<Tool>> servers = new HashMap<>();
+        for (Tool tool : tools) {
+            // 同名工具保留先注册的一个
+            if (names.putIfAbsent(tool.getName(), tool) == null) {
+                servers.computeIfAbsent(serverOf(tool), name -> new ArrayList<>()).add(tool);
+            }
+        }
+        this.tools = List.copyOf(names.values());
+        this.byName = Map.copyOf(names);
+        Map<String, List<Tool>> frozen = new HashMap<>(servers.size() * 2);
+        servers.forEach((server, list) -> frozen.put(server, List.copyOf(list)));
+        this.byServer = Map.copyOf(frozen);
+    }
+
+    private static String serverOf(Tool tool) {
+        if (tool instanceof McpToolAdapter adapter) {
+            return adapter.getServerName();
+        }
+        if (tool instanceof LocalToolAdapter) {
+            return LocalToolAdapter.HOST;
+        }
+        int separator = tool.getName().indexOf(':');
+        return separator > 0 ? tool.getName().substring(0, separator) : "";
+    }
+
+    /**
+     * 加入工具后的新快照
+     */
+    McpToolRegistry withTools(Collection<? extends Tool> added) {
+        if (added.isEmpty()) {
+            return this;
+        }
+        List<Tool> next = new ArrayList<>(tools.size() + added.size());
+        next.addAll(tools);
+        next.addAll(added);
+        return new McpToolRegistry(next);
+    }
+
+    /**
+     * 移除指定服务器全部工具后的新快照
+     * 本地工具不随 MCP 服务器注销，即使服务器名与 {@link LocalToolAdapter#HOST} 相同
+     */
+    McpToolRegistry withoutServer(String serverName) {
+        if (!byServer.containsKey(serverName)) {
+            return this;
+        }
+        List<Tool> next = new ArrayList<>(tools.size());
+        for (Tool tool : tools) {
+            if (tool instanceof LocalToolAdapter || !serverName.equals(serverOf(tool))) {
+                next.add(tool);
+            }
+        }
+        return new McpToolRegistry(next);
+    }
+
+    List<Tool> tools() {
+        return tools;
+    }
+
+    Tool get(String name) {
+        return byName.get(name);
+    }
+
+    List<Tool> byServer(String serverName) {
+        return byServer.getOrDefault(serverName, List.of());
+    }
+
+    int size() {
+        return tools.size();
+    }
+}
@@ -0,0 +1,416 @@
+package cn.chollter.agent.demo.mcp;
+
+import cn.chollter.agent.demo.config.McpConfig;
+import cn.chollter.agent.demo.exception.McpException;
+import cn.chollter.agent.demo.mcp.dto.CallToolResult;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * MCP工具副本路由器
+ * 多个服务器提供同名工具时视为同一工具的副本，每次调用按编排策略选择副本：
+ * - 副本得分 = EWMA 延迟 × (在途请求数 + 1) / 权重，得分越低越优先
+ * - 只在非备用副本全部不可用时使用 fallback 副本
+ * - PARALLEL 策略下首个副本超过其 p95 延迟仍未返回时，向第二个副本发送对冲请求，先成功者胜出，另一个被取消；
+ *   只对调用方声明可对冲（幂等或只读）的工具对冲
+ * - 失败的调用按 errorPenaltyMs 计入 EWMA，快速失败的副本不会得到更多流量
+ */
+@Slf4j
+public class McpToolRouter {
+
+    private final McpConfig.OrchestrationStrategy strategy;
+    private final McpConfig.Routing routing;
+    private final Function<String, McpConfig.McpServer> serverConfigs;
+    private final Function<String, McpConnection> connections;
+    private final Predicate<String> available;
+    private final ScheduledExecutorService scheduler;
+
+    // 工具名 -> 提供该工具的服务器（按注册顺序）
+    private final Map<String, List<String>> replicas = new ConcurrentHashMap<>();
+    private final Map<String, ReplicaStats> replicaStats = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> roundRobinCursors = new ConcurrentHashMap<>();
+
+    private final AtomicLong hedgedRequests = new AtomicLong();
+    private final AtomicLong hedgeWins = new AtomicLong();
+
+    private static final McpConfig.McpServer DEFAULT_SERVER = new McpConfig.McpServer();
+
+    /**
+     * @param serverConfigs 按服务器名获取当前配置（权重、优先级、是否备用）
+     * @param connections 按服务器名获取当前连接
+     * @param available   服务器当前是否可接收请求（连接存活且未熔断）
+     * @param scheduler   用于对冲请求计时
+     */
+    public McpToolRouter(McpConfig mcpConfig, Function<String, McpConfig.McpServer> serverConfigs,
+                         Function<String, McpConnection> connections, Predicate<String> available,
+                         ScheduledExecutorService scheduler) {
+        this.strategy = mcpConfig.getOrchestrationStrategy();
+        this.routing = mcpConfig.getRouting();
+        this.serverConfigs = serverConfigs;
+        this.connections = connections;
+        this.available = available;
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * 登记服务器提供的工具
+     *
+     * @return 该工具此前没有任何副本时返回 true，调用方据此只为每个工具名注册一个适配器
+     */
+    public boolean addReplica(String toolName, String serverName) {
+        AtomicBoolean first = new AtomicBoolean(false);
+        replicas.compute(toolName, (name, servers) -> {
+            if (servers == null) {
+                servers = new CopyOnWriteArrayList<>();
+                first.set(true);
+            }
+            if (!servers.contains(serverName)) {
+                servers.add(serverName);
+            }
+            return servers;
+        });
+        return first.get();
+    }
+
+    /**
+     * 移除服务器的全部副本，延迟统计一并清除（重启后的进程重新积累）
+     */
+    public void removeServer(String serverName) {
+        for (String toolName : Set.copyOf(replicas.keySet())) {
+            replicas.computeIfPresent(toolName, (name, servers) -> {
+                servers.remove(serverName);
+                return servers.isEmpty() ? null : servers;
+            });
+        }
+        replicaStats.remove(serverName);
+    }
+
+    /**
+     * 获取提供指定工具的服务器
+     */
+    public List<String> getReplicas(String toolName) {
+        return List.copyOf(replicas.getOrDefault(toolName, List.of()));
+    }
+
+    /**
+     * 按编排策略调用工具
+     *
+     * @param hedgeable 工具可以安全地重复执行（幂等或只读），PARALLEL 策略下才会发送对冲请求
+     */
+    public CompletableFuture<CallToolResult> callToolResultAsync(String toolName, Map<String, Object> arguments,
+                                                                 boolean hedgeable) {
+        List<String> ranked = rank(toolName);
+        if (ranked.isEmpty()) {
+            return CompletableFuture.failedFuture(new McpException("没有提供工具 " + toolName + " 的MCP服务器"));
+        }
+
+        String primary = ranked.get(0);
+        if (strategy != McpConfig.OrchestrationStrategy.PARALLEL || !hedgeable || ranked.size() < 2) {
+            return invoke(primary, toolName, arguments);
+        }
+
+        long delay = hedgeDelay(primary);
+        if (delay < 0) {
+            return invoke(primary, toolName, arguments);
+        }
+        return hedge(primary, ranked.get(1), delay, toolName, arguments);
+    }
+
+    /**
+     * 按策略排列可用副本；没有可用副本时仍返回全部副本，由连接给出具体错误
+     */
+    List<String> rank(String toolName) {
+        List<String> servers = getReplicas(toolName);
+        if (servers.size() <= 1) {
+            return servers;
+        }
+
+        List<String> candidates = servers.stream()
+                .filter(available)
+                .filter(name -> !isFallback(name))
+                .toList();
+        if (candidates.isEmpty()) {
+            candidates = servers.stream().filter(available).toList();
+        }
+        if (candidates.isEmpty()) {
+            candidates = servers;
+        }
+
+        Comparator<String> byScore = Comparator.comparingDouble(this::score);
+        List<String> ranked = new ArrayList<>(candidates);
+        switch (strategy) {
+            case PRIORITY -> ranked.sort(Comparator.<String>comparingInt(name -> config(name).getPriority())
+                    .thenComparing(byScore));
+            case ROUND_ROBIN -> {
+                ranked.sort(byScore);
+                String next = nextWeighted(toolName, candidates);
+                ranked.remove(next);
+                ranked.add(0, next);
+            }
+            default -> ranked.sort(byScore);
+        }
+        return ranked;
+    }
+
+    /**
+     * 加权轮询：游标在总权重上循环，权重为 3 的副本每轮被选中 3 次
+     */
+    private String nextWeighted(String toolName, List<String> candidates) {
+        int totalWeight = candidates.stream().mapToInt(this::weight).sum();
+        long cursor = roundRobinCursors.computeIfAbsent(toolName, name -> new AtomicLong()).getAndIncrement();
+        long slot = Math.floorMod(cursor, totalWeight);
+        for (String name : candidates) {
+            slot -= weight(name);
+            if (slot < 0) {
+                return name;
+            }
+        }
+        return candidates.get(0);
+    }
+
+    private double score(String serverName) {
+        ReplicaStats stats = stats(serverName);
+        // 尚无样本的副本得分最低，优先获得探测流量
+        return (stats.ewmaMs() + 1) * (stats.inFlight.get() + 1) / weight(serverName);
+    }
+
+    /**
+     * 对冲等待时间：首个副本的 p95 延迟；样本不足时返回 -1，不发送对冲请求
+     */
+    private long hedgeDelay(String serverName) {
+        ReplicaStats stats = stats(serverName);
+        if (stats.sampleCount() < routing.getHedgeMinSamples()) {
+            return -1;
+        }
+        return Math.max(routing.getHedgeMinDelayMs(), stats.p95Ms());
+    }
+
+    /**
+     * 首个副本超过 p95 未返回时向第二个副本发送对冲请求；首个副本在此之前就失败时立即转发给第二个副本
+     * 先成功的结果胜出，两个副本都失败时返回后一个错误
+     */
+    private CompletableFuture<CallToolResult> hedge(String primary, String secondary, long delayMs,
+                                            String toolName, Map<String, Object> arguments) {
+        CompletableFuture<CallToolResult> result = new CompletableFuture<>();
+        List<CompletableFuture<CallToolResult>> attempts = new CopyOnWriteArrayList<>();
+        AtomicInteger failures = new AtomicInteger();
+
+        Runnable sendSecondary = () -> {
+            CompletableFuture<CallToolResult> second = invoke(secondary, toolName, arguments);
+            attempts.add(second);
+            if (result.isDone()) {
+                // 结果在发出请求期间已完成，上面的统一取消可能没有看到这个请求
+                result.whenComplete((value, error) -> cancelAttempt(result, second, error));
+                return;
+            }
+            second.whenComplete((value, error) -> {
+                if (error == null && result.complete(value)) {
+                    hedgeWins.incrementAndGet();
+                } else if (error != null && failures.incrementAndGet() == 2) {
+                    result.completeExceptionally(error);
+                }
+            });
+        };
+
+        CompletableFuture<CallToolResult> first = invoke(primary, toolName, arguments);
+        attempts.add(first);
+
+        ScheduledFuture<?> timer = scheduler.schedule(() -> {
+            if (result.isDone()) {
+                return;
+            }
+            hedgedRequests.incrementAndGet();
+            log.debug("工具 {} 在 {} 上超过 p95 ({}ms) 未返回，向 {} 发送对冲请求", toolName, primary, delayMs, secondary);
+            sendSecondary.run();
+        }, delayMs, TimeUnit.MILLISECONDS);
+
+        first.whenComplete((value, error) -> {
+            if (error == null) {
+                result.complete(value);
+                return;
+            }
+            if (failures.incrementAndGet() == 2) {
+                result.completeExceptionally(error);
+            } else if (timer.cancel(false) && !result.isDone()) {
+                // 首个副本在对冲前就失败：幂等工具可以安全重试，直接转发给第二个副本
+                log.debug("工具 {} 在 {} 上失败，转发给 {}: {}", toolName, primary, secondary, error.getMessage());
+                sendSecondary.run();
+            }
+        });
+
+        // 胜出后取消其余请求，落败的副本收到 notifications/cancelled；调用方取消时按其原因（如超时）取消全部请求
+        result.whenComplete((value, error) -> {
+            timer.cancel(false);
+            attempts.forEach(attempt -> cancelAttempt(result, attempt, error));
+        });
+        return result;
+    }
+
+    private static void cancelAttempt(CompletableFuture<CallToolResult> result,
+                                      CompletableFuture<CallToolResult> attempt, Throwable error) {
+        if (result.isCancelled()) {
+            McpFutures.cancel(attempt, error);
+        } else {
+            attempt.cancel(false);
+        }
+    }
+
+    /**
+     * 向单个副本发起调用并记录延迟和在途请求数
+     */
+    private CompletableFuture<CallToolResult> invoke(String serverName, String toolName, Map<String, Object> arguments) {
+        McpConnection connection = connections.apply(serverName);
+        if (connection == null) {
+            return CompletableFuture.failedFuture(new McpException(serverName, "服务器未连接"));
+        }
+
+        ReplicaStats stats = stats(serverName);
+        stats.inFlight.incrementAndGet();
+        long start = System.nanoTime();
+        CompletableFuture<CallToolResult> future;
+        try {
+            future = connection.callToolResultAsync(toolName, arguments);
+        } catch (RuntimeException e) {
+            stats.inFlight.decrementAndGet();
+            return CompletableFuture.failedFuture(e);
+        }
+        // 成功和被取消的调用计入延迟：慢副本被取消时已耗时至少 p95，需要体现在得分里；
+        // 失败的调用耗时可能很短，只按惩罚延迟计入 EWMA，不进入 p95 样本
+        // 统计挂在原 future 上而不是返回派生 future：派生 future 先被取消时 whenComplete 的回调不会执行
+        future.whenComplete((value, error) -> {
+            stats.inFlight.decrementAndGet();
+            long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            if (error == null || future.isCancelled()) {
+                stats.record(elapsedMs);
+            } else {
+                stats.recordFailure(Math.max(elapsedMs, routing.getErrorPenaltyMs()));
+            }
+        });
+        return future;
+    }
+
+    private ReplicaStats stats(String serverName) {
+        return replicaStats.computeIfAbsent(serverName, name -> new ReplicaStats(routing.getEwmaAlpha(), routing.getEwmaDecayMs()));
+    }
+
+    private McpConfig.McpServer config(String serverName) {
+        McpConfig.McpServer server = serverConfigs.apply(serverName);
+        return server != null ? server : DEFAULT_SERVER;
+    }
+
+    private int weight(String serverName) {
+        return Math.max(1, config(serverName).getWeight());
+    }
+
+    private boolean isFallback(String serverName) {
+        return config(serverName).isFallback();
+    }
+
+    /**
+     * 获取路由统计信息
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> servers = new LinkedHashMap<>();
+        replicaStats.forEach((name, stats) -> servers.put(name, Map.of(
+                "ewmaMs", Math.round(stats.ewmaMs()),
+                "p95Ms", stats.p95Ms(),
+                "inFlight", stats.inFlight.get(),
+                "samples", stats.sampleCount()
+        )));
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("strategy", strategy.name());
+        stats.put("replicatedTools", replicas.values().stream().filter(list -> list.size() > 1).count());
+        stats.put("hedgedRequests", hedgedRequests.get());
+        stats.put("hedgeWins", hedgeWins.get());
+        stats.put("servers", servers);
+        return stats;
+    }
+
+    /**
+     * 单个副本的延迟统计：随时间衰减的 EWMA 用于打分，最近 128 个样本用于计算 p95
+     */
+    static final class ReplicaStats {
+
+        private static final int WINDOW = 128;
+
+        final AtomicInteger inFlight = new AtomicInteger();
+        private final double alpha;
+        private final long decayMs;
+        private final long[] window = new long[WINDOW];
+        private int size;
+        private int next;
+        private double ewmaMs;
+        private long updatedAt;
+        private long p95Ms;
+        private boolean p95Dirty;
+
+        ReplicaStats(double alpha, long decayMs) {
+            this.alpha = alpha;
+            this.decayMs = Math.max(1, decayMs);
+        }
+
+        synchronized void record(long latencyMs) {
+            ewmaMs = updatedAt == 0 ? latencyMs : alpha * latencyMs + (1 - alpha) * ewmaMs();
+            updatedAt = System.currentTimeMillis();
+            window[next] = latencyMs;
+            next = (next + 1) % WINDOW;
+            size = Math.min(size + 1, WINDOW);
+            p95Dirty = true;
+        }
+
+        /**
+         * 失败只影响 EWMA，不影响对冲等待时间
+         */
+        synchronized void recordFailure(long penaltyMs) {
+            ewmaMs = updatedAt == 0 ? penaltyMs : alpha * penaltyMs + (1 - alpha) * ewmaMs();
+            updatedAt = System.currentTimeMillis();
+        }
+
+        /**
+         * 距上次样本越久衰减越多，空闲的慢副本最终会重新获得探测流量
+         */
+        synchronized double ewmaMs() {
+            if (updatedAt == 0) {
+                return 0;
+            }
+            long idle = System.currentTimeMillis() - updatedAt;
+            return ewmaMs * Math.exp(-(double) idle / decayMs);
+        }
+
+        synchronized int sampleCount() {
+            return size;
+        }
+
+        /**
+         * 只在有新样本后重新排序
+         */
+        synchronized long p95Ms() {
+            if (p95Dirty) {
+                long[] sorted = Arrays.copyOf(window, size);
+                Arrays.sort(sorted);
+                p95Ms = size == 0 ? 0 : sorted[Math.min(size - 1, (int) Math.ceil(size * 0.95) - 1)];
+                p95Dirty = false;
+            }
+            return p95Ms;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package cn.chollter.agent.demo.mcp;
+
+import io.micrometer.context.ContextRegistry;
+import reactor.util.context.Context;
+
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 当前请求的工具范围
+ * AgentService 在执行任务时写入，McpManager.getMcpTools() 在范围内只返回匹配的工具，
+ * Agent 因此只把这部分工具的 schema 发给模型；同步执行用 call()，流式执行另外通过 Reactor Context 传播
+ */
+public final class McpToolScope {
+
+    private static final String KEY = "mcp.tool-scope";
+    private static final ThreadLocal<ToolSelector> CURRENT = new ThreadLocal<>();
+
+    static {
+        ContextRegistry.getInstance().registerThreadLocalAccessor(KEY, CURRENT::get, CURRENT::set, CURRENT::remove);
+    }
+
+    private McpToolScope() {
+    }
+
+    /**
+     * 当前线程上的工具范围，未限制时为 null
+     */
+    public static ToolSelector current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * 在指定工具范围内执行，结束后恢复原来的范围
+     */
+    public static <T> T call(ToolSelector selector, Supplier<T> action) {
+        ToolSelector previous = CURRENT.get();
+        CURRENT.set(selector);
+        try {
+            return action.get();
+        } finally {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+
+    /**
+     * 用于 contextWrite，把工具范围写入 Reactor Context
+     */
+    public static Function<Context, Context> with(ToolSelector selector) {
+        return context -> context.put(KEY, selector);
+    }
+}
@@ -0,0 +1,138 @@
+package cn.chollter.agent.demo.mcp;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * 相同请求的并发合并（single-flight）
+ * 同一 key 同时只有一次真实执行，期间到达的调用共享其结果；
+ * 每个调用方拿到独立的 future，各自的超时和取消互不影响，所有调用方都放弃时才取消真实执行
+ *
+ * @param <K> 请求标识
+ * @param <V> 结果类型
+ */
+public class SingleFlight<K, V> {
+
+    private final ConcurrentHashMap<K, Flight<V>> flights = new ConcurrentHashMap<>();
+    private final AtomicLong executions = new AtomicLong();
+    private final AtomicLong shared = new AtomicLong();
+
+    private static final class Flight<V> {
+        final CompletableFuture<V> result = new CompletableFuture<>();
+        volatile CompletableFuture<V> upstream;
+        int waiters;
+        boolean abandoned;
+        Throwable abandonCause;
+    }
+
+    /**
+     * 执行或加入正在进行的同 key 请求
+     */
+    public CompletableFuture<V> execute(K key, Supplier<CompletableFuture<V>> call) {
+        while (true) {
+            Flight<V> created = new Flight<>();
+            Flight<V> flight = flights.putIfAbsent(key, created);
+            if (flight == null) {
+                // 先登记创建者再发起调用，避免其他调用方放弃时误判为无人等待
+                CompletableFuture<V> waiter = join(key, created);
+                start(key, created, call);
+                return waiter;
+            }
+            CompletableFuture<V> waiter = join(key, flight);
+            if (waiter != null) {
+                shared.incrementAndGet();
+                return waiter;
+            }
+            // 该请求刚被所有调用方放弃，重新发起
+        }
+    }
+
+    private void start(K key, Flight<V> flight, Supplier<CompletableFuture<V>> call) {
+        executions.incrementAndGet();
+        CompletableFuture<V> upstream;
+        try {
+            upstream = call.get();
+        } catch (RuntimeException e) {
+            upstream = CompletableFuture.failedFuture(e);
+        }
+        flight.upstream = upstream;
+        synchronized (flight) {
+            if (flight.abandoned) {
+                McpFutures.cancel(upstream, flight.abandonCause);
+            }
+        }
+        upstream.whenComplete((value, error) -> {
+            flights.remove(key, flight);
+            if (error != null) {
+                flight.result.completeExceptionally(error);
+            } else {
+                flight.result.complete(value);
+            }
+        });
+    }
+
+    private CompletableFuture<V> join(K key, Flight<V> flight) {
+        synchronized (flight) {
+            if (flight.abandoned) {
+                return null;
+            }
+            flight.waiters++;
+        }
+        CompletableFuture<V> waiter = new CompletableFuture<>();
+        flight.result.whenComplete((value, error) -> {
+            if (error != null) {
+                waiter.completeExceptionally(error);
+            } else {
+                waiter.complete(value);
+            }
+        });
+        // 调用方提前结束（取消或自身超时）时退出等待
+        waiter.whenComplete((value, error) -> {
+            if (!flight.result.isDone()) {
+                leave(key, flight, error);
+            }
+        });
+        return waiter;
+    }
+
+    /**
+     * 最后一个调用方放弃时按它的取消原因取消真实执行
+     */
+    private void leave(K key, Flight<V> flight, Throwable cause) {
+        synchronized (flight) {
+            if (--flight.waiters > 0 || flight.result.isDone()) {
+                return;
+            }
+            flight.abandoned = true;
+            flight.abandonCause = cause;
+        }
+        flights.remove(key, flight);
+        CompletableFuture<V> upstream = flight.upstream;
+        if (upstream != null) {
+            McpFutures.cancel(upstream, cause);
+        }
+    }
+
+    /**
+     * 正在执行的请求数
+     */
+    public int getInFlight() {
+        return flights.size();
+    }
+
+    /**
+     * 真实执行次数
+     */
+    public long getExecutions() {
+        return executions.get();
+    }
+
+    /**
+     * 加入已有执行、未单独发起请求的调用次数
+     */
+    public long getShared() {
+        return shared.get();
+    }
+}
@@ -0,0 +1,530 @@
+package cn.chollter.agent.demo.mcp;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * 工具参数校验器
+ * 由 tools/list 返回的 inputSchema 预先编译，调用前在本地校验模型给出的参数，不合法时不必经过一次服务器往返：
+ * - 支持 type、properties、required、additionalProperties、items、enum、const、
+ *   minLength / maxLength、pattern、minimum / maximum、exclusiveMinimum / exclusiveMaximum、minItems / maxItems、
+ *   anyOf / oneOf、allOf；其他关键字（如 $ref、format）忽略，交给服务器校验
+ * - 类型不符时先尝试无损转换：数字字符串转数字、"true"/"false" 转布尔、数字和布尔转字符串、
+ *   整数值的小数转整数、JSON 字符串转数组或对象；可选参数为 null 时省略
+ * 编译结果不可变，可在多个线程间共享
+ */
+public final class ToolArgumentValidator {
+
+    /**
+     * 不做任何校验（工具没有 schema 或 schema 无法解析时使用）
+     */
+    public static final ToolArgumentValidator ACCEPT_ALL = new ToolArgumentValidator(null);
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final Pattern INTEGER = Pattern.compile("-?\\d{1,18}");
+    private static final Pattern NUMBER = Pattern.compile("-?\\d+(\\.\\d+)?([eE][+-]?\\d+)?");
+    private static final int MAX_ENUM_IN_MESSAGE = 10;
+
+    /**
+     * 校验结果
+     *
+     * @param arguments 转换后的参数，校验失败时为原参数
+     * @param errors    校验错误，为空表示参数合法
+     * @param coercions 已应用的类型转换
+     */
+    public record Result(Map<String, Object> arguments, List<String> errors, List<String> coercions) {
+
+        public boolean isValid() {
+            return errors.isEmpty();
+        }
+    }
+
+    private final Node root;
+
+    private ToolArgumentValidator(Node root) {
+        this.root = root;
+    }
+
+    /**
+     * 编译 inputSchema
+     */
+    public static ToolArgumentValidator compile(JsonNode schema) {
+        if (schema == null || !schema.isObject()) {
+            return ACCEPT_ALL;
+        }
+        return new ToolArgumentValidator(Node.compile(schema));
+    }
+
+    /**
+     * 校验并转换参数
+     */
+    @SuppressWarnings("unchecked")
+    public Result validate(Map<String, Object> arguments) {
+        Map<String, Object> input = arguments == null ? Map.of() : arguments;
+        if (root == null) {
+            return new Result(input, List.of(), List.of());
+        }
+        List<String> errors = new ArrayList<>();
+        List<String> coercions = new ArrayList<>();
+        Object checked = root.check(input, "", errors, coercions);
+        if (!errors.isEmpty()) {
+            return new Result(input, List.copyOf(errors), List.of());
+        }
+        Map<String, Object> coerced = checked instanceof Map<?, ?> map ? (Map<String, Object>) map : input;
+        return new Result(coerced, List.of(), List.copyOf(coercions));
+    }
+
+    // ==================== 编译后的 schema 节点 ====================
+
+    private static final class Node {
+        Set<String> types;
+        List<Object> enumValues;
+        Object constValue;
+        boolean hasConst;
+        Map<String, Node> properties;
+        Set<String> required = Set.of();
+        boolean additionalAllowed = true;
+        Node additionalSchema;
+        Node items;
+        Integer minItems;
+        Integer maxItems;
+        Integer minLength;
+        Integer maxLength;
+        Pattern pattern;
+        BigDecimal minimum;
+        BigDecimal maximum;
+        BigDecimal exclusiveMinimum;
+        BigDecimal exclusiveMaximum;
+        List<Node> anyOf;
+        List<Node> allOf;
+
+        static Node compile(JsonNode schema) {
+            Node node = new Node();
+            if (schema == null || !schema.isObject()) {
+                return node;
+            }
+
+            JsonNode type = schema.get("type");
+            if (type != null && type.isTextual()) {
+                node.types = Set.of(type.asText());
+            } else if (type != null && type.isArray()) {
+                Set<String> types = new LinkedHashSet<>();
+                type.forEach(t -> types.add(t.asText()));
+                node.types = Collections.unmodifiableSet(types);
+            }
+
+            if (schema.path("enum").isArray()) {
+                List<Object> values = new ArrayList<>();
+                schema.get("enum").forEach(value -> values.add(MAPPER.convertValue(value, Object.class)));
+                node.enumValues = values;
+            }
+            if (schema.has("const")) {
+                node.hasConst = true;
+                node.constValue = MAPPER.convertValue(schema.get("const"), Object.class);
+            }
+
+            JsonNode properties = schema.get("properties");
+            if (properties != null && properties.isObject()) {
+                Map<String, Node> compiled = new LinkedHashMap<>();
+                for (Map.Entry<String, JsonNode> field : properties.properties()) {
+                    compiled.put(field.getKey(), compile(field.getValue()));
+                }
+                node.properties = compiled;
+            }
+            if (schema.path("required").isArray()) {
+                Set<String> required = new LinkedHashSet<>();
+                schema.get("required").forEach(name -> required.add(name.asText()));
+                node.required = required;
+            }
+            JsonNode additional = schema.get("additionalProperties");
+            if (additional != null && additional.isBoolean()) {
+                node.additionalAllowed = additional.asBoolean();
+            } else if (additional != null && additional.isObject()) {
+                node.additionalSchema = compile(additional);
+            }
+
+            if (schema.path("items").isObject()) {
+                node.items = compile(schema.get("items"));
+            }
+            node.minItems = intValue(schema, "minItems");
+            node.maxItems = intValue(schema, "maxItems");
+            node.minLength = intValue(schema, "minLength");
+            node.maxLength = intValue(schema, "maxLength");
+            if (schema.path("pattern").isTextual()) {
+                try {
+                    node.pattern = Pattern.compile(schema.get("pattern").asText());
+                } catch (PatternSyntaxException e) {
+                    // 不支持的正则写法交给服务器校验
+                }
+            }
+            node.minimum = decimalValue(schema, "minimum");
+            node.maximum = decimalValue(schema, "maximum");
+            node.exclusiveMinimum = decimalValue(schema, "exclusiveMinimum");
+            node.exclusiveMaximum = decimalValue(schema, "exclusiveMaximum");
+
+            node.anyOf = compileAll(schema.has("anyOf") ? schema.get("anyOf") : schema.get("oneOf"));
+            node.allOf = compileAll(schema.get("allOf"));
+            return node;
+        }
+
+        private static List<Node> compileAll(JsonNode schemas) {
+            if (schemas == null || !schemas.isArray() || schemas.isEmpty()) {
+                return null;
+            }
+            List<Node> nodes = new ArrayList<>();
+            schemas.forEach(schema -> nodes.add(compile(schema)));
+            return nodes;
+        }
+
+        private static Integer intValue(JsonNode schema, String field) {
+            JsonNode value = schema.get(field);
+            return value != null && value.canConvertToInt() ? value.asInt() : null;
+        }
+
+        private static BigDecimal decimalValue(JsonNode schema, String field) {
+            JsonNode value = schema.get(field);
+            return value != null && value.isNumber() ? value.decimalValue() : null;
+        }
+
+        /**
+         * 校验单个值，返回转换后的值；错误追加到 errors
+         */
+        Object check(Object value, String path, List<String> errors, List<String> coercions) {
+            Object current = value;
+            if (types != null && !matchesAny(current)) {
+                Object coerced = coerce(current);
+                if (coerced == null) {
+                    errors.add(describe(path) + "应为 " + String.join(" 或 ", types) + "，实际为 " + typeOf(current)
+                            + " " + preview(current));
+                    return value;
+                }
+                coercions.add(describe(path) + preview(current) + " 转换为 " + typeOf(coerced) + " " + preview(coerced));
+                current = coerced;
+            }
+
+            if (hasConst && !sameValue(constValue, current)) {
+                errors.add(describe(path) + "应为 " + preview(constValue) + "，实际为 " + preview(current));
+            }
+            Object candidate = current;
+            if (enumValues != null && enumValues.stream().noneMatch(option -> sameValue(option, candidate))) {
+                errors.add(describe(path) + "取值应为 " + previewOptions() + " 之一，实际为 " + preview(current));
+            }
+
+            if (current instanceof String text) {
+                checkString(text, path, errors);
+            } else if (current instanceof Number number && !(current instanceof Boolean)) {
+                checkNumber(number, path, errors);
+            } else if (current instanceof List<?> list) {
+                current = checkArray(list, path, errors, coercions);
+            } else if (current instanceof Map<?, ?> map) {
+                current = checkObject(map, path, errors, coercions);
+            }
+
+            if (allOf != null) {
+                for (Node node : allOf) {
+                    current = node.check(current, path, errors, coercions);
+                }
+            }
+            if (anyOf != null) {
+                current = checkAnyOf(current, path, errors, coercions);
+            }
+            return current;
+        }
+
+        private void checkString(String text, String path, List<String> errors) {
+            int length = text.codePointCount(0, text.length());
+            if (minLength != null && length < minLength) {
+                errors.add(describe(path) + "长度不能少于 " + minLength + "，实际为 " + length);
+            }
+            if (maxLength != null && length > maxLength) {
+                errors.add(describe(path) + "长度不能超过 " + maxLength + "，实际为 " + length);
+            }
+            if (pattern != null && !pattern.matcher(text).find()) {
+                errors.add(describe(path) + "应匹配正则 " + pattern.pattern() + "，实际为 " + preview(text));
+            }
+        }
+
+        private void checkNumber(Number number, String path, List<String> errors) {
+            BigDecimal value = decimal(number);
+            if (value == null) {
+                return;
+            }
+            if (minimum != null && value.compareTo(minimum) < 0) {
+                errors.add(describe(path) + "不能小于 " + minimum.toPlainString() + "，实际为 " + number);
+            }
+            if (maximum != null && value.compareTo(maximum) > 0) {
+                errors.add(describe(path) + "不能大于 " + maximum.toPlainString() + "，实际为 " + number);
+            }
+            if (exclusiveMinimum != null && value.compareTo(exclusiveMinimum) <= 0) {
+                errors.add(describe(path) + "应大于 " + exclusiveMinimum.toPlainString() + "，实际为 " + number);
+            }
+            if (exclusiveMaximum != null && value.compareTo(exclusiveMaximum) >= 0) {
+                errors.add(describe(path) + "应小于 " + exclusiveMaximum.toPlainString() + "，实际为 " + number);
+            }
+        }
+
+        private Object checkArray(List<?> list, String path, List<String> errors, List<String> coercions) {
+            if (minItems != null && list.size() < minItems) {
+                errors.add(describe(path) + "至少需要 " + minItems + " 项，实际为 " + list.size() + " 项");
+            }
+            if (maxItems != null && list.size() > maxItems) {
+                errors.add(describe(path) + "最多 " + maxItems + " 项，实际为 " + list.size() + " 项");
+            }
+            if (items == null) {
+                return list;
+            }
+            List<Object> checked = new ArrayList<>(list.size());
+            for (int i = 0; i < list.size(); i++) {
+                checked.add(items.check(list.get(i), path + "[" + i + "]", errors, coercions));
+            }
+            return checked;
+        }
+
+        private Object checkObject(Map<?, ?> map, String path, List<String> errors, List<String> coercions) {
+            Map<String, Object> checked = new LinkedHashMap<>();
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                String name = String.valueOf(entry.getKey());
+                String childPath = path.isEmpty() ? name : path + "." + name;
+                Node property = properties != null ? properties.get(name) : null;
+
+                if (entry.getValue() == null && !required.contains(name)
+                        && (property == null || property.types == null || !property.types.contains("null"))) {
+                    // 模型常给可选参数传 null，省略后与未传相同
+                    coercions.add(describe(childPath) + "null 已省略");
+                    continue;
+                }
+                if (property != null) {
+                    checked.put(name, property.check(entry.getValue(), childPath, errors, coercions));
+                } else if (additionalSchema != null) {
+                    checked.put(name, additionalSchema.check(entry.getValue(), childPath, errors, coercions));
+                } else if (!additionalAllowed) {
+                    errors.add("不支持的参数 " + childPath
+                            + (properties == null ? "" : "（可用参数: " + String.join(", ", properties.keySet()) + "）"));
+                } else {
+                    checked.put(name, entry.getValue());
+                }
+            }
+            for (String name : required) {
+                if (!checked.containsKey(name) && !map.containsKey(name)) {
+                    errors.add("缺少必填参数 " + (path.isEmpty() ? name : path + "." + name));
+                }
+            }
+            return checked;
+        }
+
+        /**
+         * 依次尝试各个分支，使用第一个没有错误的分支的结果；都不满足时报告第一个分支的错误
+         */
+        private Object checkAnyOf(Object value, String path, List<String> errors, List<String> coercions) {
+            List<String> firstErrors = null;
+            for (Node node : anyOf) {
+                List<String> branchErrors = new ArrayList<>();
+                List<String> branchCoercions = new ArrayList<>();
+                Object checked = node.check(value, path, branchErrors, branchCoercions);
+                if (branchErrors.isEmpty()) {
+                    coercions.addAll(branchCoercions);
+                    return checked;
+                }
+                if (firstErrors == null) {
+                    firstErrors = branchErrors;
+                }
+            }
+            errors.add(describe(path) + "不满足任何一个可选的 schema");
+            errors.addAll(firstErrors);
+            return value;
+        }
+
+        private boolean matchesAny(Object value) {
+            for (String type : types) {
+                if (matches(type, value)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private static boolean matches(String type, Object value) {
+            return switch (type) {
+                case "string" -> value instanceof String;
+                case "integer" -> isIntegral(value);
+                case "number" -> value instanceof Number;
+                case "boolean" -> value instanceof Boolean;
+                case "array" -> value instanceof List<?>;
+                case "object" -> value instanceof Map<?, ?>;
+                case "null" -> value == null;
+                default -> true;
+            };
+        }
+
+        /**
+         * 按声明的类型依次尝试无损转换，都不能转换时返回 null
+         */
+        private Object coerce(Object value) {
+            for (String type : types) {
+                Object coerced = coerceTo(type, value);
+                if (coerced != null) {
+                    return coerced;
+                }
+            }
+            return null;
+        }
+
+        private static Object coerceTo(String type, Object value) {
+            switch (type) {
+                case "integer" -> {
+                    if (value instanceof String text && INTEGER.matcher(text.strip()).matches()) {
+                        return narrow(Long.parseLong(text.strip()));
+                    }
+                    BigDecimal decimal = value instanceof Number number ? decimal(number) : null;
+                    if (decimal != null && decimal.stripTrailingZeros().scale() <= 0
+                            && decimal.abs().compareTo(BigDecimal.valueOf(Long.MAX_VALUE)) <= 0) {
+                        return narrow(decimal.longValueExact());
+                    }
+                }
+                case "number" -> {
+                    if (value instanceof String text && NUMBER.matcher(text.strip()).matches()) {
+                        BigDecimal decimal = new BigDecimal(text.strip());
+                        return INTEGER.matcher(text.strip()).matches()
+                                ? narrow(decimal.longValueExact()) : (Object) decimal.doubleValue();
+                    }
+                }
+                case "boolean" -> {
+                    if (value instanceof String text && ("true".equalsIgnoreCase(text.strip())
+                            || "false".equalsIgnoreCase(text.strip()))) {
+                        return Boolean.parseBoolean(text.strip());
+                    }
+                }
+                case "string" -> {
+                    if (value instanceof Boolean) {
+                        return value.toString();
+                    }
+                    if (value instanceof Number number) {
+                        BigDecimal decimal = decimal(number);
+                        return decimal != null ? decimal.stripTrailingZeros().toPlainString() : number.toString();
+                    }
+                }
+                case "array" -> {
+                    if (value instanceof String text && text.strip().startsWith("[")) {
+                        return parse(text, new TypeReference<List<Object>>() {
+                        });
+                    }
+                }
+                case "object" -> {
+                    if (value instanceof String text && text.strip().startsWith("{")) {
+                        return parse(text, new TypeReference<Map<String, Object>>() {
+                        });
+                    }
+                }
+                default -> {
+                    return null;
+                }
+            }
+            return null;
+        }
+
+        private static <T> T parse(String text, TypeReference<T> type) {
+            try {
+                return MAPPER.readValue(text, type);
+            } catch (Exception e) {
+                return null;
+            }
+        }
+
+        private String previewOptions() {
+            List<String> options = new ArrayList<>();
+            for (Object option : enumValues.subList(0, Math.min(enumValues.size(), MAX_ENUM_IN_MESSAGE))) {
+                options.add(preview(option));
+            }
+            return "[" + String.join(", ", options) + (enumValues.size() > MAX_ENUM_IN_MESSAGE ? ", ..." : "") + "]";
+        }
+    }
+
+    // ==================== 工具方法 ====================
+
+    private static boolean isIntegral(Object value) {
+        return value instanceof Integer || value instanceof Long || value instanceof Short
+                || value instanceof Byte || value instanceof BigInteger;
+    }
+
+    private static Object narrow(long value) {
+        return value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE ? (Object) (int) value : (Object) value;
+    }
+
+    private static BigDecimal decimal(Number number) {
+        if (number instanceof BigDecimal decimal) {
+            return decimal;
+        }
+        if (number instanceof BigInteger integer) {
+            return new BigDecimal(integer);
+        }
+        if (number instanceof Double || number instanceof Float) {
+            double value = number.doubleValue();
+            return Double.isFinite(value) ? BigDecimal.valueOf(value) : null;
+        }
+        return BigDecimal.valueOf(number.longValue());
+    }
+
+    /**
+     * 数值按大小比较（1 与 1.0 相同），其他类型按 equals 比较
+     */
+    private static boolean sameValue(Object expected, Object actual) {
+        if (expected instanceof Number a && actual instanceof Number b) {
+            BigDecimal x = decimal(a);
+            BigDecimal y = decimal(b);
+            return x != null && y != null && x.compareTo(y) == 0;
+        }
+        return expected == null ? actual == null : expected.equals(actual);
+    }
+
+    private static String describe(String path) {
+        return path.isEmpty() ? "参数" : "参数 " + path + " ";
+    }
+
+    private static String typeOf(Object value) {
+        if (value == null) {
+            return "null";
+        }
+        if (value instanceof String) {
+            return "string";
+        }
+        if (value instanceof Boolean) {
+            return "boolean";
+        }
+        if (isIntegral(value)) {
+            return "integer";
+        }
+        if (value instanceof Number) {
+            return "number";
+        }
+        if (value instanceof List<?>) {
+            return "array";
+        }
+        if (value instanceof Map<?, ?>) {
+            return "object";
+        }
+        return value.getClass().getSimpleName();
+    }
+
+    private static String preview(Object value) {
+        String text;
+        try {
+            text = MAPPER.writeValueAsString(value);
+        } catch (Exception e) {
+            text = String.valueOf(value);
+        }
+        return text.length() > 80 ? text.substring(0, 77) + "..." : text;
+    }
+}
@@ -0,0 +1,32 @@
+package cn.chollter.agent.demo.mcp;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+
+import java.util.Map;
+
+/**
+ * 工具调用的规范化标识
+ * 参数序列化为键有序的 JSON，键顺序不同但内容相同的参数得到相同的标识
+ *
+ * @param tool      工具注册名（server:tool）
+ * @param arguments 规范化后的参数 JSON
+ */
+public record ToolCallKey(String tool, String arguments) {
+
+    private static final ObjectMapper CANONICAL = JsonMapper.builder()
+            .enable(MapperFeature.SORT_PROPERTIES_ALPHABETICALLY)
+            .enable(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS)
+            .build();
+
+    public static ToolCallKey of(String tool, Map<String, Object> arguments) {
+        try {
+            return new ToolCallKey(tool, CANONICAL.writeValueAsString(arguments == null ? Map.of() : arguments));
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("工具参数无法序列化: " + tool, e);
+        }
+    }
+}
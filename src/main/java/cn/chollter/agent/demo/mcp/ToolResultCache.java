@@ -0,0 +1,316 @@
+package cn.chollter.agent.demo.mcp;
+
+import cn.chollter.agent.demo.config.McpConfig;
+import cn.chollter.agent.demo.mcp.dto.CallToolResult;
+import cn.chollter.agent.demo.mcp.dto.ContentBlock;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * MCP工具结果缓存
+ * 两级缓存：本节点 Caffeine 在前，Redis 在后，多个节点共享结果
+ * - 键为工具名加规范化参数的 SHA-256，参数键顺序不影响命中
+ * - 每条结果按工具配置的 TTL 过期，两级使用相同的 TTL
+ * - 工具级错误（isError）和落盘的内容不缓存：句柄只在本节点有效
+ * - Redis 读写在独立线程上执行，不可用时退化为只用本节点缓存；本地工具通过 get 在调用线程上同步读取
+ */
+@Slf4j
+@Component
+public class ToolResultCache {
+
+    private static final String REDIS_KEY_PREFIX = "mcp:tool-result:";
+    private static final AtomicInteger threadCounter = new AtomicInteger();
+
+    private record Entry(String text, long ttlNanos) {
+    }
+
+    /**
+     * 单个工具的命中统计
+     */
+    private static final class ToolStats {
+        final LongAdder localHits = new LongAdder();
+        final LongAdder redisHits = new LongAdder();
+        final LongAdder misses = new LongAdder();
+    }
+
+    private final boolean enabled;
+    private final StringRedisTemplate redisTemplate;
+    private final MeterRegistry meterRegistry;
+    private final Cache<ToolCallKey, Entry> local;
+    private final Map<String, ToolStats> toolStats = new ConcurrentHashMap<>();
+    private final ThreadPoolExecutor redisExecutor;
+
+    @Autowired
+    public ToolResultCache(McpConfig mcpConfig, ObjectProvider<StringRedisTemplate> redisTemplate,
+                           MeterRegistry meterRegistry) {
+        this(mcpConfig, mcpConfig.getToolCache().isRedisEnabled() ? redisTemplate.getIfAvailable() : null, meterRegistry);
+    }
+
+    /**
+     * @param redisTemplate 为 null 时只使用本节点缓存
+     */
+    ToolResultCache(McpConfig mcpConfig, StringRedisTemplate redisTemplate, MeterRegistry meterRegistry) {
+        McpConfig.ToolCache config = mcpConfig.getToolCache();
+        this.enabled = config.isEnabled();
+        this.redisTemplate = redisTemplate;
+        this.meterRegistry = meterRegistry;
+        this.local = Caffeine.newBuilder()
+                .maximumSize(config.getLocalMaxEntries())
+                .expireAfter(new Expiry<ToolCallKey, Entry>() {
+                    @Override
+                    public long expireAfterCreate(ToolCallKey key, Entry entry, long currentTime) {
+                        return entry.ttlNanos();
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(ToolCallKey key, Entry entry, long currentTime, long currentDuration) {
+                        return entry.ttlNanos();
+                    }
+
+                    @Override
+                    public long expireAfterRead(ToolCallKey key, Entry entry, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+
+        // 队列满时丢弃：读请求退化为未命中，写请求只写入本节点
+        this.redisExecutor = new ThreadPoolExecutor(2, 2, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(1000), r -> {
+                    Thread thread = new Thread(r, "MCP-ToolCache-" + threadCounter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 查询本节点缓存，不访问 Redis
+     *
+     * @return 未命中时返回 null
+     */
+    public String getLocal(ToolCallKey key) {
+        Entry entry = local.getIfPresent(key);
+        if (entry == null) {
+            return null;
+        }
+        stats(key.tool()).localHits.increment();
+        return entry.text();
+    }
+
+    /**
+     * 同步查询两级缓存：本节点未命中时在调用线程上读取 Redis，命中后写入本节点
+     * 用于在调用线程上直接执行的本地工具
+     *
+     * @param ttl 从 Redis 取回的结果在本节点的缓存时间
+     * @return 未命中时返回 null
+     */
+    public String get(ToolCallKey key, Duration ttl) {
+        String cached = getLocal(key);
+        if (cached != null) {
+            return cached;
+        }
+        if (redisTemplate != null) {
+            try {
+                cached = redisTemplate.opsForValue().get(redisKey(key));
+            } catch (Exception e) {
+                log.debug("读取Redis工具结果缓存失败: {}", key.tool(), e);
+            }
+        }
+        if (cached == null) {
+            stats(key.tool()).misses.increment();
+            return null;
+        }
+        stats(key.tool()).redisHits.increment();
+        local.put(key, new Entry(cached, ttl.toNanos()));
+        return cached;
+    }
+
+    /**
+     * 本节点未命中时调用：先查 Redis，仍未命中再执行 loader，可缓存的结果写回两级缓存
+     * 返回的 future 被取消时，正在执行的 loader 调用一并取消
+     *
+     * @param ttl    结果缓存时间
+     * @param loader 实际调用工具
+     */
+    public CompletableFuture<String> load(ToolCallKey key, Duration ttl,
+                                          Supplier<CompletableFuture<CallToolResult>> loader) {
+        CompletableFuture<String> result = new CompletableFuture<>();
+        readRemote(key).whenComplete((cached, error) -> {
+            if (cached != null) {
+                stats(key.tool()).redisHits.increment();
+                local.put(key, new Entry(cached, ttl.toNanos()));
+                result.complete(cached);
+                return;
+            }
+            stats(key.tool()).misses.increment();
+            if (result.isDone()) {
+                return;
+            }
+
+            CompletableFuture<CallToolResult> call;
+            try {
+                call = loader.get();
+            } catch (RuntimeException e) {
+                result.completeExceptionally(e);
+                return;
+            }
+            result.whenComplete((value, cause) -> {
+                if (result.isCancelled()) {
+                    McpFutures.cancel(call, cause);
+                }
+            });
+            call.whenComplete((callResult, cause) -> {
+                if (cause != null) {
+                    result.completeExceptionally(cause);
+                    return;
+                }
+                String text = callResult.joinText();
+                if (isStorable(callResult)) {
+                    put(key, text, ttl);
+                }
+                result.complete(text);
+            });
+        });
+        return result;
+    }
+
+    private CompletableFuture<String> readRemote(ToolCallKey key) {
+        if (redisTemplate == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        try {
+            return CompletableFuture.supplyAsync(() -> redisTemplate.opsForValue().get(redisKey(key)), redisExecutor)
+                    .exceptionally(e -> {
+                        log.debug("读取Redis工具结果缓存失败: {}", key.tool(), e);
+                        return null;
+                    });
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.completedFuture(null);
+        }
+    }
+
+    /**
+     * 写入两级缓存，Redis 异步写入
+     * 调用方负责判断结果是否可以缓存
+     */
+    public void put(ToolCallKey key, String text, Duration ttl) {
+        local.put(key, new Entry(text, ttl.toNanos()));
+        if (redisTemplate == null) {
+            return;
+        }
+        try {
+            redisExecutor.execute(() -> {
+                try {
+                    redisTemplate.opsForValue().set(redisKey(key), text, ttl);
+                } catch (Exception e) {
+                    log.debug("写入Redis工具结果缓存失败: {}", key.tool(), e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            log.debug("Redis工具结果缓存写入队列已满，只写入本节点: {}", key.tool());
+        }
+    }
+
+    /**
+     * 工具级错误不缓存；落盘内容的句柄只在本节点有效且会过期，同样不缓存
+     */
+    private static boolean isStorable(CallToolResult result) {
+        return !result.isError() && result.content().stream().noneMatch(ContentBlock::isSpilled);
+    }
+
+    static String redisKey(ToolCallKey key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                    .digest(key.arguments().getBytes(StandardCharsets.UTF_8));
+            return REDIS_KEY_PREFIX + key.tool() + ":" + HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 首次访问某个工具时注册该工具的命中、未命中和条目数指标
+     */
+    private ToolStats stats(String tool) {
+        return toolStats.computeIfAbsent(tool, name -> {
+            ToolStats stats = new ToolStats();
+            FunctionCounter.builder("mcp.tool.cache.hits", stats.localHits, LongAdder::sum)
+                    .description("工具结果缓存命中次数")
+                    .tags("tool", name, "tier", "local")
+                    .register(meterRegistry);
+            FunctionCounter.builder("mcp.tool.cache.hits", stats.redisHits, LongAdder::sum)
+                    .description("工具结果缓存命中次数")
+                    .tags("tool", name, "tier", "redis")
+                    .register(meterRegistry);
+            FunctionCounter.builder("mcp.tool.cache.misses", stats.misses, LongAdder::sum)
+                    .description("工具结果缓存未命中次数")
+                    .tag("tool", name)
+                    .register(meterRegistry);
+            Gauge.builder("mcp.tool.cache.size", local, cache -> localSize(cache, name))
+                    .description("本节点缓存的工具结果数")
+                    .tag("tool", name)
+                    .register(meterRegistry);
+            return stats;
+        });
+    }
+
+    private static long localSize(Cache<ToolCallKey, Entry> cache, String tool) {
+        return cache.asMap().keySet().stream().filter(key -> key.tool().equals(tool)).count();
+    }
+
+    /**
+     * 获取缓存统计信息
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> tools = new LinkedHashMap<>();
+        toolStats.forEach((name, stats) -> tools.put(name, Map.of(
+                "localHits", stats.localHits.sum(),
+                "redisHits", stats.redisHits.sum(),
+                "misses", stats.misses.sum(),
+                "size", localSize(local, name)
+        )));
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("redis", redisTemplate != null);
+        stats.put("size", local.estimatedSize());
+        stats.put("tools", tools);
+        return stats;
+    }
+
+    @PreDestroy
+    public void destroy() {
+        redisExecutor.shutdownNow();
+    }
+}
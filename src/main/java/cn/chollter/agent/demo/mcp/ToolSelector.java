@@ -0,0 +1,73 @@
+package cn.chollter.agent.demo.mcp;
+
+import java.util.Collection;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * 单次请求可见的MCP工具范围
+ * 工具所在服务器的标签命中 tags 之一，或工具名命中 names 之一即可见；两者都为空时不做限制
+ * names 可以写完整名称（github:create_issue）、不带服务器前缀的工具名（create_issue），或以 * 结尾的前缀（github:*）
+ *
+ * @param tags  服务器标签
+ * @param names 工具名过滤
+ */
+public record ToolSelector(Set<String> tags, Set<String> names) {
+
+    public static final ToolSelector ALL = new ToolSelector(Set.of(), Set.of());
+
+    public ToolSelector {
+        tags = clean(tags);
+        names = clean(names);
+    }
+
+    public static ToolSelector of(Collection<String> tags, Collection<String> names) {
+        return new ToolSelector(clean(tags), clean(names));
+    }
+
+    /**
+     * 去掉请求中的 null 和空白项，其余去除首尾空白
+     */
+    private static Set<String> clean(Collection<String> values) {
+        if (values == null) {
+            return Set.of();
+        }
+        return values.stream()
+                .filter(value -> value != null && !value.isBlank())
+                .map(String::strip)
+                .collect(Collectors.toUnmodifiableSet());
+    }
+
+    /**
+     * 是否不做任何限制
+     */
+    public boolean isEmpty() {
+        return tags.isEmpty() && names.isEmpty();
+    }
+
+    /**
+     * @param fullName   工具注册名（server:tool）
+     * @param toolName   服务器上的工具名
+     * @param serverTags 提供该工具的所有服务器的标签
+     */
+    public boolean matches(String fullName, String toolName, Set<String> serverTags) {
+        if (isEmpty()) {
+            return true;
+        }
+        for (String tag : serverTags) {
+            if (tags.contains(tag)) {
+                return true;
+            }
+        }
+        for (String name : names) {
+            if (name.endsWith("*")) {
+                if (fullName.startsWith(name.substring(0, name.length() - 1))) {
+                    return true;
+                }
+            } else if (name.equals(fullName) || name.equals(toolName)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,98 @@
+package cn.chollter.agent.demo.mcp.content;
+
+import cn.chollter.agent.demo.mcp.dto.ContentBlock;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.io.Serial;
+
+/**
+ * 内容块反序列化
+ * text、data 以及内嵌资源的 text/blob 超过阈值时直接从解析器落盘，内容块中只保留预览和句柄
+ */
+public class ContentBlockDeserializer extends StdDeserializer<ContentBlock> {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    private final transient ContentStore store;
+
+    public ContentBlockDeserializer(ContentStore store) {
+        super(ContentBlock.class);
+        this.store = store;
+    }
+
+    @Override
+    public ContentBlock deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+        String type = null;
+        String text = null;
+        String data = null;
+        String mimeType = null;
+        JsonNode resource = null;
+        ContentHandle handle = null;
+
+        JsonToken token = parser.currentToken() == JsonToken.START_OBJECT ? parser.nextToken() : parser.currentToken();
+        for (; token == JsonToken.FIELD_NAME; token = parser.nextToken()) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            switch (field) {
+                case "type" -> type = parser.getValueAsString();
+                case "mimeType" -> mimeType = parser.getValueAsString();
+                case "text" -> {
+                    if (value == JsonToken.VALUE_STRING && store.shouldSpill(parser)) {
+                        text = store.preview(parser);
+                        handle = store.spillText(parser);
+                    } else {
+                        text = parser.getValueAsString();
+                    }
+                }
+                case "data" -> {
+                    if (value == JsonToken.VALUE_STRING && store.shouldSpill(parser)) {
+                        handle = store.spillBase64(parser);
+                    } else {
+                        data = parser.getValueAsString();
+                    }
+                }
+                case "resource" -> {
+                    if (value == JsonToken.START_OBJECT) {
+                        ObjectNode node = JsonNodeFactory.instance.objectNode();
+                        handle = readResource(parser, context, node);
+                        resource = node;
+                    } else {
+                        resource = context.readTree(parser);
+                    }
+                }
+                default -> parser.skipChildren();
+            }
+        }
+        return new ContentBlock(type, text, data, mimeType, resource, handle);
+    }
+
+    /**
+     * 读取内嵌资源，text 超过阈值时替换为预览，blob 超过阈值时移除并落盘
+     */
+    private ContentHandle readResource(JsonParser parser, DeserializationContext context, ObjectNode node)
+            throws IOException {
+        ContentHandle handle = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            boolean large = value == JsonToken.VALUE_STRING && store.shouldSpill(parser);
+            if (large && "text".equals(field)) {
+                node.put(field, store.preview(parser));
+                handle = store.spillText(parser);
+            } else if (large && "blob".equals(field)) {
+                handle = store.spillBase64(parser);
+            } else {
+                node.set(field, context.readTree(parser));
+            }
+        }
+        return handle;
+    }
+}
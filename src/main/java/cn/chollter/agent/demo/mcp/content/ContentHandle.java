@@ -0,0 +1,15 @@
+package cn.chollter.agent.demo.mcp.content;
+
+import java.nio.file.Path;
+
+/**
+ * 落盘内容的句柄
+ * 超过阈值的内容块写入临时文件，工具结果中只保留预览和句柄，完整内容按需读取
+ *
+ * @param id     句柄ID
+ * @param path   临时文件路径
+ * @param size   内容字节数（文本为 UTF-8 字节数，二进制为解码后的字节数）
+ * @param binary 是否为二进制内容（image/audio 的 base64 已解码后保存）
+ */
+public record ContentHandle(String id, Path path, long size, boolean binary) {
+}
@@ -0,0 +1,245 @@
+package cn.chollter.agent.demo.mcp.content;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * 大内容落盘存储
+ * 工具结果中超过阈值的 text/data 直接从解析器的字符缓冲流式写入临时文件，不生成完整的 String；
+ * 读取时通过内存映射按需加载。句柄在一段时间未访问后过期，临时文件随之删除
+ */
+@Slf4j
+public class ContentStore implements AutoCloseable {
+
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    private static volatile ContentStore defaultStore;
+
+    private final int thresholdChars;
+    private final int previewChars;
+    private final Path directory;
+    private final Cache<String, ContentHandle> handles;
+
+    public ContentStore(int thresholdChars, int previewChars, Duration ttl) throws IOException {
+        this.thresholdChars = thresholdChars;
+        this.previewChars = previewChars;
+        this.directory = Files.createTempDirectory("mcp-content-");
+        this.handles = Caffeine.newBuilder()
+                .expireAfterAccess(ttl)
+                // 在调用线程上删除文件，close 时目录删除前文件已全部清理
+                .executor(Runnable::run)
+                .removalListener((String id, ContentHandle handle, RemovalCause cause) -> delete(handle))
+                .build();
+    }
+
+    /**
+     * 未显式配置时使用的默认存储：256K 字符以上落盘，预览 4000 字符，30 分钟过期
+     */
+    public static ContentStore defaultStore() {
+        if (defaultStore == null) {
+            synchronized (ContentStore.class) {
+                if (defaultStore == null) {
+                    try {
+                        defaultStore = new ContentStore(256 * 1024, 4000, Duration.ofMinutes(30));
+                    } catch (IOException e) {
+                        throw new IllegalStateException("无法创建MCP内容临时目录", e);
+                    }
+                }
+            }
+        }
+        return defaultStore;
+    }
+
+    /**
+     * 解析器当前的字符串值是否需要落盘
+     */
+    public boolean shouldSpill(JsonParser parser) throws IOException {
+        return parser.getTextLength() > thresholdChars;
+    }
+
+    /**
+     * 当前字符串值的预览
+     */
+    public String preview(JsonParser parser) throws IOException {
+        return new String(parser.getTextCharacters(), parser.getTextOffset(),
+                Math.min(parser.getTextLength(), previewChars));
+    }
+
+    /**
+     * 将解析器当前的字符串值以 UTF-8 写入临时文件
+     */
+    public ContentHandle spillText(JsonParser parser) throws IOException {
+        CharBuffer in = CharBuffer.wrap(parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength());
+        Path path = newFile();
+        long size = 0;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+            ByteBuffer out = ByteBuffer.allocate(CHUNK_SIZE);
+            CoderResult result;
+            do {
+                result = encoder.encode(in, out, true);
+                size += flush(out, channel);
+            } while (result.isOverflow());
+            encoder.flush(out);
+            size += flush(out, channel);
+        }
+        return register(path, size, false);
+    }
+
+    /**
+     * 将已有的文本以 UTF-8 写入临时文件，用于保留被压缩的观察结果原文
+     */
+    public ContentHandle storeText(String text) throws IOException {
+        Path path = newFile();
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            writeFully(ByteBuffer.wrap(bytes), channel);
+        }
+        return register(path, bytes.length, false);
+    }
+
+    /**
+     * 将解析器当前的 base64 字符串解码后写入临时文件
+     */
+    public ContentHandle spillBase64(JsonParser parser) throws IOException {
+        char[] chars = parser.getTextCharacters();
+        int offset = parser.getTextOffset();
+        int length = parser.getTextLength();
+        Base64.Decoder decoder = Base64.getDecoder();
+        Path path = newFile();
+        long size = 0;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            // 按 4 的整数倍分块解码，避免拆开 base64 分组
+            byte[] chunk = new byte[CHUNK_SIZE];
+            for (int start = 0; start < length; start += CHUNK_SIZE) {
+                int count = Math.min(CHUNK_SIZE, length - start);
+                for (int i = 0; i < count; i++) {
+                    chunk[i] = (byte) chars[offset + start + i];
+                }
+                byte[] encoded = count == CHUNK_SIZE ? chunk : Arrays.copyOf(chunk, count);
+                size += writeFully(ByteBuffer.wrap(decoder.decode(encoded)), channel);
+            }
+        } catch (IllegalArgumentException e) {
+            Files.deleteIfExists(path);
+            throw new IOException("base64 内容无效: " + e.getMessage(), e);
+        }
+        return register(path, size, true);
+    }
+
+    /**
+     * 写出编码缓冲中已填充的部分并清空缓冲
+     */
+    private static long flush(ByteBuffer buffer, FileChannel channel) throws IOException {
+        buffer.flip();
+        long written = writeFully(buffer, channel);
+        buffer.clear();
+        return written;
+    }
+
+    private static long writeFully(ByteBuffer buffer, FileChannel channel) throws IOException {
+        long written = 0;
+        while (buffer.hasRemaining()) {
+            written += channel.write(buffer);
+        }
+        return written;
+    }
+
+    private Path newFile() throws IOException {
+        return Files.createFile(directory.resolve(UUID.randomUUID().toString()));
+    }
+
+    private ContentHandle register(Path path, long size, boolean binary) {
+        ContentHandle handle = new ContentHandle(path.getFileName().toString(), path, size, binary);
+        handles.put(handle.id(), handle);
+        log.debug("MCP内容已落盘: {} ({} 字节)", handle.id(), size);
+        return handle;
+    }
+
+    /**
+     * 按句柄查找（访问会刷新过期时间）
+     */
+    public Optional<ContentHandle> get(String id) {
+        return Optional.ofNullable(handles.getIfPresent(id));
+    }
+
+    /**
+     * 内存映射读取完整内容
+     */
+    public ByteBuffer map(String id) throws IOException {
+        ContentHandle handle = get(id).orElseThrow(() -> new IOException("内容句柄不存在或已过期: " + id));
+        try (FileChannel channel = FileChannel.open(handle.path(), StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, handle.size());
+            return buffer.asReadOnlyBuffer();
+        }
+    }
+
+    /**
+     * 读取完整文本内容
+     */
+    public String readText(String id) throws IOException {
+        return StandardCharsets.UTF_8.decode(map(id)).toString();
+    }
+
+    /**
+     * 按字节范围读取文本内容，范围边界上被截断的字符以替换字符表示
+     */
+    public String readText(String id, long offset, int length) throws IOException {
+        ByteBuffer buffer = map(id);
+        int start = (int) Math.min(Math.max(0, offset), buffer.limit());
+        int end = (int) Math.min((long) start + Math.max(0, length), buffer.limit());
+        return StandardCharsets.UTF_8.decode(buffer.slice(start, end - start)).toString();
+    }
+
+    /**
+     * 释放句柄并删除临时文件
+     */
+    public void release(String id) {
+        handles.invalidate(id);
+    }
+
+    private void delete(ContentHandle handle) {
+        if (handle == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(handle.path());
+        } catch (IOException e) {
+            log.warn("删除MCP内容临时文件失败: {}", handle.path(), e);
+        }
+    }
+
+    public int getPreviewChars() {
+        return previewChars;
+    }
+
+    @Override
+    public void close() {
+        handles.invalidateAll();
+        handles.cleanUp();
+        try {
+            Files.deleteIfExists(directory);
+        } catch (IOException e) {
+            log.warn("删除MCP内容临时目录失败: {}", directory, e);
+        }
+    }
+}
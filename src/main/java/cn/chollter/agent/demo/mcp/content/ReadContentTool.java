@@ -0,0 +1,80 @@
+package cn.chollter.agent.demo.mcp.content;
+
+import cn.chollter.agent.demo.agent.Tool;
+import cn.chollter.agent.demo.mcp.McpManager;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * 读取落盘内容的工具
+ * MCP 工具结果过长时只返回预览和句柄，模型可以用此工具按字节范围分段读取完整内容
+ */
+@Slf4j
+@Component
+public class ReadContentTool implements Tool {
+
+    public static final String NAME = "read_mcp_content";
+
+    private static final int DEFAULT_LENGTH = 16000;
+    private static final int MAX_LENGTH = 64000;
+
+    private final McpManager mcpManager;
+
+    public ReadContentTool(McpManager mcpManager) {
+        this.mcpManager = mcpManager;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public String getDescription() {
+        return "分段读取被截断的MCP工具结果。当工具结果末尾出现“句柄: xxx”时，用该句柄和字节偏移读取后续内容";
+    }
+
+    /**
+     * 分段读取的结果本身已按 length 限制，不再压缩，否则会再次生成句柄
+     */
+    @Override
+    public Integer getMaxObservationTokens() {
+        return MAX_LENGTH;
+    }
+
+    @Override
+    public String getParameterSchema() {
+        return """
+                {"type":"object","properties":{\
+                "handle":{"type":"string","description":"内容句柄"},\
+                "offset":{"type":"integer","description":"起始字节偏移，默认0"},\
+                "length":{"type":"integer","description":"读取字节数，默认16000，最大64000"}},\
+                "required":["handle"]}""";
+    }
+
+    @Override
+    public String execute(Map<String, Object> parameters) {
+        String handle = String.valueOf(parameters.get("handle"));
+        long offset = parameters.get("offset") instanceof Number n ? n.longValue() : 0;
+        int length = parameters.get("length") instanceof Number n ? Math.min(n.intValue(), MAX_LENGTH) : DEFAULT_LENGTH;
+
+        ContentStore store = mcpManager.getContentStore();
+        return store.get(handle).map(content -> {
+            if (content.binary()) {
+                return "Error: 句柄 " + handle + " 是二进制内容（" + content.size() + " 字节），无法以文本读取";
+            }
+            try {
+                String text = store.readText(handle, offset, length);
+                long end = Math.min(content.size(), offset + length);
+                return end < content.size()
+                        ? text + "\n...[已读取到 " + end + "/" + content.size() + " 字节，继续读取请使用 offset=" + end + "]"
+                        : text;
+            } catch (Exception e) {
+                log.error("读取落盘内容失败: {}", handle, e);
+                return "Error: 读取内容失败 - " + e.getMessage();
+            }
+        }).orElse("Error: 内容句柄不存在或已过期: " + handle);
+    }
+}
@@ -0,0 +1,43 @@
+package cn.chollter.agent.demo.mcp.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+import java.util.List;
+
+/**
+ * tools/call 结果
+ *
+ * @param content 内容块列表
+ * @param isError 工具是否执行失败（工具级错误，不是协议错误）
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record CallToolResult(List<ContentBlock> content, boolean isError) {
+
+    /**
+     * 失败结果的前缀
+     */
+    public static final String ERROR_PREFIX = "Error: ";
+
+    public CallToolResult {
+        content = content != null ? content : List.of();
+    }
+
+    /**
+     * 拼接所有内容块：文本原样拼接，图片、音频和资源给出摘要，落盘的内容只包含预览和句柄
+     * 工具执行失败时以 "Error: " 开头，与本地工具的失败结果一致，模型和调用方据此识别失败
+     */
+    public String joinText() {
+        String text;
+        if (content.size() == 1) {
+            text = content.get(0).render();
+        } else {
+            StringBuilder sb = new StringBuilder();
+            for (ContentBlock block : content) {
+                if (!sb.isEmpty()) sb.append("\n");
+                sb.append(block.render());
+            }
+            text = sb.toString();
+        }
+        return isError && !text.startsWith(ERROR_PREFIX) ? ERROR_PREFIX + text : text;
+    }
+}
@@ -0,0 +1,58 @@
+package cn.chollter.agent.demo.mcp.dto;
+
+import cn.chollter.agent.demo.mcp.content.ContentHandle;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * 工具结果中的内容块
+ * type 为 text 时使用 text；image/audio 时使用 data（base64）和 mimeType；resource 时使用 resource
+ * 超过阈值的内容落盘后由 handle 引用，此时 text 为预览，data 为 null
+ *
+ * @param type     内容类型：text、image、audio、resource
+ * @param text     文本内容
+ * @param data     base64 编码的二进制内容
+ * @param mimeType MIME 类型
+ * @param resource 内嵌资源
+ * @param handle   落盘内容的句柄
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record ContentBlock(String type, String text, String data, String mimeType, JsonNode resource,
+                           @JsonIgnore ContentHandle handle) {
+
+    public boolean isText() {
+        return "text".equals(type) || (type == null && text != null);
+    }
+
+    public boolean isSpilled() {
+        return handle != null;
+    }
+
+    /**
+     * 渲染为提示词中的文本：文本直接返回，二进制和资源给出摘要，落盘内容附带句柄
+     */
+    public String render() {
+        if (isText()) {
+            String value = text != null ? text : "";
+            return isSpilled()
+                    ? value + "\n...[内容过长已截断，完整内容 " + handle.size() + " 字节，句柄: " + handle.id() + "]"
+                    : value;
+        }
+        if ("resource".equals(type) && resource != null) {
+            String uri = resource.path("uri").asText();
+            if (resource.hasNonNull("text")) {
+                String value = resource.get("text").asText();
+                return isSpilled()
+                        ? value + "\n...[资源 " + uri + " 过长已截断，完整内容 " + handle.size() + " 字节，句柄: " + handle.id() + "]"
+                        : value;
+            }
+            return "[资源: " + uri + (isSpilled() ? "，" + handle.size() + " 字节，句柄: " + handle.id() : "") + "]";
+        }
+        long size = isSpilled() ? handle.size() : data != null ? data.length() * 3L / 4 : 0;
+        return "[" + type + ": " + (mimeType != null ? mimeType : "未知类型") + "，" + size + " 字节"
+                + (isSpilled() ? "，句柄: " + handle.id() : "") + "]";
+    }
+}
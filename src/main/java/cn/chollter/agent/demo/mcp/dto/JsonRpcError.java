@@ -0,0 +1,15 @@
+package cn.chollter.agent.demo.mcp.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * JSON-RPC 2.0 错误对象
+ *
+ * @param code    错误码
+ * @param message 错误信息
+ * @param data    附加数据（可选）
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record JsonRpcError(int code, String message, JsonNode data) {
+}
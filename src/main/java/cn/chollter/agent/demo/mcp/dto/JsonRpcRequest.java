@@ -0,0 +1,24 @@
+package cn.chollter.agent.demo.mcp.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * JSON-RPC 2.0 请求/通知
+ * id 为 null 时即为通知，序列化时省略
+ *
+ * @param jsonrpc 协议版本，固定为 "2.0"
+ * @param id      请求ID
+ * @param method  方法名
+ * @param params  参数
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record JsonRpcRequest(String jsonrpc, Long id, String method, Object params) {
+
+    public static JsonRpcRequest request(long id, String method, Object params) {
+        return new JsonRpcRequest("2.0", id, method, params);
+    }
+
+    public static JsonRpcRequest notification(String method, Object params) {
+        return new JsonRpcRequest("2.0", null, method, params);
+    }
+}
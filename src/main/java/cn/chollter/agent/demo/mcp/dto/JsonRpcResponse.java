@@ -0,0 +1,16 @@
+package cn.chollter.agent.demo.mcp.dto;
+
+/**
+ * JSON-RPC 2.0 响应
+ * result 已按请求时登记的类型解析，error 与 result 互斥
+ *
+ * @param id     请求ID
+ * @param result 类型化的结果
+ * @param error  错误对象
+ */
+public record JsonRpcResponse<T>(long id, T result, JsonRpcError error) {
+
+    public boolean isError() {
+        return error != null;
+    }
+}
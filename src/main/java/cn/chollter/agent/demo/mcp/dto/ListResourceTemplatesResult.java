@@ -0,0 +1,19 @@
+package cn.chollter.agent.demo.mcp.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+import java.util.List;
+
+/**
+ * resources/templates/list 结果
+ *
+ * @param resourceTemplates 资源模板列表
+ * @param nextCursor        分页游标（没有更多数据时为 null）
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record ListResourceTemplatesResult(List<ResourceTemplate> resourceTemplates, String nextCursor) {
+
+    public ListResourceTemplatesResult {
+        resourceTemplates = resourceTemplates != null ? resourceTemplates : List.of();
+    }
+}
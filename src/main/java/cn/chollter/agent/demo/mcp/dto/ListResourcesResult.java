@@ -0,0 +1,19 @@
+package cn.chollter.agent.demo.mcp.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+import java.util.List;
+
+/**
+ * resources/list 结果
+ *
+ * @param resources  资源列表
+ * @param nextCursor 分页游标（没有更多数据时为 null）
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record ListResourcesResult(List<McpResource> resources, String nextCursor) {
+
+    public ListResourcesResult {
+        resources = resources != null ? resources : List.of();
+    }
+}
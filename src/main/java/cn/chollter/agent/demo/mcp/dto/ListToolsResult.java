@@ -0,0 +1,19 @@
+package cn.chollter.agent.demo.mcp.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+import java.util.List;
+
+/**
+ * tools/list 结果
+ *
+ * @param tools      工具列表
+ * @param nextCursor 分页游标（没有更多数据时为 null）
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record ListToolsResult(List<McpTool> tools, String nextCursor) {
+
+    public ListToolsResult {
+        tools = tools != null ? tools : List.of();
+    }
+}
@@ -0,0 +1,17 @@
+package cn.chollter.agent.demo.mcp.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * MCP 资源元数据（resources/list 返回的单个资源）
+ *
+ * @param uri         资源URI
+ * @param name        资源名称
+ * @param description 资源描述
+ * @param mimeType    MIME 类型
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record McpResource(String uri, String name, String description, String mimeType) {
+}
@@ -0,0 +1,20 @@
+package cn.chollter.agent.demo.mcp.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * MCP 工具定义（tools/list 返回的单个工具）
+ *
+ * @param name        工具名称
+ * @param description 工具描述
+ * @param inputSchema 参数的 JSON Schema
+ * @param annotations 工具注解，只读取不序列化，避免写入发给模型的 schema
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record McpTool(String name, String description, JsonNode inputSchema,
+                      @JsonProperty(access = JsonProperty.Access.WRITE_ONLY) ToolAnnotations annotations) {
+}
@@ -0,0 +1,50 @@
+package cn.chollter.agent.demo.mcp.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+
+/**
+ * resources/read 结果
+ * 一次读取可能返回多个内容项（如读取目录），文本项使用 text，二进制项使用 blob（base64）
+ *
+ * @param contents 内容项列表
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record ResourceContent(List<Item> contents) {
+
+    public ResourceContent {
+        contents = contents != null ? contents : List.of();
+    }
+
+    /**
+     * 单个内容项
+     *
+     * @param uri      资源URI
+     * @param mimeType MIME 类型
+     * @param text     文本内容
+     * @param blob     base64 编码的二进制内容
+     */
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public record Item(String uri, String mimeType, String text, String blob) {
+    }
+
+    /**
+     * 拼接所有文本内容项
+     */
+    public String text() {
+        if (contents.size() == 1) {
+            return contents.get(0).text() != null ? contents.get(0).text() : "";
+        }
+        StringBuilder sb = new StringBuilder();
+        for (Item item : contents) {
+            if (item.text() != null) {
+                if (!sb.isEmpty()) sb.append("\n");
+                sb.append(item.text());
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,17 @@
+package cn.chollter.agent.demo.mcp.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * MCP 资源模板（resources/templates/list 返回的单个模板）
+ *
+ * @param uriTemplate URI 模板（RFC 6570），如 file:///config/{env}/{file}.yml
+ * @param name        模板名称
+ * @param description 模板描述
+ * @param mimeType    MIME 类型
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record ResourceTemplate(String uriTemplate, String name, String description, String mimeType) {
+}
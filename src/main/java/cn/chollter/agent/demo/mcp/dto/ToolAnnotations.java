@@ -0,0 +1,34 @@
+package cn.chollter.agent.demo.mcp.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * MCP 工具注解（tools/list 中的 annotations，2025-03-26 起）
+ * 均为服务器给出的提示，不保证准确
+ *
+ * @param title           展示名称
+ * @param readOnlyHint    工具不修改环境
+ * @param destructiveHint 工具可能执行破坏性修改
+ * @param idempotentHint  相同参数重复调用没有额外影响
+ * @param openWorldHint   工具会与外部系统交互
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record ToolAnnotations(String title, Boolean readOnlyHint, Boolean destructiveHint,
+                              Boolean idempotentHint, Boolean openWorldHint) {
+
+    /**
+     * 服务器声明工具只读
+     */
+    public boolean isReadOnly() {
+        return Boolean.TRUE.equals(readOnlyHint);
+    }
+
+    /**
+     * 服务器声明工具幂等
+     */
+    public boolean isIdempotent() {
+        return Boolean.TRUE.equals(idempotentHint);
+    }
+}
@@ -0,0 +1,12 @@
+package cn.chollter.agent.demo.mcp.dto;
+
+import java.util.Map;
+
+/**
+ * 一次工具调用（用于批量调用）
+ *
+ * @param name      工具名称
+ * @param arguments 调用参数
+ */
+public record ToolCall(String name, Map<String, Object> arguments) {
+}
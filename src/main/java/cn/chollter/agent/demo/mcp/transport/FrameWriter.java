@@ -0,0 +1,230 @@
+package cn.chollter.agent.demo.mcp.transport;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 按行写出 JSON-RPC 消息的单线程写入器
+ * 调用线程只把消息放入无锁队列（多生产者、单消费者）即返回，不在管道或套接字 I/O 上阻塞；
+ * 写线程每次取出队列中积压的全部消息，编码进复用的缓冲区，整批写出后只 flush 一次
+ * 写出目标为通道（套接字）时使用直接缓冲区，写入不经过堆内复制；
+ * 为输出流（进程 stdin）时使用堆缓冲区，直接把底层数组交给流，避免 Channels.newChannel 再复制一次
+ * 同一调用线程发出的消息按发送顺序写出；写入失败后连接视为不可用，之后的消息全部失败
+ */
+@Slf4j
+public final class FrameWriter implements AutoCloseable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_BATCH_FRAMES = 256;
+    private static final long CLOSE_TIMEOUT_MS = 1000;
+
+    private record Frame(String message, CompletableFuture<Void> written) {
+    }
+
+    private final WritableByteChannel channel;
+    private final OutputStream stream;
+    private final ConcurrentLinkedQueue<Frame> queue = new ConcurrentLinkedQueue<>();
+    private final ByteBuffer buffer;
+    // 与 OutputStreamWriter 相同，无法编码的字符（如孤立的代理字符）替换而不是中断连接
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private final Thread thread;
+    // closing：不再接收新消息，写完队列后退出；closed：立即退出，剩余消息失败
+    private volatile boolean closing = false;
+    private volatile boolean closed = false;
+    private volatile IOException failure;
+    private volatile long framesWritten;
+    private volatile long batchesWritten;
+
+    /**
+     * 写出到通道，通道本身无缓冲，每批写完即送出
+     *
+     * @param name    写线程名称后缀
+     * @param channel 写出目标
+     */
+    public FrameWriter(String name, WritableByteChannel channel) {
+        this(name, channel, null, ByteBuffer.allocateDirect(BUFFER_SIZE));
+    }
+
+    /**
+     * 写出到输出流，每批写出后 flush 一次
+     *
+     * @param name   写线程名称后缀
+     * @param stream 写出目标
+     */
+    public FrameWriter(String name, OutputStream stream) {
+        this(name, null, stream, ByteBuffer.allocate(BUFFER_SIZE));
+    }
+
+    private FrameWriter(String name, WritableByteChannel channel, OutputStream stream, ByteBuffer buffer) {
+        this.channel = channel;
+        this.stream = stream;
+        this.buffer = buffer;
+        this.thread = new Thread(this::run, "MCP-Writer-" + name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * 放入发送队列，future 在该消息所在的批次写出并 flush 后完成
+     * future 在写线程上完成，回调中不应执行耗时操作
+     */
+    public CompletableFuture<Void> send(String message) {
+        if (closing || closed) {
+            return CompletableFuture.failedFuture(closedException());
+        }
+        Frame frame = new Frame(message, new CompletableFuture<>());
+        queue.offer(frame);
+        if ((closing || closed) && queue.remove(frame)) {
+            // 与 close 并发时写线程可能已经退出，仍在队列中的消息由调用线程使其失败
+            frame.written().completeExceptionally(closedException());
+        } else {
+            LockSupport.unpark(thread);
+        }
+        return frame.written();
+    }
+
+    private void run() {
+        List<Frame> batch = new ArrayList<>(MAX_BATCH_FRAMES);
+        while (!closed) {
+            Frame first = queue.poll();
+            if (first == null) {
+                if (closing) {
+                    break;
+                }
+                LockSupport.park(this);
+                continue;
+            }
+            batch.add(first);
+            Frame next;
+            while (batch.size() < MAX_BATCH_FRAMES && (next = queue.poll()) != null) {
+                batch.add(next);
+            }
+
+            try {
+                writeBatch(batch);
+            } catch (IOException e) {
+                log.debug("{} 写入失败: {}", thread.getName(), e.getMessage());
+                failure = e;
+                closed = true;
+                batch.forEach(frame -> frame.written().completeExceptionally(e));
+                batch.clear();
+                break;
+            }
+            // 先更新计数再完成 future，等待 future 的调用方能看到本批的计数
+            framesWritten += batch.size();
+            batchesWritten++;
+            batch.forEach(frame -> frame.written().complete(null));
+            batch.clear();
+        }
+        failQueued(closedException());
+    }
+
+    private void writeBatch(List<Frame> batch) throws IOException {
+        buffer.clear();
+        for (Frame frame : batch) {
+            encode(frame.message());
+            if (!buffer.hasRemaining()) {
+                drain();
+            }
+            buffer.put((byte) '\n');
+        }
+        drain();
+        if (stream != null) {
+            stream.flush();
+        }
+    }
+
+    /**
+     * 编码进缓冲区，缓冲区满时先写出，超过缓冲区大小的消息分多次写出
+     */
+    private void encode(String message) throws IOException {
+        CharBuffer chars = CharBuffer.wrap(message);
+        encoder.reset();
+        while (true) {
+            CoderResult result = encoder.encode(chars, buffer, true);
+            if (result.isUnderflow()) {
+                break;
+            }
+            drain();
+        }
+        while (encoder.flush(buffer).isOverflow()) {
+            drain();
+        }
+    }
+
+    private void drain() throws IOException {
+        buffer.flip();
+        if (stream != null) {
+            stream.write(buffer.array(), buffer.arrayOffset(), buffer.limit());
+        } else {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+        buffer.clear();
+    }
+
+    private void failQueued(IOException cause) {
+        Frame frame;
+        while ((frame = queue.poll()) != null) {
+            frame.written().completeExceptionally(cause);
+        }
+    }
+
+    private IOException closedException() {
+        IOException cause = failure;
+        return cause != null ? new IOException("写入失败，连接不可用", cause) : new IOException("连接已关闭");
+    }
+
+    /**
+     * 已写出的消息数
+     */
+    public long getFramesWritten() {
+        return framesWritten;
+    }
+
+    /**
+     * 已写出的批次数（每批一次 flush）
+     */
+    public long getBatchesWritten() {
+        return batchesWritten;
+    }
+
+    /**
+     * 停止接收新消息，写完已入队的消息后停止写线程；不关闭写出目标
+     * 最多等待 {@value #CLOSE_TIMEOUT_MS} ms（如对端不再读取导致写入阻塞），超时后剩余消息失败
+     */
+    @Override
+    public void close() {
+        closing = true;
+        LockSupport.unpark(thread);
+        if (Thread.currentThread() != thread) {
+            try {
+                thread.join(CLOSE_TIMEOUT_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (thread.isAlive()) {
+            closed = true;
+            LockSupport.unpark(thread);
+            failQueued(closedException());
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package cn.chollter.agent.demo.mcp.transport;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * MCP传输层
+ * 只负责收发 JSON-RPC 消息帧，协议处理（请求关联、超时、类型化解析）由 McpClient 完成
+ */
+public interface McpTransport extends AutoCloseable {
+
+    /**
+     * 传输层事件监听器
+     */
+    interface Listener {
+
+        /**
+         * 收到一条消息（单个 JSON-RPC 对象或批量数组）
+         */
+        void onMessage(String message);
+
+        /**
+         * 连接已断开且不会再收到响应，等待中的请求应当失败
+         */
+        void onDisconnected(Throwable cause);
+
+        /**
+         * 连接（或会话）已重建，需要重新完成初始化握手
+         */
+        default void onReconnected() {
+        }
+    }
+
+    /**
+     * 建立连接并开始接收消息
+     */
+    void start(Listener listener) throws IOException;
+
+    /**
+     * 发送一条消息，future 在消息写出（或被服务器接收）后完成
+     */
+    CompletableFuture<Void> send(String message);
+
+    /**
+     * 连接是否可用
+     */
+    boolean isAlive();
+
+    /**
+     * 关闭连接时是否通知服务器退出（shutdown / notifications/exit）
+     * 服务器进程归本连接所有时为 true；连接的是多个客户端共享的服务器时应为 false，以免关闭一个连接就让服务器退出
+     */
+    default boolean ownsServer() {
+        return true;
+    }
+
+    /**
+     * 传输层描述（用于日志）
+     */
+    String describe();
+
+    @Override
+    void close();
+}
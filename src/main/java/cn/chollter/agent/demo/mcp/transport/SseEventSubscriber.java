@@ -0,0 +1,84 @@
+package cn.chollter.agent.demo.mcp.transport;
+
+import java.util.concurrent.Flow;
+import java.util.function.BiConsumer;
+
+/**
+ * Server-Sent Events 解析器
+ * 作为 HttpClient 的行订阅者使用，按空行切分事件，将 (event, data) 交给回调
+ */
+class SseEventSubscriber implements Flow.Subscriber<String> {
+
+    private final BiConsumer<String, String> eventHandler;
+    private final StringBuilder data = new StringBuilder();
+    private String event;
+    private Flow.Subscription subscription;
+
+    SseEventSubscriber(BiConsumer<String, String> eventHandler) {
+        this.eventHandler = eventHandler;
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        this.subscription = subscription;
+        subscription.request(Long.MAX_VALUE);
+    }
+
+    @Override
+    public void onNext(String line) {
+        if (line.isEmpty()) {
+            dispatch();
+            return;
+        }
+        if (line.startsWith(":")) {
+            // 注释行（常用作心跳）
+            return;
+        }
+
+        int colon = line.indexOf(':');
+        String field = colon < 0 ? line : line.substring(0, colon);
+        String value = colon < 0 ? "" : line.substring(colon + 1);
+        if (value.startsWith(" ")) {
+            value = value.substring(1);
+        }
+
+        switch (field) {
+            case "event" -> event = value;
+            case "data" -> {
+                if (!data.isEmpty()) data.append('\n');
+                data.append(value);
+            }
+            default -> {
+                // id、retry 等字段不需要处理
+            }
+        }
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        data.setLength(0);
+        event = null;
+    }
+
+    @Override
+    public void onComplete() {
+        dispatch();
+    }
+
+    /**
+     * 取消订阅（关闭底层连接）
+     */
+    void cancel() {
+        if (subscription != null) {
+            subscription.cancel();
+        }
+    }
+
+    private void dispatch() {
+        if (!data.isEmpty()) {
+            eventHandler.accept(event != null ? event : "message", data.toString());
+        }
+        data.setLength(0);
+        event = null;
+    }
+}
@@ -0,0 +1,176 @@
+package cn.chollter.agent.demo.mcp.transport;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * HTTP+SSE 传输（MCP 2024-11-05 规范）
+ * GET 建立 SSE 长连接，服务器先推送 endpoint 事件告知消息提交地址，之后所有响应都从该流返回；
+ * 请求通过 POST 提交到 endpoint。长连接断开后按指数退避自动重连，并通知客户端重新握手。
+ */
+@Slf4j
+public class SseTransport implements McpTransport {
+
+    private static final long MAX_RECONNECT_DELAY_MS = 30000;
+
+    private final String serverName;
+    private final URI sseUri;
+    private final Map<String, String> headers;
+    private final Duration connectTimeout;
+    private final HttpClient httpClient;
+    private volatile Listener listener;
+    private volatile URI messageUri;
+    private volatile CompletableFuture<URI> endpointFuture;
+    private volatile SseEventSubscriber eventStream;
+    private volatile boolean running = false;
+    private volatile long reconnectDelayMs = 1000;
+
+    public SseTransport(String serverName, URI sseUri, Map<String, String> headers, Duration connectTimeout) {
+        this.serverName = serverName;
+        this.sseUri = sseUri;
+        this.headers = headers != null ? Map.copyOf(headers) : Map.of();
+        this.connectTimeout = connectTimeout;
+        this.httpClient = HttpClient.newBuilder()
+                .connectTimeout(connectTimeout)
+                .build();
+    }
+
+    @Override
+    public void start(Listener listener) throws IOException {
+        this.listener = listener;
+        this.running = true;
+        log.info("连接MCP服务器: {} 地址: {}", serverName, sseUri);
+
+        try {
+            connect().get(connectTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            close();
+            throw new IOException("连接被中断", e);
+        } catch (ExecutionException | TimeoutException e) {
+            close();
+            throw new IOException("连接MCP服务器失败: " + sseUri, e);
+        }
+    }
+
+    /**
+     * 打开 SSE 长连接，返回的 future 在收到 endpoint 事件后完成
+     */
+    private CompletableFuture<URI> connect() {
+        CompletableFuture<URI> endpoint = new CompletableFuture<>();
+        endpointFuture = endpoint;
+        SseEventSubscriber subscriber = new SseEventSubscriber(this::onEvent);
+        eventStream = subscriber;
+
+        HttpRequest.Builder builder = HttpRequest.newBuilder(sseUri).header("Accept", "text/event-stream").GET();
+        headers.forEach(builder::header);
+
+        httpClient.sendAsync(builder.build(), info -> info.statusCode() == 200
+                        ? HttpResponse.BodySubscribers.fromLineSubscriber(subscriber)
+                        : HttpResponse.BodySubscribers.discarding())
+                .whenComplete((response, error) -> {
+                    if (error == null && response.statusCode() != 200) {
+                        error = new IOException("HTTP " + response.statusCode());
+                    }
+                    endpoint.completeExceptionally(error != null ? error : new IOException("SSE连接已关闭"));
+                    if (eventStream == subscriber) {
+                        onStreamClosed(error);
+                    }
+                });
+        return endpoint;
+    }
+
+    private void onEvent(String event, String data) {
+        switch (event) {
+            case "endpoint" -> {
+                messageUri = sseUri.resolve(data.trim());
+                reconnectDelayMs = 1000;
+                log.debug("MCP服务器 {} 消息地址: {}", serverName, messageUri);
+                endpointFuture.complete(messageUri);
+            }
+            case "message" -> listener.onMessage(data);
+            default -> log.debug("忽略SSE事件: {}", event);
+        }
+    }
+
+    /**
+     * 长连接断开：等待中的请求失败，随后重连并通知客户端重新握手
+     */
+    private void onStreamClosed(Throwable cause) {
+        messageUri = null;
+        if (!running) {
+            return;
+        }
+        log.warn("MCP服务器 {} SSE连接断开，{} ms 后重连", serverName, reconnectDelayMs);
+        listener.onDisconnected(cause);
+
+        long delay = reconnectDelayMs;
+        reconnectDelayMs = Math.min(reconnectDelayMs * 2, MAX_RECONNECT_DELAY_MS);
+        CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS).execute(() -> {
+            if (!running) {
+                return;
+            }
+            connect().thenRun(() -> {
+                log.info("MCP服务器 {} SSE连接已恢复", serverName);
+                listener.onReconnected();
+            });
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> send(String message) {
+        URI target = messageUri;
+        if (!running || target == null) {
+            return CompletableFuture.failedFuture(new IOException("SSE连接尚未就绪"));
+        }
+
+        HttpRequest.Builder builder = HttpRequest.newBuilder(target)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(message, StandardCharsets.UTF_8));
+        headers.forEach(builder::header);
+
+        return httpClient.sendAsync(builder.build(), HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8))
+                .thenAccept(response -> {
+                    if (response.statusCode() >= 400) {
+                        throw new CompletionException(
+                                new IOException("HTTP " + response.statusCode() + ": " + response.body()));
+                    }
+                });
+    }
+
+    /**
+     * 长连接断开、尚未收到新的 endpoint 事件时不可用
+     */
+    @Override
+    public boolean isAlive() {
+        return running && messageUri != null;
+    }
+
+    @Override
+    public String describe() {
+        return "sse:" + sseUri;
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        SseEventSubscriber stream = eventStream;
+        eventStream = null;
+        if (stream != null) {
+            stream.cancel();
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package cn.chollter.agent.demo.mcp.transport;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 固定容量的 stderr 行缓冲
+ * 只保留最近 capacity 行，超长行截断，内存占用有上限；同一服务器的所有进程共享一个缓冲
+ */
+public class StderrRingBuffer {
+
+    private static final int MAX_LINE_LENGTH = 2048;
+
+    private final String[] lines;
+    private int next = 0;
+    private int size = 0;
+    private long totalLines = 0;
+
+    public StderrRingBuffer(int capacity) {
+        this.lines = new String[Math.max(1, capacity)];
+    }
+
+    public synchronized void append(String line) {
+        if (line.length() > MAX_LINE_LENGTH) {
+            line = line.substring(0, MAX_LINE_LENGTH) + "...";
+        }
+        lines[next] = line;
+        next = (next + 1) % lines.length;
+        size = Math.min(size + 1, lines.length);
+        totalLines++;
+    }
+
+    /**
+     * 按时间顺序返回当前保留的行
+     */
+    public synchronized List<String> snapshot() {
+        List<String> result = new ArrayList<>(size);
+        int start = (next - size + lines.length) % lines.length;
+        for (int i = 0; i < size; i++) {
+            result.add(lines[(start + i) % lines.length]);
+        }
+        return result;
+    }
+
+    /**
+     * 当前保留的行数
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * 累计收到的行数（包括已被覆盖的）
+     */
+    public synchronized long getTotalLines() {
+        return totalLines;
+    }
+}
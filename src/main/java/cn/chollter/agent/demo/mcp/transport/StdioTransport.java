@@ -0,0 +1,178 @@
+package cn.chollter.agent.demo.mcp.transport;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * stdio传输
+ * 启动本地子进程，通过 stdin/stdout 按行收发 JSON-RPC 消息
+ * stdout 只承载协议帧；stderr 由单独的线程读入固定容量的环形缓冲，不占用响应处理线程
+ * 写入由 {@link FrameWriter} 的写线程完成，并发请求合并为一次 flush，调用线程不在管道上阻塞
+ */
+@Slf4j
+public class StdioTransport implements McpTransport {
+
+    private final String serverName;
+    private final List<String> command;
+    private final List<String> env;
+    private final StderrRingBuffer stderr;
+    private Process process;
+    private BufferedReader reader;
+    private FrameWriter writer;
+    private volatile boolean running = false;
+
+    public StdioTransport(String serverName, List<String> command, List<String> env) {
+        this(serverName, command, env, new StderrRingBuffer(200));
+    }
+
+    public StdioTransport(String serverName, List<String> command, List<String> env, StderrRingBuffer stderr) {
+        this.serverName = serverName;
+        this.command = command;
+        this.env = env;
+        this.stderr = stderr;
+    }
+
+    @Override
+    public void start(Listener listener) throws IOException {
+        log.info("启动MCP服务器: {} 命令: {}", serverName, String.join(" ", command));
+
+        ProcessBuilder pb = new ProcessBuilder(command);
+        log.debug("准备启动进程，命令: {}", String.join(" ", command));
+        if (env != null && !env.isEmpty()) {
+            Map<String, String> environment = pb.environment();
+            for (String e : env) {
+                String[] parts = e.split("=", 2);
+                if (parts.length == 2) {
+                    environment.put(parts[0], parts[1]);
+                }
+            }
+        }
+
+        this.process = pb.start();
+        this.reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
+        this.writer = new FrameWriter(serverName, process.getOutputStream());
+        this.running = true;
+
+        // 启动响应处理线程和 stderr 读取线程
+        startResponseHandler(listener);
+        startStderrDrain();
+    }
+
+    private void startStderrDrain() {
+        BufferedReader errorReader = new BufferedReader(new InputStreamReader(process.getErrorStream()));
+        Thread drain = new Thread(() -> {
+            try (errorReader) {
+                String line;
+                while ((line = errorReader.readLine()) != null) {
+                    stderr.append(line);
+                    log.debug("[{} stderr] {}", serverName, line);
+                }
+            } catch (IOException e) {
+                log.debug("MCP服务器 {} stderr 已关闭", serverName);
+            }
+        });
+        drain.setDaemon(true);
+        drain.setName("MCP-Stderr-" + serverName);
+        drain.start();
+    }
+
+    /**
+     * 进程的 stderr 缓冲
+     */
+    public StderrRingBuffer getStderr() {
+        return stderr;
+    }
+
+    private void startResponseHandler(Listener listener) {
+        Thread handler = new Thread(() -> {
+            Throwable cause = null;
+            try {
+                String line;
+                while (running && (line = reader.readLine()) != null) {
+                    if (!line.isEmpty()) {
+                        listener.onMessage(line);
+                    }
+                }
+            } catch (IOException e) {
+                cause = e;
+                if (running) {
+                    log.error("MCP响应处理器错误", e);
+                } else {
+                    log.debug("MCP响应处理器正常关闭");
+                }
+            } catch (RuntimeException | Error e) {
+                cause = e;
+                log.error("MCP响应处理线程异常退出: {}", serverName, e);
+            } finally {
+                if (running && cause == null) {
+                    cause = new IOException("MCP进程已退出，退出码: " + exitCode());
+                    log.error("MCP服务器 {} {}", serverName, cause.getMessage());
+                }
+                running = false;
+                listener.onDisconnected(cause);
+            }
+        });
+        handler.setDaemon(true);
+        handler.setName("MCP-ResponseHandler-" + serverName);
+        handler.start();
+    }
+
+    private String exitCode() {
+        try {
+            if (process.waitFor(1, TimeUnit.SECONDS)) {
+                return String.valueOf(process.exitValue());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return "未知";
+    }
+
+    @Override
+    public CompletableFuture<Void> send(String message) {
+        return writer.send(message);
+    }
+
+    @Override
+    public boolean isAlive() {
+        return running && process != null && process.isAlive();
+    }
+
+    @Override
+    public String describe() {
+        return "stdio:" + String.join(" ", command);
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        // 进程可能已经崩溃，流关闭失败不应影响后续的进程清理
+        if (writer != null) {
+            writer.close();
+        }
+        if (process != null) {
+            closeQuietly(process.getOutputStream());
+        }
+        closeQuietly(reader);
+        if (process != null) process.destroy();
+    }
+
+    private void closeQuietly(Closeable closeable) {
+        if (closeable == null) {
+            return;
+        }
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            log.debug("关闭MCP进程流时出错: {}", e.getMessage());
+        }
+    }
+}
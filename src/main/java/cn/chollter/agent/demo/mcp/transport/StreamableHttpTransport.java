@@ -0,0 +1,247 @@
+package cn.chollter.agent.demo.mcp.transport;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Streamable HTTP 传输
+ * 每条消息一个 POST，响应可以是 JSON 或 SSE 流；服务器主动推送的通知通过可选的 GET SSE 流接收。
+ * 所有请求复用同一个 HttpClient：HTTP/1.1 下复用 keep-alive 连接，HTTP/2 下在单连接上多路复用，
+ * 请求全部异步发送，不占用调用线程。
+ * 会话失效（404）时每个会话只重新握手一次，握手完成前发送的其他消息等待新会话建立后再发出。
+ */
+@Slf4j
+public class StreamableHttpTransport implements McpTransport {
+
+    private static final String SESSION_HEADER = "Mcp-Session-Id";
+    private static final long MAX_RECONNECT_DELAY_MS = 30000;
+    private static final ObjectMapper MESSAGE_READER = new ObjectMapper();
+
+    private final String serverName;
+    private final URI endpoint;
+    private final Map<String, String> headers;
+    private final HttpClient httpClient;
+    private volatile Listener listener;
+    private volatile String sessionId;
+    private volatile SseEventSubscriber eventStream;
+    private volatile boolean running = false;
+    // 最近一次请求是否得到了 HTTP 响应；连接失败时为 false
+    private volatile boolean reachable = true;
+    // 会话失效后重新握手期间未完成，握手请求得到响应后完成
+    private volatile CompletableFuture<Void> sessionReady = CompletableFuture.completedFuture(null);
+    private volatile long reconnectDelayMs = 1000;
+
+    public StreamableHttpTransport(String serverName, URI endpoint, Map<String, String> headers, Duration connectTimeout) {
+        this.serverName = serverName;
+        this.endpoint = endpoint;
+        this.headers = headers != null ? Map.copyOf(headers) : Map.of();
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(connectTimeout)
+                .build();
+    }
+
+    @Override
+    public void start(Listener listener) {
+        this.listener = listener;
+        this.running = true;
+        log.info("连接MCP服务器: {} 地址: {}", serverName, endpoint);
+    }
+
+    @Override
+    public CompletableFuture<Void> send(String message) {
+        if (!running) {
+            return CompletableFuture.failedFuture(new IOException("传输已关闭"));
+        }
+        CompletableFuture<Void> ready = sessionReady;
+        if (ready.isDone()) {
+            return post(message);
+        }
+        if (isInitialize(message)) {
+            // 重新握手的 initialize 不等待，得到响应（新的会话 ID）后放行其余消息
+            return post(message).whenComplete((ignored, error) -> ready.complete(null));
+        }
+        return ready.thenCompose(ignored -> post(message));
+    }
+
+    private CompletableFuture<Void> post(String message) {
+        if (!running) {
+            return CompletableFuture.failedFuture(new IOException("传输已关闭"));
+        }
+        String sentSessionId = sessionId;
+        HttpRequest request = newRequest(sentSessionId)
+                .header("Content-Type", "application/json")
+                .header("Accept", "application/json, text/event-stream")
+                .POST(HttpRequest.BodyPublishers.ofString(message, StandardCharsets.UTF_8))
+                .build();
+
+        return httpClient.sendAsync(request, this::handleResponse)
+                .whenComplete((response, error) -> reachable = response != null)
+                .thenAccept(response -> {
+                    int status = response.statusCode();
+                    if (status == 404 && sentSessionId != null) {
+                        onSessionExpired(sentSessionId);
+                        throw new CompletionException(new IOException("MCP会话已失效"));
+                    }
+                    if (status >= 400) {
+                        throw new CompletionException(new IOException("HTTP " + status + ": " + response.body()));
+                    }
+                });
+    }
+
+    /**
+     * 会话已失效：清除会话并通知客户端重新握手
+     * 同一会话上的多个请求都会收到 404，只有第一个触发重新握手，之后的消息等待新会话
+     */
+    private synchronized void onSessionExpired(String expiredSessionId) {
+        if (!expiredSessionId.equals(sessionId)) {
+            return;
+        }
+        log.warn("MCP服务器 {} 会话已失效，重新初始化", serverName);
+        sessionId = null;
+        sessionReady = new CompletableFuture<>();
+        listener.onReconnected();
+    }
+
+    private static boolean isInitialize(String message) {
+        try {
+            return "initialize".equals(MESSAGE_READER.readTree(message).path("method").asText());
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 按响应类型选择 body 处理方式：JSON 整体交付，SSE 逐事件交付，错误响应保留文本用于报错
+     */
+    private HttpResponse.BodySubscriber<String> handleResponse(HttpResponse.ResponseInfo info) {
+        info.headers().firstValue(SESSION_HEADER).ifPresent(this::onSession);
+
+        if (info.statusCode() >= 400) {
+            return HttpResponse.BodySubscribers.ofString(StandardCharsets.UTF_8);
+        }
+        String contentType = info.headers().firstValue("Content-Type").orElse("");
+        if (contentType.startsWith("text/event-stream")) {
+            return HttpResponse.BodySubscribers.mapping(
+                    HttpResponse.BodySubscribers.fromLineSubscriber(new SseEventSubscriber(this::onEvent)),
+                    ignored -> null);
+        }
+        return HttpResponse.BodySubscribers.mapping(
+                HttpResponse.BodySubscribers.ofString(StandardCharsets.UTF_8),
+                body -> {
+                    if (!body.isBlank()) {
+                        listener.onMessage(body);
+                    }
+                    return null;
+                });
+    }
+
+    private void onSession(String newSessionId) {
+        if (newSessionId.equals(sessionId)) {
+            return;
+        }
+        sessionId = newSessionId;
+        log.debug("MCP服务器 {} 会话: {}", serverName, newSessionId);
+        openEventStream();
+    }
+
+    private void onEvent(String event, String data) {
+        if ("message".equals(event)) {
+            listener.onMessage(data);
+        }
+    }
+
+    /**
+     * 打开 GET SSE 流接收服务器主动推送的消息；流断开后按指数退避自动重连
+     */
+    private void openEventStream() {
+        if (!running) {
+            return;
+        }
+        SseEventSubscriber previous = eventStream;
+        if (previous != null) {
+            previous.cancel();
+        }
+
+        SseEventSubscriber subscriber = new SseEventSubscriber(this::onEvent);
+        eventStream = subscriber;
+        HttpRequest request = newRequest(sessionId)
+                .header("Accept", "text/event-stream")
+                .GET()
+                .build();
+
+        httpClient.sendAsync(request, info -> {
+                    if (info.statusCode() == 200) {
+                        reconnectDelayMs = 1000;
+                        return HttpResponse.BodySubscribers.fromLineSubscriber(subscriber);
+                    }
+                    return HttpResponse.BodySubscribers.discarding();
+                })
+                .whenComplete((response, error) -> {
+                    if (!running || eventStream != subscriber) {
+                        return;
+                    }
+                    if (response != null && response.statusCode() == 405) {
+                        log.debug("MCP服务器 {} 不提供 GET 事件流", serverName);
+                        return;
+                    }
+                    long delay = reconnectDelayMs;
+                    reconnectDelayMs = Math.min(reconnectDelayMs * 2, MAX_RECONNECT_DELAY_MS);
+                    log.debug("MCP服务器 {} 事件流断开，{} ms 后重连", serverName, delay);
+                    CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS).execute(() -> {
+                        if (eventStream == subscriber) {
+                            openEventStream();
+                        }
+                    });
+                });
+    }
+
+    private HttpRequest.Builder newRequest(String session) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(endpoint);
+        headers.forEach(builder::header);
+        if (session != null) {
+            builder.header(SESSION_HEADER, session);
+        }
+        return builder;
+    }
+
+    /**
+     * 最近一次请求连接失败时不可用，下一次得到响应后恢复
+     */
+    @Override
+    public boolean isAlive() {
+        return running && reachable;
+    }
+
+    @Override
+    public String describe() {
+        return "http:" + endpoint;
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        sessionReady.completeExceptionally(new IOException("传输已关闭"));
+        SseEventSubscriber stream = eventStream;
+        eventStream = null;
+        if (stream != null) {
+            stream.cancel();
+        }
+        if (sessionId != null) {
+            // 通知服务器结束会话，失败无需处理
+            httpClient.sendAsync(newRequest(sessionId).DELETE().build(), HttpResponse.BodyHandlers.discarding());
+        }
+    }
+}
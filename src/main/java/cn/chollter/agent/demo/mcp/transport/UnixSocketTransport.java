@@ -0,0 +1,233 @@
+package cn.chollter.agent.demo.mcp.transport;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Unix 域套接字传输
+ * 连接同一主机上长期运行的 MCP 守护进程，多个应用副本共享一个服务器进程，不必各自启动和预热
+ * 与 stdio 相同按行收发 JSON-RPC 消息；请求按 id 关联，同一连接上的并发请求可以乱序返回
+ * 写入由 {@link FrameWriter} 的写线程完成，直接缓冲区整批写入套接字
+ * 连接断开后按指数退避自动重连（守护进程重启），并通知客户端重新握手
+ */
+@Slf4j
+public class UnixSocketTransport implements McpTransport {
+
+    private static final long MAX_RECONNECT_DELAY_MS = 30000;
+    private static final long CONNECT_RETRY_INTERVAL_MS = 100;
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+    private final String serverName;
+    private final Path socketPath;
+    private final Duration connectTimeout;
+    private volatile Listener listener;
+    private volatile SocketChannel channel;
+    private volatile FrameWriter writer;
+    private volatile boolean running = false;
+    private volatile long reconnectDelayMs = 1000;
+
+    public UnixSocketTransport(String serverName, Path socketPath, Duration connectTimeout) {
+        this.serverName = serverName;
+        this.socketPath = socketPath;
+        this.connectTimeout = connectTimeout;
+    }
+
+    /**
+     * 套接字文件尚未创建或守护进程尚未开始监听时，在 connectTimeout 内重试
+     */
+    @Override
+    public void start(Listener listener) throws IOException {
+        this.listener = listener;
+        this.running = true;
+        log.info("连接MCP服务器: {} 套接字: {}", serverName, socketPath);
+
+        long deadline = System.nanoTime() + connectTimeout.toNanos();
+        while (true) {
+            try {
+                connect();
+                return;
+            } catch (IOException e) {
+                if (System.nanoTime() >= deadline) {
+                    close();
+                    throw new IOException("连接MCP服务器失败: " + socketPath, e);
+                }
+            }
+            try {
+                Thread.sleep(CONNECT_RETRY_INTERVAL_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                close();
+                throw new IOException("连接被中断", e);
+            }
+        }
+    }
+
+    private void connect() throws IOException {
+        SocketChannel opened = SocketChannel.open(StandardProtocolFamily.UNIX);
+        try {
+            opened.connect(UnixDomainSocketAddress.of(socketPath));
+        } catch (IOException e) {
+            opened.close();
+            throw e;
+        }
+        if (!running) {
+            opened.close();
+            return;
+        }
+        FrameWriter openedWriter = new FrameWriter(serverName, opened);
+        writer = openedWriter;
+        channel = opened;
+        reconnectDelayMs = 1000;
+        startReader(opened, openedWriter);
+    }
+
+    private void startReader(SocketChannel source, FrameWriter sourceWriter) {
+        Thread reader = new Thread(() -> {
+            Throwable cause = null;
+            try {
+                readLines(source);
+            } catch (IOException e) {
+                cause = e;
+            } catch (RuntimeException | Error e) {
+                cause = e;
+                log.error("MCP响应处理线程异常退出: {}", serverName, e);
+            } finally {
+                // 连接已断开，先关闭套接字，写线程中尚未写出的消息随即失败
+                closeQuietly(source);
+                sourceWriter.close();
+                if (channel == source) {
+                    onConnectionClosed(cause != null ? cause : new IOException("MCP守护进程关闭了连接"));
+                }
+            }
+        });
+        reader.setDaemon(true);
+        reader.setName("MCP-ResponseHandler-" + serverName);
+        reader.start();
+    }
+
+    /**
+     * 按换行切分消息，一条消息可能跨多次读取
+     */
+    private void readLines(SocketChannel source) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        while (running && source.read(buffer) >= 0) {
+            byte[] bytes = buffer.array();
+            int end = buffer.position();
+            int start = 0;
+            for (int i = 0; i < end; i++) {
+                if (bytes[i] == '\n') {
+                    line.write(bytes, start, i - start);
+                    String message = line.toString(StandardCharsets.UTF_8).strip();
+                    line.reset();
+                    if (!message.isEmpty()) {
+                        listener.onMessage(message);
+                    }
+                    start = i + 1;
+                }
+            }
+            line.write(bytes, start, end - start);
+            buffer.clear();
+        }
+    }
+
+    /**
+     * 连接断开：等待中的请求失败，随后重连并通知客户端重新握手
+     */
+    private void onConnectionClosed(Throwable cause) {
+        channel = null;
+        if (!running) {
+            return;
+        }
+        log.warn("MCP服务器 {} 套接字连接断开，{} ms 后重连", serverName, reconnectDelayMs);
+        listener.onDisconnected(cause);
+        scheduleReconnect();
+    }
+
+    private void scheduleReconnect() {
+        long delay = reconnectDelayMs;
+        reconnectDelayMs = Math.min(reconnectDelayMs * 2, MAX_RECONNECT_DELAY_MS);
+        CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS).execute(() -> {
+            if (!running) {
+                return;
+            }
+            try {
+                connect();
+            } catch (IOException e) {
+                log.debug("MCP服务器 {} 重连失败: {}", serverName, e.getMessage());
+                scheduleReconnect();
+                return;
+            }
+            if (channel != null) {
+                log.info("MCP服务器 {} 套接字连接已恢复", serverName);
+                listener.onReconnected();
+            }
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> send(String message) {
+        FrameWriter target = writer;
+        if (!running || channel == null || target == null) {
+            return CompletableFuture.failedFuture(new IOException("套接字连接尚未就绪"));
+        }
+        return target.send(message);
+    }
+
+    /**
+     * 连接断开、等待重连期间不可用
+     */
+    @Override
+    public boolean isAlive() {
+        SocketChannel current = channel;
+        return running && current != null && current.isOpen() && current.isConnected();
+    }
+
+    /**
+     * 守护进程由多个应用副本共享，关闭连接时不通知它退出
+     */
+    @Override
+    public boolean ownsServer() {
+        return false;
+    }
+
+    @Override
+    public String describe() {
+        return "unix:" + socketPath;
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        SocketChannel current = channel;
+        FrameWriter currentWriter = writer;
+        channel = null;
+        writer = null;
+        if (currentWriter != null) {
+            currentWriter.close();
+        }
+        closeQuietly(current);
+    }
+
+    private void closeQuietly(SocketChannel target) {
+        if (target == null) {
+            return;
+        }
+        try {
+            target.close();
+        } catch (IOException e) {
+            log.debug("关闭MCP套接字时出错: {}", e.getMessage());
+        }
+    }
+}
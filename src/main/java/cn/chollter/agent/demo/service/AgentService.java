@@ -4,9 +4,17 @@ import cn.chollter.agent.demo.agent.Agent;
 import cn.chollter.agent.demo.agent.AgentResponse;
 import cn.chollter.agent.demo.agent.Message;
 import cn.chollter.agent.demo.agent.ThoughtStep;
+import cn.chollter.agent.demo.agent.ToolExecutionContext;
 import cn.chollter.agent.demo.entity.Conversation;
 import cn.chollter.agent.demo.entity.Execution;
+import cn.chollter.agent.demo.mcp.McpProgress;
+import cn.chollter.agent.demo.mcp.McpManager;
+import cn.chollter.agent.demo.mcp.McpProgressContext;
+import cn.chollter.agent.demo.mcp.McpToolScope;
+import cn.chollter.agent.demo.mcp.ToolSelector;
 import cn.chollter.agent.demo.repository.ExecutionRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
@@ -18,9 +26,13 @@ import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
 
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 /**
@@ -38,6 +50,8 @@ public class AgentService {
     private final ExecutionService executionService;
     private final ConversationService conversationService;
     private final ExecutionRepository executionRepository;
+    private final ObjectMapper objectMapper;
+    private final McpManager mcpManager;
 
     @Value("${agent.model.provider:openai}")
     private String modelProvider;
@@ -59,12 +73,23 @@ public class AgentService {
             @Qualifier("agent") Agent agent,
             ExecutionService executionService,
             ConversationService conversationService,
-            ExecutionRepository executionRepository
+            ExecutionRepository executionRepository,
+            ObjectMapper objectMapper,
+            McpManager mcpManager
     ) {
         this.agent = agent;
         this.executionService = executionService;
         this.conversationService = conversationService;
         this.executionRepository = executionRepository;
+        this.objectMapper = objectMapper;
+        this.mcpManager = mcpManager;
+    }
+
+    /**
+     * 确定请求的工具范围：请求指定的 tags / tools 优先，否则使用 API Key 的默认标签
+     */
+    public ToolSelector resolveToolSelector(List<String> tags, List<String> tools, String apiKey) {
+        return mcpManager.resolveToolSelector(tags, tools, apiKey);
     }
 
     /**
@@ -80,7 +105,14 @@ public class AgentService {
      * 会通过 execution 获取实际的 conversationId
      */
     public AgentResponse executeTask(String conversationId, String task) {
-        log.info("执行任务: {}, 会话ID: {}", task, conversationId);
+        return executeTask(conversationId, task, ToolSelector.ALL);
+    }
+
+    /**
+     * 执行任务，只向模型暴露工具范围内的MCP工具
+     */
+    public AgentResponse executeTask(String conversationId, String task, ToolSelector toolSelector) {
+        log.info("执行任务: {}, 会话ID: {}, 工具范围: {}", task, conversationId, toolSelector);
 
         // 获取会话历史
         List<Message> history = new ArrayList<>();
@@ -96,10 +128,13 @@ public class AgentService {
         String actualConversationId = execution.getConversation().getConversationId();
 
         long startTime = System.currentTimeMillis();
+        ToolExecutionContext toolContext = new ToolExecutionContext();
 
         try {
             // 执行任务（带历史）
-            AgentResponse response = agent.execute(task, history);
+            List<Message> conversationHistory = history;
+            AgentResponse response = ToolExecutionContext.call(toolContext,
+                    () -> McpToolScope.call(orAll(toolSelector), () -> agent.execute(task, conversationHistory)));
 
             long duration = System.currentTimeMillis() - startTime;
 
@@ -110,7 +145,7 @@ public class AgentService {
             }
 
             // 异步保存执行结果（不阻塞响应）
-            saveExecutionResultAsync(executionId, response, duration);
+            saveExecutionResultAsync(executionId, response, duration, toolContext.hasTimeouts());
 
             // 将 conversationId 设置到响应中
             response.setConversationId(actualConversationId);
@@ -124,7 +159,7 @@ public class AgentService {
             AgentResponse errorResponse = new AgentResponse();
             errorResponse.setSuccess(false);
             errorResponse.setErrorMessage(e.getMessage());
-            saveExecutionResultAsync(executionId, errorResponse, duration);
+            saveExecutionResultAsync(executionId, errorResponse, duration, toolContext.hasTimeouts());
 
             throw e;
         }
@@ -231,15 +266,30 @@ public class AgentService {
      */
     @Async("taskExecutor")
     public void saveExecutionResultAsync(String executionId, AgentResponse response, long duration) {
+        saveExecutionResultAsync(executionId, response, duration, false);
+    }
+
+    /**
+     * 异步保存执行结果
+     * 期间有工具超时时记录为 TIMEOUT：执行成功的保留答案，失败的记录错误信息
+     */
+    @Async("taskExecutor")
+    public void saveExecutionResultAsync(String executionId, AgentResponse response, long duration, boolean toolTimedOut) {
         try {
-            if (response.isSuccess()) {
+            List<ThoughtStep> thoughtSteps = response.getThoughtSteps();
+            int steps = thoughtSteps != null ? thoughtSteps.size() : 0;
+            if (response.isSuccess() && toolTimedOut) {
+                executionService.timeoutExecution(executionId, response.getFinalAnswer(), thoughtSteps, steps, duration);
+            } else if (response.isSuccess()) {
                 executionService.completeExecution(
                         executionId,
                         response.getFinalAnswer(),
-                        response.getThoughtSteps(),
-                        response.getThoughtSteps() != null ? response.getThoughtSteps().size() : 0,
+                        thoughtSteps,
+                        steps,
                         duration
                 );
+            } else if (toolTimedOut) {
+                executionService.timeoutExecution(executionId, response.getErrorMessage(), duration);
             } else {
                 executionService.failExecution(executionId, response.getErrorMessage(), duration);
             }
@@ -257,7 +307,7 @@ public class AgentService {
      * @return SSE 事件流
      */
     public Flux<ServerSentEvent<String>> executeTaskStream(String task) {
-        return executeTaskStreamInternal(task, new ArrayList<>(), null);
+        return executeTaskStreamInternal(task, new ArrayList<>(), null, ToolSelector.ALL);
     }
 
     /**
@@ -269,11 +319,48 @@ public class AgentService {
      * @return SSE 事件流
      */
     public Flux<ServerSentEvent<String>> executeTaskStream(String conversationId, String task) {
+        return executeTaskStream(conversationId, task, ToolSelector.ALL);
+    }
+
+    /**
+     * 流式执行任务，只向模型暴露工具范围内的MCP工具
+     *
+     * @param conversationId 会话ID，可为 null
+     * @param task 用户任务
+     * @param toolSelector 工具范围
+     * @return SSE 事件流
+     */
+    public Flux<ServerSentEvent<String>> executeTaskStream(String conversationId, String task, ToolSelector toolSelector) {
         List<Message> history = new ArrayList<>();
         if (conversationId != null) {
             history = loadConversationHistory(conversationId);
         }
-        return executeTaskStreamInternal(task, history, conversationId);
+        return executeTaskStreamInternal(task, history, conversationId, orAll(toolSelector));
+    }
+
+    private static ToolSelector orAll(ToolSelector toolSelector) {
+        return toolSelector != null ? toolSelector : ToolSelector.ALL;
+    }
+
+    /**
+     * 把工具进度转换为 progress 事件，data 为 JSON：{"tool", "progress", "total", "message"}
+     */
+    private ServerSentEvent<String> toProgressEvent(McpProgress progress) {
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("tool", progress.server() + ":" + progress.tool());
+        data.put("progress", progress.progress());
+        data.put("total", progress.total());
+        data.put("message", progress.message());
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(data);
+        } catch (JsonProcessingException e) {
+            json = "{}";
+        }
+        return ServerSentEvent.<String>builder()
+            .event("progress")
+            .data(json)
+            .build();
     }
 
     /**
@@ -283,9 +370,10 @@ public class AgentService {
     private Flux<ServerSentEvent<String>> executeTaskStreamInternal(
             String task,
             List<Message> history,
-            String conversationId) {
+            String conversationId,
+            ToolSelector toolSelector) {
 
-        log.info("开始流式执行任务: {}, 会话ID: {}", task, conversationId);
+        log.info("开始流式执行任务: {}, 会话ID: {}, 工具范围: {}", task, conversationId, toolSelector);
 
         // 创建执行记录
         Execution execution = executionService.createExecution(conversationId, task);
@@ -295,9 +383,30 @@ public class AgentService {
         long startTime = System.currentTimeMillis();
         StringBuilder fullAnswer = new StringBuilder();
         boolean[] hasError = {false};
+        ToolExecutionContext toolContext = new ToolExecutionContext();
+
+        // 工具进度事件：MCP 工具的 notifications/progress 经 Reactor Context 转发到本次执行的 sink
+        Sinks.Many<ServerSentEvent<String>> progressSink = Sinks.many().unicast().onBackpressureBuffer();
+        Consumer<McpProgress> progressListener = progress -> {
+            ServerSentEvent<String> event = toProgressEvent(progress);
+            synchronized (progressSink) {
+                progressSink.tryEmitNext(event);
+            }
+        };
+        // 工具范围：组装流时（同步读取工具列表）和订阅后（经 Reactor Context）都需要可见
+        Flux<ServerSentEvent<String>> agentEvents = ToolExecutionContext.call(toolContext,
+                () -> McpToolScope.call(toolSelector, () -> agent.executeStream(task, history)))
+            .contextWrite(McpToolScope.with(toolSelector))
+            .contextWrite(ToolExecutionContext.with(toolContext))
+            .contextWrite(McpProgressContext.with(progressListener))
+            .doFinally(signal -> {
+                synchronized (progressSink) {
+                    progressSink.tryEmitComplete();
+                }
+            });
 
         // 调用 Agent 的流式方法
-        return agent.executeStream(task, history)
+        return Flux.merge(agentEvents, progressSink.asFlux())
             .doOnNext(event -> {
                 // 收集完整内容用于保存
                 if ("content".equals(event.event())) {
@@ -313,13 +422,13 @@ public class AgentService {
                     AgentResponse response = new AgentResponse();
                     response.setSuccess(true);
                     response.setFinalAnswer(fullAnswer.toString());
-                    saveExecutionResultAsync(executionId, response, duration);
+                    saveExecutionResultAsync(executionId, response, duration, toolContext.hasTimeouts());
                     log.info("流式执行完成，保存结果: {}", executionId);
                 } else if (hasError[0]) {
                     AgentResponse response = new AgentResponse();
                     response.setSuccess(false);
                     response.setErrorMessage("流式执行过程中发生错误");
-                    saveExecutionResultAsync(executionId, response, duration);
+                    saveExecutionResultAsync(executionId, response, duration, toolContext.hasTimeouts());
                 }
             })
             .doOnError(e -> {
@@ -328,7 +437,7 @@ public class AgentService {
                 AgentResponse response = new AgentResponse();
                 response.setSuccess(false);
                 response.setErrorMessage(e.getMessage());
-                saveExecutionResultAsync(executionId, response, duration);
+                saveExecutionResultAsync(executionId, response, duration, toolContext.hasTimeouts());
             })
             .doOnCancel(() -> {
                 // 客户端取消连接（点击停止按钮）
@@ -339,7 +448,7 @@ public class AgentService {
                     AgentResponse response = new AgentResponse();
                     response.setSuccess(true); // 标记为成功，因为是用户主动停止
                     response.setFinalAnswer(fullAnswer.toString() + "\n\n[用户停止生成]");
-                    saveExecutionResultAsync(executionId, response, duration);
+                    saveExecutionResultAsync(executionId, response, duration, toolContext.hasTimeouts());
                 }
             })
             .map(event -> {
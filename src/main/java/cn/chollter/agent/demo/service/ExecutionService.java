@@ -107,6 +107,46 @@ public class ExecutionService {
         });
     }
 
+    /**
+     * 更新执行记录为超时状态：执行失败且期间有工具超时
+     * 清除相关缓存
+     */
+    @Transactional
+    @CacheEvict(value = {"executions", "conversationExecutions", "executionStats"}, allEntries = true)
+    public void timeoutExecution(String executionId, String errorMessage, Long durationMs) {
+        executionRepository.findByExecutionId(executionId).ifPresent(execution -> {
+            execution.setErrorMessage(errorMessage);
+            execution.setDurationMs(durationMs);
+            execution.setStatus(Execution.ExecutionStatus.TIMEOUT);
+            execution.setSuccess(false);
+            execution.setCompletedAt(LocalDateTime.now());
+            executionRepository.save(execution);
+            log.warn("执行超时: {}", executionId);
+        });
+    }
+
+    /**
+     * 更新执行记录为超时状态：执行得出了答案，但期间有工具超时
+     * 保留答案和思考步骤，清除相关缓存
+     */
+    @Transactional
+    @CacheEvict(value = {"executions", "conversationExecutions", "executionStats"}, allEntries = true)
+    public void timeoutExecution(String executionId, String finalAnswer,
+                                 List<ThoughtStep> thoughtSteps, int steps, Long durationMs) {
+        executionRepository.findByExecutionId(executionId).ifPresent(execution -> {
+            execution.setFinalAnswer(finalAnswer);
+            execution.setThoughtSteps(thoughtSteps);
+            execution.setSteps(steps);
+            execution.setErrorMessage("执行期间有工具超时");
+            execution.setDurationMs(durationMs);
+            execution.setStatus(Execution.ExecutionStatus.TIMEOUT);
+            execution.setSuccess(true);
+            execution.setCompletedAt(LocalDateTime.now());
+            executionRepository.save(execution);
+            log.warn("执行完成，但期间有工具超时: {}, 耗时: {} ms", executionId, durationMs);
+        });
+    }
+
     /**
      * 根据 ID 获取执行记录
      */
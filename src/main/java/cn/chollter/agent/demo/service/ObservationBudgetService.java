@@ -0,0 +1,112 @@
+package cn.chollter.agent.demo.service;
+
+import cn.chollter.agent.demo.agent.Tool;
+import cn.chollter.agent.demo.agent.ToolExecutionContext;
+import cn.chollter.agent.demo.mcp.McpManager;
+import cn.chollter.agent.demo.mcp.content.ContentHandle;
+import cn.chollter.agent.demo.mcp.content.ContentStore;
+import cn.chollter.agent.demo.mcp.content.ReadContentTool;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * 观察结果预算
+ * 工具结果返回给模型前按 token 上限压缩，避免一次大结果撑大之后每一步的提示词：
+ * - 单个结果不超过工具自身的 getMaxObservationTokens()，未设置时使用 agent.observation.max-tokens-per-tool
+ * - 一次任务执行中所有结果合计不超过 agent.observation.max-tokens-per-execution，用完后每个结果只保留 min-tokens
+ * 被压缩的结果原文写入 ContentStore，模型可以用 read_mcp_content 按句柄分段读取；
+ * read_mcp_content 的结果本身已按读取长度分段，只计入预算，不再压缩和保存，否则预算用完后会不断生成新句柄
+ *
+ * @author Chollter
+ * @since 1.0.0
+ */
+@Slf4j
+@Service
+public class ObservationBudgetService {
+
+    private final int maxTokensPerTool;
+    private final long maxTokensPerExecution;
+    private final int minTokens;
+    private final ContentStore contentStore;
+
+    @Autowired
+    public ObservationBudgetService(@Value("${agent.observation.max-tokens-per-tool:2000}") int maxTokensPerTool,
+                                    @Value("${agent.observation.max-tokens-per-execution:12000}") long maxTokensPerExecution,
+                                    @Value("${agent.observation.min-tokens:256}") int minTokens,
+                                    McpManager mcpManager) {
+        this(maxTokensPerTool, maxTokensPerExecution, minTokens, mcpManager.getContentStore());
+    }
+
+    ObservationBudgetService(int maxTokensPerTool, long maxTokensPerExecution, int minTokens, ContentStore contentStore) {
+        this.maxTokensPerTool = maxTokensPerTool;
+        this.maxTokensPerExecution = maxTokensPerExecution;
+        this.minTokens = minTokens;
+        this.contentStore = contentStore;
+    }
+
+    /**
+     * 按预算压缩工具结果，并计入当前执行已使用的预算
+     *
+     * @param context 调用工具时的执行状态，不在任务执行中时为 null（只按单个结果的上限压缩）
+     */
+    public String apply(Tool tool, String observation, ToolExecutionContext context) {
+        if (observation == null) {
+            return null;
+        }
+        int tokens = ObservationCompactor.estimateTokens(observation);
+        if (ReadContentTool.NAME.equals(tool.getName())) {
+            record(context, tokens);
+            return observation;
+        }
+        int limit = limitFor(tool, context);
+        if (tokens <= limit) {
+            record(context, tokens);
+            return observation;
+        }
+
+        String compacted = ObservationCompactor.compact(observation, limit);
+        StringBuilder sb = new StringBuilder(compacted)
+                .append("\n...[结果已压缩：原文约 ").append(tokens).append(" tokens，保留约 ")
+                .append(ObservationCompactor.estimateTokens(compacted)).append(" tokens");
+        ContentHandle handle = storeFullCopy(tool, observation);
+        if (handle != null) {
+            sb.append("。完整内容可用 ").append(ReadContentTool.NAME).append(" 读取，句柄: ").append(handle.id());
+        }
+        sb.append("]");
+
+        String result = sb.toString();
+        record(context, ObservationCompactor.estimateTokens(result));
+        log.info("工具结果已压缩: {} 约 {} -> {} tokens", tool.getName(), tokens, limit);
+        return result;
+    }
+
+    /**
+     * 本次结果的上限：工具上限和执行剩余预算中较小的一个，但不低于 minTokens
+     */
+    int limitFor(Tool tool, ToolExecutionContext context) {
+        Integer toolLimit = tool.getMaxObservationTokens();
+        int limit = toolLimit != null && toolLimit > 0 ? toolLimit : maxTokensPerTool;
+        if (context != null) {
+            long remaining = maxTokensPerExecution - context.getObservationTokens();
+            limit = (int) Math.max(Math.min(limit, minTokens), Math.min(limit, remaining));
+        }
+        return limit;
+    }
+
+    private void record(ToolExecutionContext context, int tokens) {
+        if (context != null) {
+            context.addObservationTokens(tokens);
+        }
+    }
+
+    private ContentHandle storeFullCopy(Tool tool, String observation) {
+        try {
+            return contentStore.storeText(observation);
+        } catch (Exception e) {
+            log.warn("保存工具结果原文失败: {}", tool.getName(), e);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,307 @@
+package cn.chollter.agent.demo.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.node.TextNode;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * 观察结果压缩
+ * 按内容结构把过长的工具结果压缩到 token 上限以内：
+ * - JSON：保留全部字段，逐步缩短长数组和长字符串，并注明省略了多少
+ * - 列表（目录、搜索结果等短行）：保留开头和结尾的整行
+ * - 代码：保留开头和结尾，中间省略部分只保留声明行（带行号）作为提纲
+ * - 其他文本：按整行保留开头和结尾，单行过长时按字符截断
+ */
+public final class ObservationCompactor {
+
+    /**
+     * 内容结构
+     */
+    public enum Kind {
+        JSON, LISTING, CODE, TEXT
+    }
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static final Pattern CODE_LINE = Pattern.compile(
+            "^\\s*(import |package |from \\S+ import |#include|def |class |function |func |fn |public |private |protected |@\\w+).*"
+                    + "|.*[{};]\\s*$");
+
+    private static final Pattern DECLARATION = Pattern.compile(
+            "^\\s*((public|private|protected|static|final|abstract|export|async|pub)\\s+)*"
+                    + "(class|interface|enum|record|def|function|func|fn|struct|impl|trait|type)\\s+\\w+.*"
+                    + "|^\\s*(public|private|protected)\\s+[\\w<>\\[\\],.? ]+\\s+\\w+\\s*\\(.*");
+
+    private static final int MIN_ARRAY_ITEMS = 1;
+    private static final int MIN_STRING_CHARS = 32;
+
+    private ObservationCompactor() {
+    }
+
+    /**
+     * 估算 token 数：ASCII 字符约 4 个一个 token，其他字符（中文等）约 1 个一个 token
+     */
+    public static int estimateTokens(CharSequence text) {
+        int ascii = 0;
+        int other = 0;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) < 128) {
+                ascii++;
+            } else {
+                other++;
+            }
+        }
+        return (ascii + 3) / 4 + other;
+    }
+
+    /**
+     * 识别内容结构
+     */
+    public static Kind detect(String text) {
+        String trimmed = text.strip();
+        if ((trimmed.startsWith("{") && trimmed.endsWith("}")) || (trimmed.startsWith("[") && trimmed.endsWith("]"))) {
+            try {
+                MAPPER.readTree(trimmed);
+                return Kind.JSON;
+            } catch (JsonProcessingException e) {
+                // 不是合法 JSON，按文本处理
+            }
+        }
+
+        String[] lines = trimmed.split("\n");
+        int nonEmpty = 0;
+        int code = 0;
+        int shortLines = 0;
+        for (String line : lines) {
+            if (line.isBlank()) {
+                continue;
+            }
+            nonEmpty++;
+            if (CODE_LINE.matcher(line).matches()) {
+                code++;
+            }
+            if (line.length() <= 160) {
+                shortLines++;
+            }
+        }
+        if (nonEmpty >= 5 && code * 100 >= nonEmpty * 30) {
+            return Kind.CODE;
+        }
+        if (nonEmpty >= 10 && shortLines * 100 >= nonEmpty * 90) {
+            return Kind.LISTING;
+        }
+        return Kind.TEXT;
+    }
+
+    /**
+     * 压缩到 maxTokens 以内；本来就不超过时原样返回
+     */
+    public static String compact(String text, int maxTokens) {
+        if (estimateTokens(text) <= maxTokens) {
+            return text;
+        }
+        return switch (detect(text)) {
+            case JSON -> compactJson(text, maxTokens);
+            case LISTING -> compactLines(text, maxTokens, 0.75, false);
+            case CODE -> compactLines(text, maxTokens, 0.5, true);
+            case TEXT -> compactLines(text, maxTokens, 0.7, false);
+        };
+    }
+
+    // ==================== JSON ====================
+
+    /**
+     * 先去掉格式化空白；仍然超出时逐轮减半数组保留项数和字符串保留长度
+     */
+    private static String compactJson(String text, int maxTokens) {
+        try {
+            JsonNode root = MAPPER.readTree(text);
+            String minified = MAPPER.writeValueAsString(root);
+            if (estimateTokens(minified) <= maxTokens) {
+                return minified;
+            }
+
+            int arrayLimit = Math.max(MIN_ARRAY_ITEMS, maxArraySize(root) / 2);
+            int stringLimit = Math.max(MIN_STRING_CHARS, Math.min(maxStringLength(root) / 2, maxTokens * 2));
+            while (true) {
+                String candidate = MAPPER.writeValueAsString(shrink(root, arrayLimit, stringLimit));
+                if (estimateTokens(candidate) <= maxTokens) {
+                    return candidate;
+                }
+                if (arrayLimit == MIN_ARRAY_ITEMS && stringLimit == MIN_STRING_CHARS) {
+                    // 字段本身过多，无法再按结构压缩
+                    return compactLines(candidate, maxTokens, 0.7, false);
+                }
+                arrayLimit = Math.max(MIN_ARRAY_ITEMS, arrayLimit / 2);
+                stringLimit = Math.max(MIN_STRING_CHARS, stringLimit / 2);
+            }
+        } catch (JsonProcessingException e) {
+            return compactLines(text, maxTokens, 0.7, false);
+        }
+    }
+
+    private static JsonNode shrink(JsonNode node, int arrayLimit, int stringLimit) {
+        if (node.isObject()) {
+            ObjectNode copy = JsonNodeFactory.instance.objectNode();
+            for (Map.Entry<String, JsonNode> field : node.properties()) {
+                copy.set(field.getKey(), shrink(field.getValue(), arrayLimit, stringLimit));
+            }
+            return copy;
+        }
+        if (node.isArray()) {
+            ArrayNode copy = JsonNodeFactory.instance.arrayNode();
+            int keep = Math.min(node.size(), arrayLimit);
+            for (int i = 0; i < keep; i++) {
+                copy.add(shrink(node.get(i), arrayLimit, stringLimit));
+            }
+            if (node.size() > keep) {
+                copy.add("...[省略 " + (node.size() - keep) + " 项]");
+            }
+            return copy;
+        }
+        if (node.isTextual() && node.textValue().length() > stringLimit) {
+            String value = node.textValue();
+            return TextNode.valueOf(value.substring(0, stringLimit) + "...[省略 " + (value.length() - stringLimit) + " 字符]");
+        }
+        return node;
+    }
+
+    private static int maxArraySize(JsonNode node) {
+        int max = node.isArray() ? node.size() : 0;
+        for (JsonNode child : node) {
+            max = Math.max(max, maxArraySize(child));
+        }
+        return max;
+    }
+
+    private static int maxStringLength(JsonNode node) {
+        int max = node.isTextual() ? node.textValue().length() : 0;
+        for (JsonNode child : node) {
+            max = Math.max(max, maxStringLength(child));
+        }
+        return max;
+    }
+
+    // ==================== 按行 ====================
+
+    /**
+     * 按整行保留开头（headRatio 的预算）和结尾，代码在中间插入声明行提纲
+     */
+    private static String compactLines(String text, int maxTokens, double headRatio, boolean outline) {
+        String[] lines = text.split("\n", -1);
+        // 为省略标记预留预算
+        int budget = Math.max(1, maxTokens - 16);
+        int headBudget = (int) (budget * headRatio);
+        int outlineBudget = outline ? budget / 5 : 0;
+
+        List<String> head = new ArrayList<>();
+        int used = 0;
+        int headEnd = 0;
+        while (headEnd < lines.length) {
+            int cost = estimateTokens(lines[headEnd]) + 1;
+            if (used + cost > headBudget) {
+                break;
+            }
+            head.add(lines[headEnd++]);
+            used += cost;
+        }
+        if (head.isEmpty()) {
+            // 首行就超出预算（压缩后的 JSON、超长单行等），按字符截断
+            return truncateChars(text, maxTokens);
+        }
+
+        int tailBudget = budget - used - outlineBudget;
+        List<String> tail = new ArrayList<>();
+        int tailStart = lines.length;
+        while (tailStart > headEnd) {
+            int cost = estimateTokens(lines[tailStart - 1]) + 1;
+            if (cost > tailBudget) {
+                break;
+            }
+            tail.add(0, lines[--tailStart]);
+            tailBudget -= cost;
+        }
+
+        List<String> middle = new ArrayList<>();
+        if (outline) {
+            int outlineLeft = outlineBudget + Math.max(0, tailBudget);
+            for (int i = headEnd; i < tailStart; i++) {
+                if (!DECLARATION.matcher(lines[i]).matches()) {
+                    continue;
+                }
+                String entry = "L" + (i + 1) + ": " + lines[i].strip();
+                int cost = estimateTokens(entry) + 1;
+                if (cost > outlineLeft) {
+                    break;
+                }
+                middle.add(entry);
+                outlineLeft -= cost;
+            }
+        }
+
+        StringBuilder sb = new StringBuilder();
+        head.forEach(line -> sb.append(line).append('\n'));
+        int omitted = tailStart - headEnd;
+        if (omitted > 0) {
+            sb.append("...[省略第 ").append(headEnd + 1).append("-").append(tailStart).append(" 行，共 ")
+                    .append(omitted).append(" 行").append(middle.isEmpty() ? "" : "，其中的声明如下").append("]\n");
+            middle.forEach(line -> sb.append(line).append('\n'));
+            if (!middle.isEmpty()) {
+                sb.append("...\n");
+            }
+        }
+        tail.forEach(line -> sb.append(line).append('\n'));
+        sb.setLength(sb.length() - 1);
+        return sb.toString();
+    }
+
+    /**
+     * 保留开头和结尾的字符
+     */
+    private static String truncateChars(String text, int maxTokens) {
+        int keep = Math.max(1, maxTokens - 16);
+        int headTokens = keep * 7 / 10;
+        int head = prefixLength(text, headTokens);
+        int tail = suffixLength(text, keep - headTokens, head);
+        return text.substring(0, head) + "...[省略 " + (text.length() - head - tail) + " 字符]..."
+                + text.substring(text.length() - tail);
+    }
+
+    /**
+     * 不超过 tokens 的最长前缀长度（按四分之一 token 累加，线性扫描）
+     */
+    private static int prefixLength(String text, int tokens) {
+        long budget = tokens * 4L;
+        int end = 0;
+        while (end < text.length() && (budget -= quarterTokens(text.charAt(end))) >= 0) {
+            end++;
+        }
+        return end;
+    }
+
+    /**
+     * 不超过 tokens 且不与前 minStart 个字符重叠的最长后缀长度
+     */
+    private static int suffixLength(String text, int tokens, int minStart) {
+        long budget = tokens * 4L;
+        int length = 0;
+        int max = text.length() - minStart;
+        while (length < max && (budget -= quarterTokens(text.charAt(text.length() - length - 1))) >= 0) {
+            length++;
+        }
+        return length;
+    }
+
+    private static int quarterTokens(char c) {
+        return c < 128 ? 1 : 4;
+    }
+}
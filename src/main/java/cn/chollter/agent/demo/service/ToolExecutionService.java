@@ -0,0 +1,286 @@
+package cn.chollter.agent.demo.service;
+
+import cn.chollter.agent.demo.agent.Tool;
+import cn.chollter.agent.demo.agent.ToolExecutionContext;
+import cn.chollter.agent.demo.agent.ToolExecutor;
+import cn.chollter.agent.demo.exception.ToolTimeoutCancellationException;
+import cn.chollter.agent.demo.exception.ToolTimeoutException;
+import cn.chollter.agent.demo.mcp.LocalToolAdapter;
+import cn.chollter.agent.demo.mcp.McpManager;
+import cn.chollter.agent.demo.mcp.McpToolAdapter;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.context.ContextSnapshot;
+import io.micrometer.context.ContextSnapshotFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 工具执行服务
+ * 启动后注册为 McpManager 的工具执行器，Agent 调用注册表中的 MCP 工具和本地工具时都经由本服务执行
+ * 按工具自身的 getTimeout() 限制执行时间，未设置时使用 agent.tool.timeout：
+ * - MCP 工具异步调用，超时后以 {@link ToolTimeoutCancellationException} 取消请求，
+ *   服务器收到 notifications/cancelled，熔断器记为一次超时
+ * - 其他工具在虚拟线程上执行，超时后中断执行线程
+ * 超时和失败都返回给模型一条观察结果而不是抛出异常，超时同时计入当前任务的 {@link ToolExecutionContext}
+ * 成功的结果经 {@link ObservationBudgetService} 按 token 预算压缩后返回
+ * 模型一轮返回的多个工具调用通过 executeAll 并发执行，同时执行的调用数不超过 agent.tool.max-concurrency
+ *
+ * @author Chollter
+ * @since 1.0.0
+ */
+@Slf4j
+@Service
+public class ToolExecutionService implements ToolExecutor, SmartInitializingSingleton {
+
+    private static final ContextSnapshotFactory SNAPSHOTS = ContextSnapshotFactory.builder().build();
+
+    private final Duration defaultTimeout;
+    private final int maxConcurrency;
+    private final ObservationBudgetService observationBudget;
+    private final ObjectMapper objectMapper;
+    private final McpManager mcpManager;
+
+    // 同步工具的执行线程：每次调用一个虚拟线程，超时后中断
+    private final ExecutorService toolExecutor = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("Tool-Exec-", 0).factory());
+
+    private final ScheduledExecutorService timeoutScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "Tool-Timeout");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * 一次工具调用
+     */
+    public record Invocation(Tool tool, Map<String, Object> parameters) {
+    }
+
+    @Autowired
+    public ToolExecutionService(@Value("${agent.tool.timeout:30s}") Duration defaultTimeout,
+                                @Value("${agent.tool.max-concurrency:4}") int maxConcurrency,
+                                ObservationBudgetService observationBudget,
+                                ObjectMapper objectMapper,
+                                McpManager mcpManager) {
+        this.defaultTimeout = defaultTimeout;
+        this.maxConcurrency = Math.max(1, maxConcurrency);
+        this.observationBudget = observationBudget;
+        this.objectMapper = objectMapper;
+        this.mcpManager = mcpManager;
+    }
+
+    ToolExecutionService(Duration defaultTimeout, int maxConcurrency,
+                         ObservationBudgetService observationBudget, ObjectMapper objectMapper) {
+        this(defaultTimeout, maxConcurrency, observationBudget, objectMapper, null);
+    }
+
+    /**
+     * 所有单例创建完成后接管注册表中工具的执行
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (mcpManager != null) {
+            mcpManager.setToolExecutor(this);
+            log.info("工具执行服务已接管 MCP 工具和本地工具的执行，默认超时 {} ms", defaultTimeout.toMillis());
+        }
+    }
+
+    /**
+     * 工具生效的超时时间
+     */
+    public Duration getTimeout(Tool tool) {
+        Duration timeout = tool.getTimeout();
+        return timeout != null && timeout.isPositive() ? timeout : defaultTimeout;
+    }
+
+    /**
+     * 执行工具并等待结果
+     *
+     * @return 工具结果；失败或超时时为给模型的观察结果
+     */
+    @Override
+    public String execute(Tool tool, Map<String, Object> parameters) {
+        return executeAsync(tool, parameters).join();
+    }
+
+    /**
+     * 并发执行同一轮的多个工具调用并等待全部完成
+     *
+     * @return 与 invocations 一一对应的结果
+     */
+    public List<String> executeAll(List<Invocation> invocations) {
+        return executeAllAsync(invocations).join();
+    }
+
+    /**
+     * 并发执行同一轮的多个工具调用，结果按调用顺序排列
+     * 每个调用有各自的超时，单个调用失败或超时只影响它自己的结果；
+     * 同时执行的调用数不超过 maxConcurrency，其余调用在前面的调用完成后依次开始
+     */
+    public CompletableFuture<List<String>> executeAllAsync(List<Invocation> invocations) {
+        List<CompletableFuture<String>> results = new ArrayList<>(invocations.size());
+        for (int i = 0; i < invocations.size(); i++) {
+            results.add(new CompletableFuture<>());
+        }
+        // 后续调用在前一个调用完成的线程上开始，需要带上调用线程的上下文（工具范围、执行状态等）
+        ContextSnapshot snapshot = SNAPSHOTS.captureAll();
+        AtomicInteger next = new AtomicInteger();
+        for (int i = 0; i < Math.min(maxConcurrency, invocations.size()); i++) {
+            launchNext(invocations, results, next, snapshot);
+        }
+
+        CompletableFuture<List<String>> all = CompletableFuture.allOf(results.toArray(CompletableFuture[]::new))
+                .thenApply(ignored -> results.stream().map(CompletableFuture::join).toList());
+        all.whenComplete((value, error) -> {
+            if (all.isCancelled()) {
+                results.forEach(result -> result.cancel(true));
+            }
+        });
+        return all;
+    }
+
+    private void launchNext(List<Invocation> invocations, List<CompletableFuture<String>> results,
+                            AtomicInteger next, ContextSnapshot snapshot) {
+        int index = next.getAndIncrement();
+        if (index >= invocations.size()) {
+            return;
+        }
+        CompletableFuture<String> slot = results.get(index);
+        if (slot.isDone()) {
+            launchNext(invocations, results, next, snapshot);
+            return;
+        }
+
+        Invocation invocation = invocations.get(index);
+        CompletableFuture<String> call;
+        ContextSnapshot.Scope scope = snapshot.setThreadLocals();
+        try {
+            call = executeAsync(invocation.tool(), invocation.parameters());
+        } finally {
+            scope.close();
+        }
+        slot.whenComplete((value, error) -> {
+            if (slot.isCancelled()) {
+                call.cancel(true);
+            }
+        });
+        call.whenComplete((value, error) -> {
+            slot.complete(value);
+            launchNext(invocations, results, next, snapshot);
+        });
+    }
+
+    /**
+     * 异步执行工具，返回的 future 不会异常完成
+     * 被取消时底层调用一并取消
+     */
+    public CompletableFuture<String> executeAsync(Tool tool, Map<String, Object> parameters) {
+        Duration timeout = getTimeout(tool);
+        // 在调用线程上取出执行状态，超时回调在计时线程上执行
+        ToolExecutionContext context = ToolExecutionContext.current();
+
+        CompletableFuture<String> call = start(tool, parameters);
+        CompletableFuture<String> result = new CompletableFuture<>();
+        // 带原因取消：与 cancel 一样停止调用，同时让熔断器把它记为超时
+        ScheduledFuture<?> expiry = timeoutScheduler.schedule(
+                () -> call.completeExceptionally(new ToolTimeoutCancellationException(tool.getName(), timeout)),
+                timeout.toMillis(), TimeUnit.MILLISECONDS);
+
+        call.whenComplete((value, error) -> {
+            expiry.cancel(false);
+            if (result.isDone()) {
+                return;
+            }
+            if (error == null) {
+                result.complete(observationBudget.apply(tool, value, context));
+                return;
+            }
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            if (cause instanceof ToolTimeoutCancellationException || cause instanceof ToolTimeoutException) {
+                log.warn("工具执行超时，已取消: {} ({} ms)", tool.getName(), timeout.toMillis());
+                if (context != null) {
+                    context.recordTimeout();
+                }
+                result.complete(timeoutObservation(new ToolTimeoutException(tool.getName(), timeout)));
+            } else {
+                log.error("工具执行失败: {}", tool.getName(), cause);
+                result.complete("Error: 工具执行失败 - " + cause.getMessage());
+            }
+        });
+        result.whenComplete((value, error) -> {
+            if (result.isCancelled()) {
+                call.cancel(true);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * MCP 工具直接使用异步调用，其他工具提交到执行线程，调用线程上的上下文（工具范围、进度接收方等）一并传递
+     * 适配器的 execute 会再交给执行器，这里调用其内部的执行入口
+     */
+    private CompletableFuture<String> start(Tool tool, Map<String, Object> parameters) {
+        if (tool instanceof McpToolAdapter adapter) {
+            return adapter.executeAsync(parameters);
+        }
+
+        CompletableFuture<String> call = new CompletableFuture<>();
+        Future<?> task = toolExecutor.submit(SNAPSHOTS.captureAll().wrap(() -> {
+            try {
+                call.complete(tool instanceof LocalToolAdapter local
+                        ? local.executeLocally(parameters) : tool.execute(parameters));
+            } catch (Throwable e) {
+                call.completeExceptionally(e);
+            }
+        }));
+        // 超时或被取消时中断执行线程
+        call.whenComplete((value, error) -> {
+            if (call.isCancelled()) {
+                task.cancel(true);
+            }
+        });
+        return call;
+    }
+
+    /**
+     * 超时的观察结果：JSON 格式，模型可据此缩小范围重试或改用其他工具
+     */
+    private String timeoutObservation(ToolTimeoutException e) {
+        Map<String, Object> observation = new LinkedHashMap<>();
+        observation.put("status", "TIMEOUT");
+        observation.put("tool", e.getToolName());
+        observation.put("timeoutMs", e.getTimeout().toMillis());
+        observation.put("message", "工具执行超时，调用已取消。可以缩小参数范围后重试，或改用其他工具");
+        try {
+            return objectMapper.writeValueAsString(observation);
+        } catch (JsonProcessingException ex) {
+            return "Error: " + e.getMessage();
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        timeoutScheduler.shutdownNow();
+        toolExecutor.shutdownNow();
+    }
+}
@@ -0,0 +1,65 @@
+package cn.chollter.agent.demo.mcp;
+
+import cn.chollter.agent.demo.exception.ToolTimeoutCancellationException;
+import cn.chollter.agent.demo.mcp.dto.CallToolResult;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 带熔断的MCP连接测试类
+ *
+ * @author Chollter
+ * @since 1.0.0
+ */
+class CircuitBreakingConnectionTest {
+
+    private final McpConnection delegate = mock(McpConnection.class);
+    private final McpCircuitBreaker circuitBreaker = new McpCircuitBreaker(2);
+    private final CircuitBreakingConnection connection = new CircuitBreakingConnection(delegate, circuitBreaker);
+
+    @Test
+    void testCallerTimeoutCountedAsTimeout() {
+        CompletableFuture<CallToolResult> upstream = new CompletableFuture<>();
+        when(delegate.callToolResultAsync(anyString(), any())).thenReturn(upstream);
+
+        CompletableFuture<CallToolResult> call = connection.callToolResultAsync("search", Map.of());
+        call.completeExceptionally(new ToolTimeoutCancellationException("search", Duration.ofSeconds(1)));
+
+        // 取消原因传到底层请求，熔断器记为超时
+        assertTrue(upstream.isCancelled());
+        assertEquals(1, circuitBreaker.getConsecutiveTimeouts());
+    }
+
+    @Test
+    void testPlainCancelNotCounted() {
+        CompletableFuture<CallToolResult> upstream = new CompletableFuture<>();
+        when(delegate.callToolResultAsync(anyString(), any())).thenReturn(upstream);
+
+        connection.callToolResultAsync("search", Map.of()).cancel(true);
+
+        assertTrue(upstream.isCancelled());
+        assertEquals(0, circuitBreaker.getConsecutiveTimeouts());
+    }
+
+    @Test
+    void testRequestDeadlineCountedAndOpensBreaker() {
+        when(delegate.callToolResultAsync(anyString(), any()))
+                .thenAnswer(invocation -> CompletableFuture.failedFuture(new TimeoutException("请求超时")));
+
+        connection.callToolResultAsync("search", Map.of());
+        connection.callToolResultAsync("search", Map.of());
+
+        assertEquals(McpCircuitBreaker.State.OPEN, circuitBreaker.getState());
+        assertFalse(circuitBreaker.allowRequest());
+    }
+}
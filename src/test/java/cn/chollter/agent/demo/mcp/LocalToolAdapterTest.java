@@ -0,0 +1,169 @@
+package cn.chollter.agent.demo.mcp;
+
+import cn.chollter.agent.demo.agent.Tool;
+import cn.chollter.agent.demo.agent.ToolExecutor;
+import cn.chollter.agent.demo.config.McpConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 进程内工具适配器测试类
+ *
+ * @author Chollter
+ * @since 1.0.0
+ */
+class LocalToolAdapterTest {
+
+    private final ToolResultCache resultCache = new ToolResultCache(new McpConfig(), (StringRedisTemplate) null,
+            new SimpleMeterRegistry());
+    private final SingleFlight<ToolCallKey, String> singleFlight = new SingleFlight<>();
+    private final AtomicReference<ToolExecutor> executor = new AtomicReference<>();
+
+    @AfterEach
+    void tearDown() {
+        resultCache.destroy();
+    }
+
+    @Test
+    void testCacheableToolServedFromCache() {
+        CountingTool tool = new CountingTool("history", true);
+        LocalToolAdapter adapter = new LocalToolAdapter(tool, singleFlight, resultCache, executor);
+
+        // 参数键顺序不同，规范化后命中同一条缓存
+        Map<String, Object> first = new LinkedHashMap<>();
+        first.put("id", 1);
+        first.put("limit", 10);
+        Map<String, Object> second = new LinkedHashMap<>();
+        second.put("limit", 10);
+        second.put("id", 1);
+
+        assertEquals("history#1", adapter.execute(first));
+        assertEquals("history#1", adapter.execute(second));
+        assertEquals(1, tool.calls.get());
+        assertEquals(1, adapter.getInvocationCount());
+    }
+
+    @Test
+    void testNonCacheableToolInvokedEveryTime() {
+        CountingTool tool = new CountingTool("write", false);
+        LocalToolAdapter adapter = new LocalToolAdapter(tool, singleFlight, resultCache, executor);
+
+        assertEquals("write#1", adapter.execute(Map.of()));
+        assertEquals("write#2", adapter.execute(Map.of()));
+        assertEquals(2, tool.calls.get());
+    }
+
+    @Test
+    void testExecuteGoesThroughToolExecutor() {
+        CountingTool tool = new CountingTool("write", false);
+        LocalToolAdapter adapter = new LocalToolAdapter(tool, singleFlight, resultCache, executor);
+        executor.set((target, parameters) -> "managed:" + ((LocalToolAdapter) target).executeLocally(parameters));
+
+        assertEquals("managed:write#1", adapter.execute(Map.of()));
+        assertEquals(1, adapter.getInvocationCount());
+    }
+
+    @Test
+    void testErrorResultNotCached() {
+        AtomicInteger executions = new AtomicInteger();
+        Tool tool = new CountingTool("flaky", true) {
+            @Override
+            public String execute(Map<String, Object> parameters) {
+                return executions.incrementAndGet() == 1 ? "Error: 暂时不可用" : "ok";
+            }
+        };
+        LocalToolAdapter adapter = new LocalToolAdapter(tool, singleFlight, resultCache, executor);
+
+        assertEquals("Error: 暂时不可用", adapter.execute(Map.of()));
+        assertEquals("ok", adapter.execute(Map.of()));
+        assertEquals("ok", adapter.execute(Map.of()));
+        assertEquals(2, executions.get());
+    }
+
+    @Test
+    void testConcurrentCallsShareOneInvocation() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger executions = new AtomicInteger();
+        Tool tool = new CountingTool("slow", true) {
+            @Override
+            public String execute(Map<String, Object> parameters) {
+                executions.incrementAndGet();
+                started.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return "done";
+            }
+        };
+        LocalToolAdapter adapter = new LocalToolAdapter(tool, singleFlight, resultCache, executor);
+
+        CompletableFuture<String> first = CompletableFuture.supplyAsync(() -> adapter.execute(Map.of("q", "x")));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        CompletableFuture<String> second = CompletableFuture.supplyAsync(() -> adapter.execute(Map.of("q", "x")));
+        // 等第二个调用加入合并后再放行
+        Thread.sleep(100);
+        release.countDown();
+
+        assertEquals("done", first.get(5, TimeUnit.SECONDS));
+        assertEquals("done", second.get(5, TimeUnit.SECONDS));
+        assertEquals(1, executions.get());
+    }
+
+    @Test
+    void testRegisteredUnderLocalHostAndKeptOnServerRemoval() {
+        LocalToolAdapter adapter = new LocalToolAdapter(new CountingTool("history", true), singleFlight, resultCache,
+                executor);
+        McpToolRegistry registry = McpToolRegistry.EMPTY.withTools(List.of(adapter));
+
+        assertSame(adapter, registry.get("history"));
+        assertEquals(1, registry.byServer(LocalToolAdapter.HOST).size());
+        assertSame(adapter, registry.withoutServer(LocalToolAdapter.HOST).get("history"));
+    }
+
+    private static class CountingTool implements Tool {
+        final AtomicInteger calls = new AtomicInteger();
+        private final String name;
+        private final boolean cacheable;
+
+        CountingTool(String name, boolean cacheable) {
+            this.name = name;
+            this.cacheable = cacheable;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public String getDescription() {
+            return name;
+        }
+
+        @Override
+        public boolean isCacheable() {
+            return cacheable;
+        }
+
+        @Override
+        public String execute(Map<String, Object> parameters) {
+            return name + "#" + calls.incrementAndGet();
+        }
+    }
+}
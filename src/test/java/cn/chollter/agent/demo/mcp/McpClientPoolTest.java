@@ -0,0 +1,114 @@
+package cn.chollter.agent.demo.mcp;
+
+import cn.chollter.agent.demo.exception.McpException;
+import com.fasterxml.jackson.databind.JsonNode;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * MCP客户端池测试类
+ *
+ * @author Chollter
+ * @since 1.0.0
+ */
+class McpClientPoolTest {
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    private final McpClient first = mock(McpClient.class);
+    private final McpClient second = mock(McpClient.class);
+
+    @AfterEach
+    void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * 创建包含两个进程的池：首个进程有在途请求时调用一次，触发后台扩容
+     */
+    private McpClientPool twoClientPool() throws Exception {
+        AtomicInteger created = new AtomicInteger();
+        when(first.isAlive()).thenReturn(true);
+        when(second.isAlive()).thenReturn(true);
+        when(first.getPendingRequestCount()).thenReturn(1);
+        McpClientPool pool = new McpClientPool("fs", () -> created.getAndIncrement() == 0 ? first : second,
+                2, Duration.ZERO, scheduler);
+        pool.callToolResultAsync("search", Map.of());
+        long deadline = System.currentTimeMillis() + 5000;
+        while (pool.size() < 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(2, pool.size());
+        return pool;
+    }
+
+    @Test
+    void testDeadPrimaryReplacedAndResourcesResubscribed() throws Exception {
+        McpClientPool pool = twoClientPool();
+        List<String> updated = new CopyOnWriteArrayList<>();
+        pool.addNotificationListener((method, params) -> updated.add(method + " " + params.path("uri").asText()));
+        pool.subscribeResource("file:///a");
+
+        when(first.isAlive()).thenReturn(false);
+
+        assertTrue(pool.isAlive());
+        assertSame(second, pool.getPrimaryClient());
+        assertEquals(1, pool.size());
+        verify(first).close();
+        verify(second).subscribeResource("file:///a");
+        // 接替前可能错过的更新以通知形式补发，上层据此丢弃缓存
+        assertEquals(List.of("notifications/resources/updated file:///a"), updated);
+
+        pool.readResource("file:///a");
+        verify(second).readResource("file:///a");
+        verify(first, never()).readResource(anyString());
+    }
+
+    @Test
+    void testNotAliveWhenNoClientSurvives() throws Exception {
+        McpClientPool pool = twoClientPool();
+        when(first.isAlive()).thenReturn(false);
+        when(second.isAlive()).thenReturn(false);
+
+        assertFalse(pool.isAlive());
+        verify(first, never()).close();
+    }
+
+    @Test
+    void testClosedPoolReportsMcpException() throws Exception {
+        McpClientPool pool = twoClientPool();
+        pool.close();
+
+        McpException error = assertThrows(McpException.class, pool::getPrimaryClient);
+        assertTrue(error.getMessage().contains("'fs'"), error.getMessage());
+        assertThrows(McpException.class, () -> pool.readResource("file:///a"));
+        assertFalse(pool.isAlive());
+        verify(first).close();
+        verify(second).close();
+    }
+
+    @Test
+    void testUnsubscribedResourceNotResubscribed() throws Exception {
+        McpClientPool pool = twoClientPool();
+        pool.addNotificationListener((String method, JsonNode params) -> fail("不应补发通知: " + params));
+        pool.subscribeResource("file:///a");
+        pool.unsubscribeResource("file:///a");
+
+        when(first.isAlive()).thenReturn(false);
+
+        assertSame(second, pool.getPrimaryClient());
+        verify(second, never()).subscribeResource(any());
+    }
+}
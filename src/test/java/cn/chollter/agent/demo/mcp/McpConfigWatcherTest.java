@@ -0,0 +1,65 @@
+package cn.chollter.agent.demo.mcp;
+
+import cn.chollter.agent.demo.config.McpConfig;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * MCP服务器配置文件监听测试类
+ *
+ * @author Chollter
+ * @since 1.0.0
+ */
+class McpConfigWatcherTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Path write(String content) throws IOException {
+        Path file = tempDir.resolve("mcp-servers.yml");
+        Files.writeString(file, content);
+        return file;
+    }
+
+    @Test
+    void testReadServers() throws Exception {
+        List<McpConfig.McpServer> servers = McpConfigWatcher.readServers(write("""
+                mcp:
+                  servers:
+                    - name: filesystem
+                      command: npx
+                      max-connections: 2
+                """));
+
+        assertEquals(1, servers.size());
+        assertEquals("filesystem", servers.get(0).getName());
+        assertEquals(2, servers.get(0).getMaxConnections());
+    }
+
+    @Test
+    void testEmptyFileIsReadError() throws Exception {
+        Path file = write("");
+
+        // 写入到一半的空文件不能被当作移除全部服务器
+        assertThrows(IOException.class, () -> McpConfigWatcher.readServers(file));
+    }
+
+    @Test
+    void testTruncatedFileIsReadError() throws Exception {
+        Path file = write("mcp:\n  serv");
+
+        assertThrows(IOException.class, () -> McpConfigWatcher.readServers(file));
+    }
+
+    @Test
+    void testExplicitEmptyListRemovesAllServers() throws Exception {
+        assertEquals(List.of(), McpConfigWatcher.readServers(write("mcp:\n  servers: []\n")));
+    }
+}
@@ -0,0 +1,343 @@
+package cn.chollter.agent.demo.mcp;
+
+import cn.chollter.agent.demo.mcp.dto.McpTool;
+import cn.chollter.agent.demo.mcp.dto.ToolCall;
+import cn.chollter.agent.demo.mcp.transport.SseTransport;
+import cn.chollter.agent.demo.mcp.transport.StreamableHttpTransport;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * MCP HTTP 传输测试类
+ * 使用本地 HttpServer 模拟 Streamable HTTP 和 HTTP+SSE 两种MCP服务器
+ *
+ * @author Chollter
+ * @since 1.0.0
+ */
+class McpHttpTransportTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private HttpServer server;
+    private ExecutorService executor;
+    private String baseUrl;
+
+    // Streamable HTTP 服务端状态
+    private final AtomicInteger sessionCounter = new AtomicInteger();
+    private final AtomicBoolean expireSessionOnce = new AtomicBoolean(false);
+    private volatile String currentSession;
+    private final BlockingQueue<JsonNode> receivedNotifications = new LinkedBlockingQueue<>();
+    private final AtomicInteger batchPosts = new AtomicInteger();
+
+    // HTTP+SSE 服务端状态
+    private final BlockingQueue<String> sseOutbox = new LinkedBlockingQueue<>();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        executor = Executors.newCachedThreadPool();
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(executor);
+        server.createContext("/mcp", this::handleStreamableHttp);
+        server.createContext("/sse", this::handleSseStream);
+        server.createContext("/messages", this::handleSseMessage);
+        server.start();
+        baseUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    @AfterEach
+    void tearDown() {
+        sseOutbox.offer("__close__");
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    @Test
+    void testStreamableHttpListAndCallTools() throws Exception {
+        try (McpClient client = new McpClient("remote", new StreamableHttpTransport(
+                "remote", URI.create(baseUrl + "/mcp"), Map.of(), Duration.ofSeconds(5)))) {
+
+            List<McpTool> tools = client.listTools();
+            assertEquals(1, tools.size());
+            assertEquals("echo", tools.get(0).name());
+
+            // tools/call 以 SSE 流返回
+            assertEquals("echo:hello", client.callTool("echo", Map.of("text", "hello")));
+        }
+    }
+
+    @Test
+    void testStreamableHttpConcurrentCalls() throws Exception {
+        try (McpClient client = new McpClient("remote", new StreamableHttpTransport(
+                "remote", URI.create(baseUrl + "/mcp"), Map.of(), Duration.ofSeconds(5)))) {
+
+            List<CompletableFuture<String>> futures = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                futures.add(client.callToolAsync("echo", Map.of("text", "msg-" + i)));
+            }
+
+            for (int i = 0; i < 20; i++) {
+                assertEquals("echo:msg-" + i, futures.get(i).get(10, TimeUnit.SECONDS));
+            }
+            assertEquals(0, client.getPendingRequestCount());
+        }
+    }
+
+    @Test
+    void testStreamableHttpReinitializesExpiredSession() throws Exception {
+        try (McpClient client = new McpClient("remote", new StreamableHttpTransport(
+                "remote", URI.create(baseUrl + "/mcp"), Map.of(), Duration.ofSeconds(5)))) {
+            String firstSession = currentSession;
+
+            expireSessionOnce.set(true);
+            assertThrows(Exception.class, () -> client.callTool("echo", Map.of("text", "lost")));
+
+            // 等待客户端重新握手
+            long deadline = System.currentTimeMillis() + 5000;
+            while (firstSession.equals(currentSession) && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+            assertNotEquals(firstSession, currentSession);
+            assertEquals("echo:again", client.callTool("echo", Map.of("text", "again")));
+        }
+    }
+
+    @Test
+    void testExpiredSessionReinitializedOnce() throws Exception {
+        try (McpClient client = new McpClient("remote", new StreamableHttpTransport(
+                "remote", URI.create(baseUrl + "/mcp"), Map.of(), Duration.ofSeconds(5)))) {
+            // 服务端丢弃会话，之后携带旧会话 ID 的请求都返回 404
+            currentSession = "expired";
+
+            List<CompletableFuture<String>> futures = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                futures.add(client.callToolAsync("echo", Map.of("text", "msg-" + i)));
+            }
+            for (CompletableFuture<String> future : futures) {
+                future.handle((result, error) -> null).get(10, TimeUnit.SECONDS);
+            }
+
+            // 多个请求同时收到 404 也只重新握手一次，握手后的请求使用新会话
+            assertEquals("echo:again", client.callTool("echo", Map.of("text", "again")));
+            assertEquals(2, sessionCounter.get());
+            assertEquals(0, client.getPendingRequestCount());
+        }
+    }
+
+    @Test
+    void testTimedOutRequestIsCancelledOnServer() throws Exception {
+        try (McpClient client = new McpClient("remote", new StreamableHttpTransport(
+                "remote", URI.create(baseUrl + "/mcp"), Map.of(), Duration.ofSeconds(5)), Duration.ofSeconds(1))) {
+
+            Exception e = assertThrows(Exception.class, () -> client.callTool("echo", Map.of("text", "hang")));
+            assertTrue(e.getMessage().contains("请求超时"));
+            assertEquals(0, client.getPendingRequestCount());
+            assertEquals(1, client.getTimeoutCount());
+
+            JsonNode cancelled = null;
+            for (JsonNode n; (n = receivedNotifications.poll(5, TimeUnit.SECONDS)) != null; ) {
+                if ("notifications/cancelled".equals(n.path("method").asText())) {
+                    cancelled = n;
+                    break;
+                }
+            }
+            assertNotNull(cancelled);
+            assertTrue(cancelled.path("params").path("requestId").canConvertToLong());
+        }
+    }
+
+    @Test
+    void testBatchToolCalls() throws Exception {
+        try (McpClient client = new McpClient("remote", new StreamableHttpTransport(
+                "remote", URI.create(baseUrl + "/mcp"), Map.of(), Duration.ofSeconds(5)))) {
+            assertTrue(client.isBatchSupported());
+
+            List<ToolCall> calls = new ArrayList<>();
+            for (int i = 0; i < 5; i++) {
+                calls.add(new ToolCall("echo", Map.of("text", "batch-" + i)));
+            }
+            List<CompletableFuture<String>> futures = client.callToolsBatch(calls);
+
+            for (int i = 0; i < 5; i++) {
+                assertEquals("echo:batch-" + i, futures.get(i).get(10, TimeUnit.SECONDS));
+            }
+            assertEquals(1, batchPosts.get());
+            assertEquals(0, client.getPendingRequestCount());
+        }
+    }
+
+    @Test
+    void testCancelledBatchCallCancelledOnServer() throws Exception {
+        try (McpClient client = new McpClient("remote", new StreamableHttpTransport(
+                "remote", URI.create(baseUrl + "/mcp"), Map.of(), Duration.ofSeconds(5)))) {
+
+            List<CompletableFuture<String>> futures = client.callToolsBatch(List.of(
+                    new ToolCall("echo", Map.of("text", "fast")), new ToolCall("echo", Map.of("text", "hang"))));
+            assertEquals("echo:fast", futures.get(0).get(10, TimeUnit.SECONDS));
+
+            futures.get(1).cancel(true);
+
+            // 取消传到底层请求：不再等待响应，服务器收到 notifications/cancelled
+            assertEquals(0, client.getPendingRequestCount());
+            JsonNode cancelled = null;
+            for (JsonNode n; (n = receivedNotifications.poll(5, TimeUnit.SECONDS)) != null; ) {
+                if ("notifications/cancelled".equals(n.path("method").asText())) {
+                    cancelled = n;
+                    break;
+                }
+            }
+            assertNotNull(cancelled);
+        }
+    }
+
+    @Test
+    void testSseTransport() throws Exception {
+        try (McpClient client = new McpClient("legacy", new SseTransport(
+                "legacy", URI.create(baseUrl + "/sse"), Map.of(), Duration.ofSeconds(5)))) {
+
+            assertEquals("echo", client.listTools().get(0).name());
+            assertEquals("echo:sse", client.callTool("echo", Map.of("text", "sse")));
+        }
+    }
+
+    // ==================== 模拟服务端 ====================
+
+    private void handleStreamableHttp(HttpExchange exchange) throws IOException {
+        switch (exchange.getRequestMethod()) {
+            case "GET" -> respond(exchange, 405, null, "");
+            case "DELETE" -> respond(exchange, 200, null, "");
+            default -> {
+                JsonNode request = objectMapper.readTree(exchange.getRequestBody());
+                String method = request.path("method").asText();
+                String session = exchange.getRequestHeaders().getFirst("Mcp-Session-Id");
+
+                if (request.isArray()) {
+                    // 批量请求：按原顺序逆序返回，验证客户端按 id 分发
+                    batchPosts.incrementAndGet();
+                    List<Object> responses = new ArrayList<>();
+                    for (JsonNode element : request) {
+                        if ("hang".equals(element.path("params").path("arguments").path("text").asText())) {
+                            continue;
+                        }
+                        responses.add(0, Map.of("jsonrpc", "2.0", "id", element.get("id"), "result", callResult(element)));
+                    }
+                    respond(exchange, 200, "application/json", objectMapper.writeValueAsString(responses));
+                    return;
+                }
+
+                if ("initialize".equals(method)) {
+                    currentSession = "session-" + sessionCounter.incrementAndGet();
+                    exchange.getResponseHeaders().add("Mcp-Session-Id", currentSession);
+                    // 按客户端请求的版本协商，不声明 experimental 能力，批量请求由协议版本决定
+                    respond(exchange, 200, "application/json", response(request, Map.of(
+                            "protocolVersion", request.path("params").path("protocolVersion").asText(),
+                            "capabilities", Map.of("tools", Map.of()))));
+                    return;
+                }
+                if (session == null || !session.equals(currentSession) || expireSessionOnce.getAndSet(false)) {
+                    respond(exchange, 404, null, "session not found");
+                    return;
+                }
+                if (!request.has("id")) {
+                    receivedNotifications.offer(request);
+                    respond(exchange, 202, null, "");
+                } else if ("hang".equals(request.path("params").path("arguments").path("text").asText())) {
+                    // 模拟处理很慢的工具：接受请求但不返回结果
+                    respond(exchange, 202, null, "");
+                } else if ("tools/call".equals(method)) {
+                    String data = response(request, callResult(request));
+                    respond(exchange, 200, "text/event-stream", "event: message\ndata: " + data + "\n\n");
+                } else {
+                    respond(exchange, 200, "application/json", response(request, toolsResult()));
+                }
+            }
+        }
+    }
+
+    private void handleSseStream(HttpExchange exchange) throws IOException {
+        exchange.getResponseHeaders().add("Content-Type", "text/event-stream");
+        exchange.sendResponseHeaders(200, 0);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write("event: endpoint\ndata: /messages?sessionId=1\n\n".getBytes(StandardCharsets.UTF_8));
+            out.flush();
+            while (true) {
+                String message = sseOutbox.take();
+                if ("__close__".equals(message)) {
+                    return;
+                }
+                out.write(("event: message\ndata: " + message + "\n\n").getBytes(StandardCharsets.UTF_8));
+                out.flush();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void handleSseMessage(HttpExchange exchange) throws IOException {
+        JsonNode request = objectMapper.readTree(exchange.getRequestBody());
+        respond(exchange, 202, null, "");
+        if (!request.has("id")) {
+            return;
+        }
+        Object result = switch (request.path("method").asText()) {
+            case "initialize" -> initializeResult();
+            case "tools/call" -> callResult(request);
+            default -> toolsResult();
+        };
+        sseOutbox.offer(response(request, result));
+    }
+
+    private void respond(HttpExchange exchange, int status, String contentType, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        if (contentType != null) {
+            exchange.getResponseHeaders().add("Content-Type", contentType);
+        }
+        exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+        if (bytes.length > 0) {
+            exchange.getResponseBody().write(bytes);
+        }
+        exchange.close();
+    }
+
+    private String response(JsonNode request, Object result) throws IOException {
+        return objectMapper.writeValueAsString(Map.of("jsonrpc", "2.0", "id", request.get("id"), "result", result));
+    }
+
+    private Map<String, Object> initializeResult() {
+        return Map.of("protocolVersion", "2024-11-05",
+                "capabilities", Map.of("tools", Map.of(), "experimental", Map.of("batch", Map.of())));
+    }
+
+    private Map<String, Object> toolsResult() {
+        return Map.of("tools", List.of(Map.of("name", "echo", "description", "回显输入",
+                "inputSchema", Map.of("type", "object"))));
+    }
+
+    private Map<String, Object> callResult(JsonNode request) {
+        String text = request.path("params").path("arguments").path("text").asText();
+        return Map.of("content", List.of(Map.of("type", "text", "text", "echo:" + text)));
+    }
+}
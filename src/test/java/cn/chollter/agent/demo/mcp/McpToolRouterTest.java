@@ -0,0 +1,166 @@
+package cn.chollter.agent.demo.mcp;
+
+import cn.chollter.agent.demo.config.McpConfig;
+import cn.chollter.agent.demo.exception.McpException;
+import cn.chollter.agent.demo.mcp.dto.CallToolResult;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.stubbing.Answer;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * MCP工具副本路由器测试类
+ *
+ * @author Chollter
+ * @since 1.0.0
+ */
+class McpToolRouterTest {
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    private final McpConnection primary = mock(McpConnection.class);
+    private final McpConnection secondary = mock(McpConnection.class);
+    private McpToolRouter router;
+
+    @BeforeEach
+    void setUp() {
+        McpConfig config = new McpConfig();
+        config.setOrchestrationStrategy(McpConfig.OrchestrationStrategy.PARALLEL);
+        config.getRouting().setHedgeMinSamples(1);
+        config.getRouting().setHedgeMinDelayMs(20);
+        Map<String, McpConnection> connections = Map.of("a", primary, "b", secondary);
+        router = new McpToolRouter(config, name -> null, connections::get, name -> true, scheduler);
+        router.addReplica("search", "a");
+        router.addReplica("search", "b");
+    }
+
+    @AfterEach
+    void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    private static CallToolResult result() {
+        return new CallToolResult(List.of(), false);
+    }
+
+    /**
+     * 两个副本各积累一个快速成功的样本，使 a 排在前面并满足对冲所需的样本数
+     */
+    private void warmUp() throws Exception {
+        when(primary.callToolResultAsync(anyString(), any())).thenReturn(CompletableFuture.completedFuture(result()));
+        when(secondary.callToolResultAsync(anyString(), any())).thenAnswer(invocation ->
+                CompletableFuture.supplyAsync(McpToolRouterTest::result,
+                        CompletableFuture.delayedExecutor(30, TimeUnit.MILLISECONDS, scheduler)));
+        router.callToolResultAsync("search", Map.of(), false).get(5, TimeUnit.SECONDS);
+        while (router.rank("search").get(0).equals("b")) {
+            router.callToolResultAsync("search", Map.of(), false).get(5, TimeUnit.SECONDS);
+        }
+        router.callToolResultAsync("search", Map.of(), false).get(5, TimeUnit.SECONDS);
+        clearInvocations(primary, secondary);
+    }
+
+    @Test
+    void testNonIdempotentToolNotHedged() throws Exception {
+        warmUp();
+        // 两个副本都不返回：无论路由到哪个副本，超过 p95 后都不应再发往另一个
+        AtomicInteger attempts = new AtomicInteger();
+        when(primary.callToolResultAsync(anyString(), any())).thenAnswer(invocation -> {
+            attempts.incrementAndGet();
+            return new CompletableFuture<CallToolResult>();
+        });
+        when(secondary.callToolResultAsync(anyString(), any())).thenAnswer(invocation -> {
+            attempts.incrementAndGet();
+            return new CompletableFuture<CallToolResult>();
+        });
+
+        CompletableFuture<CallToolResult> call = router.callToolResultAsync("search", Map.of(), false);
+        Thread.sleep(200);
+
+        assertFalse(call.isDone());
+        assertEquals(1, attempts.get());
+        call.cancel(true);
+    }
+
+    @Test
+    void testIdempotentToolHedgedToSecondReplica() throws Exception {
+        warmUp();
+        // 首个请求（无论路由到哪个副本）不返回，对冲请求立即返回
+        CompletableFuture<CallToolResult> stuck = new CompletableFuture<>();
+        AtomicInteger attempts = new AtomicInteger();
+        Answer<CompletableFuture<CallToolResult>> answer = invocation ->
+                attempts.getAndIncrement() == 0 ? stuck : CompletableFuture.completedFuture(result());
+        when(primary.callToolResultAsync(anyString(), any())).thenAnswer(answer);
+        when(secondary.callToolResultAsync(anyString(), any())).thenAnswer(answer);
+
+        CompletableFuture<CallToolResult> call = router.callToolResultAsync("search", Map.of(), true);
+
+        assertNotNull(call.get(5, TimeUnit.SECONDS));
+        assertEquals(2, attempts.get());
+        // 落败的首个请求被取消（取消在结果完成后的回调里进行，可能晚于 get 返回）
+        stuck.exceptionally(error -> null).get(5, TimeUnit.SECONDS);
+        assertTrue(stuck.isCancelled());
+    }
+
+    @Test
+    void testIdempotentToolFailsOverWhenFirstReplicaFailsFast() throws Exception {
+        warmUp();
+        // 首个请求（无论路由到哪个副本）在对冲计时前就失败，立即转发给另一个副本
+        AtomicInteger attempts = new AtomicInteger();
+        Answer<CompletableFuture<CallToolResult>> answer = invocation -> attempts.getAndIncrement() == 0
+                ? CompletableFuture.failedFuture(new McpException("a", "boom"))
+                : CompletableFuture.completedFuture(result());
+        when(primary.callToolResultAsync(anyString(), any())).thenAnswer(answer);
+        when(secondary.callToolResultAsync(anyString(), any())).thenAnswer(answer);
+
+        CompletableFuture<CallToolResult> call = router.callToolResultAsync("search", Map.of(), true);
+
+        assertNotNull(call.get(5, TimeUnit.SECONDS));
+        assertEquals(2, attempts.get());
+    }
+
+    @Test
+    void testHedgedCallFailsWhenBothReplicasFail() throws Exception {
+        warmUp();
+        AtomicInteger attempts = new AtomicInteger();
+        Answer<CompletableFuture<CallToolResult>> answer = invocation -> {
+            attempts.incrementAndGet();
+            return CompletableFuture.failedFuture(new McpException("a", "boom"));
+        };
+        when(primary.callToolResultAsync(anyString(), any())).thenAnswer(answer);
+        when(secondary.callToolResultAsync(anyString(), any())).thenAnswer(answer);
+
+        CompletableFuture<CallToolResult> call = router.callToolResultAsync("search", Map.of(), true);
+
+        ExecutionException error = assertThrows(ExecutionException.class, () -> call.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(McpException.class, error.getCause());
+        assertEquals(2, attempts.get());
+    }
+
+    @Test
+    void testFastFailingReplicaRankedLast() throws Exception {
+        when(primary.callToolResultAsync(anyString(), any()))
+                .thenAnswer(invocation -> CompletableFuture.failedFuture(new McpException("a", "boom")));
+        when(secondary.callToolResultAsync(anyString(), any())).thenAnswer(invocation ->
+                CompletableFuture.supplyAsync(McpToolRouterTest::result,
+                        CompletableFuture.delayedExecutor(10, TimeUnit.MILLISECONDS, scheduler)));
+
+        for (int i = 0; i < 4; i++) {
+            router.callToolResultAsync("search", Map.of(), false).exceptionally(error -> null).get(5, TimeUnit.SECONDS);
+        }
+
+        assertEquals(List.of("b", "a"), router.rank("search"));
+    }
+}
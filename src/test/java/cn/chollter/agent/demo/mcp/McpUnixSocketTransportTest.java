@@ -0,0 +1,252 @@
+package cn.chollter.agent.demo.mcp;
+
+import cn.chollter.agent.demo.mcp.transport.UnixSocketTransport;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * MCP Unix 域套接字传输测试类
+ * 使用本地套接字模拟长期运行的共享 MCP 守护进程
+ *
+ * @author Chollter
+ * @since 1.0.0
+ */
+class McpUnixSocketTransportTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final List<SocketChannel> connections = new CopyOnWriteArrayList<>();
+    private final AtomicInteger initializeCount = new AtomicInteger();
+    private final List<String> receivedMethods = new CopyOnWriteArrayList<>();
+
+    @TempDir
+    Path tempDir;
+
+    private Path socketPath;
+    private ServerSocketChannel server;
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        socketPath = tempDir.resolve("mcp.sock");
+        executor = Executors.newCachedThreadPool();
+        startDaemon();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        stopDaemon();
+        executor.shutdownNow();
+    }
+
+    @Test
+    void testListAndCallTools() throws Exception {
+        try (McpClient client = newClient()) {
+            assertEquals("echo", client.listTools().get(0).name());
+            assertEquals("echo:hello", client.callTool("echo", Map.of("text", "hello")));
+        }
+    }
+
+    @Test
+    void testConcurrentCallsMultiplexedOnOneConnection() throws Exception {
+        try (McpClient client = newClient()) {
+            List<CompletableFuture<String>> futures = new ArrayList<>();
+            for (int i = 0; i < 50; i++) {
+                futures.add(client.callToolAsync("echo", Map.of("text", "msg-" + i)));
+            }
+
+            // 守护进程以随机延迟乱序返回，客户端按 id 分发
+            for (int i = 0; i < 50; i++) {
+                assertEquals("echo:msg-" + i, futures.get(i).get(10, TimeUnit.SECONDS));
+            }
+            assertEquals(1, connections.size());
+            assertEquals(0, client.getPendingRequestCount());
+        }
+    }
+
+    @Test
+    void testReplicasShareOneDaemon() throws Exception {
+        try (McpClient first = newClient(); McpClient second = newClient()) {
+            assertEquals("echo:a", first.callTool("echo", Map.of("text", "a")));
+            assertEquals("echo:b", second.callTool("echo", Map.of("text", "b")));
+            assertEquals(2, connections.size());
+        }
+    }
+
+    @Test
+    void testWaitsForSocketToAppear() throws Exception {
+        stopDaemon();
+        CompletableFuture.delayedExecutor(300, TimeUnit.MILLISECONDS).execute(() -> {
+            try {
+                startDaemon();
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+
+        try (McpClient client = newClient()) {
+            assertEquals("echo:late", client.callTool("echo", Map.of("text", "late")));
+        }
+    }
+
+    @Test
+    void testReconnectsAfterDaemonRestart() throws Exception {
+        try (McpClient client = newClient()) {
+            assertEquals("echo:before", client.callTool("echo", Map.of("text", "before")));
+
+            stopDaemon();
+            startDaemon();
+
+            // 等待客户端重连并重新握手
+            long deadline = System.currentTimeMillis() + 10000;
+            while (initializeCount.get() < 2 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+            assertEquals(2, initializeCount.get());
+            assertEquals("echo:after", client.callTool("echo", Map.of("text", "after")));
+        }
+    }
+
+    @Test
+    void testCloseLeavesSharedDaemonRunning() throws Exception {
+        McpClient client = newClient();
+        assertEquals("echo:bye", client.callTool("echo", Map.of("text", "bye")));
+        client.close();
+        Thread.sleep(200);
+
+        // 守护进程由多个副本共享，关闭一个连接不通知它退出
+        assertFalse(receivedMethods.contains("shutdown"), receivedMethods.toString());
+        assertFalse(receivedMethods.contains("notifications/exit"), receivedMethods.toString());
+        try (McpClient other = newClient()) {
+            assertEquals("echo:still", other.callTool("echo", Map.of("text", "still")));
+        }
+    }
+
+    @Test
+    void testNotAliveWhileDisconnected() throws Exception {
+        try (McpClient client = newClient()) {
+            assertTrue(client.isAlive());
+
+            stopDaemon();
+
+            long deadline = System.currentTimeMillis() + 5000;
+            while (client.isAlive() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+            assertFalse(client.isAlive());
+        }
+    }
+
+    private McpClient newClient() throws IOException {
+        return new McpClient("shared", new UnixSocketTransport("shared", socketPath, Duration.ofSeconds(5)));
+    }
+
+    // ==================== 模拟守护进程 ====================
+
+    private void startDaemon() throws IOException {
+        ServerSocketChannel channel = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        channel.bind(UnixDomainSocketAddress.of(socketPath));
+        server = channel;
+        executor.execute(() -> {
+            while (channel.isOpen()) {
+                try {
+                    SocketChannel connection = channel.accept();
+                    connections.add(connection);
+                    executor.execute(() -> serve(connection));
+                } catch (IOException e) {
+                    return;
+                }
+            }
+        });
+    }
+
+    private void stopDaemon() throws IOException {
+        if (server != null) {
+            server.close();
+        }
+        for (SocketChannel connection : connections) {
+            connection.close();
+        }
+        connections.clear();
+        Files.deleteIfExists(socketPath);
+    }
+
+    private void serve(SocketChannel connection) {
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(Channels.newInputStream(connection), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                JsonNode request = objectMapper.readTree(line);
+                receivedMethods.add(request.path("method").asText());
+                if (!request.has("id")) {
+                    continue;
+                }
+                String method = request.path("method").asText();
+                if ("initialize".equals(method)) {
+                    initializeCount.incrementAndGet();
+                    write(connection, response(request, Map.of("protocolVersion", "2024-11-05",
+                            "capabilities", Map.of("tools", Map.of()))));
+                } else if ("tools/call".equals(method)) {
+                    // 每个调用在独立线程上延迟返回，模拟乱序完成
+                    executor.execute(() -> {
+                        try {
+                            Thread.sleep(ThreadLocalRandom.current().nextInt(20));
+                            String text = request.path("params").path("arguments").path("text").asText();
+                            write(connection, response(request, Map.of("content",
+                                    List.of(Map.of("type", "text", "text", "echo:" + text)))));
+                        } catch (Exception e) {
+                            // 连接已关闭
+                        }
+                    });
+                } else {
+                    write(connection, response(request, Map.of("tools", List.of(Map.of("name", "echo",
+                            "description", "回显输入", "inputSchema", Map.of("type", "object"))))));
+                }
+            }
+        } catch (IOException e) {
+            // 连接已关闭
+        }
+    }
+
+    private void write(SocketChannel connection, String message) throws IOException {
+        ByteBuffer bytes = StandardCharsets.UTF_8.encode(message + "\n");
+        synchronized (connection) {
+            while (bytes.hasRemaining()) {
+                connection.write(bytes);
+            }
+        }
+    }
+
+    private String response(JsonNode request, Object result) throws IOException {
+        return objectMapper.writeValueAsString(Map.of("jsonrpc", "2.0", "id", request.get("id"), "result", result));
+    }
+}
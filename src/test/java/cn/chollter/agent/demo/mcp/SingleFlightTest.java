@@ -0,0 +1,89 @@
+package cn.chollter.agent.demo.mcp;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 并发调用合并测试类
+ *
+ * @author Chollter
+ * @since 1.0.0
+ */
+class SingleFlightTest {
+
+    private final SingleFlight<ToolCallKey, String> singleFlight = new SingleFlight<>();
+
+    @Test
+    void testConcurrentCallsShareOneExecution() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        CompletableFuture<String> upstream = new CompletableFuture<>();
+
+        // 参数键顺序不同，规范化后是同一个调用
+        Map<String, Object> first = new LinkedHashMap<>();
+        first.put("q", "mcp");
+        first.put("page", 1);
+        Map<String, Object> second = new LinkedHashMap<>();
+        second.put("page", 1);
+        second.put("q", "mcp");
+
+        CompletableFuture<String> a = singleFlight.execute(ToolCallKey.of("github:search", first),
+                () -> { calls.incrementAndGet(); return upstream; });
+        CompletableFuture<String> b = singleFlight.execute(ToolCallKey.of("github:search", second),
+                () -> { calls.incrementAndGet(); return upstream; });
+
+        upstream.complete("result");
+        assertEquals("result", a.get(1, TimeUnit.SECONDS));
+        assertEquals("result", b.get(1, TimeUnit.SECONDS));
+        assertEquals(1, calls.get());
+        assertEquals(1, singleFlight.getShared());
+        assertEquals(0, singleFlight.getInFlight());
+    }
+
+    @Test
+    void testWaitersTimeOutAndCancelIndependently() throws Exception {
+        CompletableFuture<String> upstream = new CompletableFuture<>();
+        ToolCallKey key = ToolCallKey.of("search:query", Map.of("q", "x"));
+
+        CompletableFuture<String> impatient = singleFlight.execute(key, () -> upstream).orTimeout(50, TimeUnit.MILLISECONDS);
+        CompletableFuture<String> cancelled = singleFlight.execute(key, () -> upstream);
+        CompletableFuture<String> patient = singleFlight.execute(key, () -> upstream);
+
+        Exception e = assertThrows(Exception.class, () -> impatient.get(1, TimeUnit.SECONDS));
+        assertInstanceOf(TimeoutException.class, e.getCause());
+        cancelled.cancel(false);
+
+        // 仍有调用方在等待，真实执行不受影响
+        assertFalse(upstream.isCancelled());
+        upstream.complete("done");
+        assertEquals("done", patient.get(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testUpstreamCancelledWhenAllWaitersLeave() {
+        CompletableFuture<String> upstream = new CompletableFuture<>();
+        ToolCallKey key = ToolCallKey.of("search:query", Map.of("q", "y"));
+
+        CompletableFuture<String> a = singleFlight.execute(key, () -> upstream);
+        CompletableFuture<String> b = singleFlight.execute(key, () -> upstream);
+        a.cancel(false);
+        assertFalse(upstream.isCancelled());
+        b.cancel(false);
+
+        assertTrue(upstream.isCancelled());
+        assertEquals(0, singleFlight.getInFlight());
+
+        // 之后的同 key 调用重新发起
+        CompletableFuture<String> fresh = new CompletableFuture<>();
+        CompletableFuture<String> c = singleFlight.execute(key, () -> fresh);
+        fresh.complete("again");
+        assertEquals("again", c.join());
+    }
+}
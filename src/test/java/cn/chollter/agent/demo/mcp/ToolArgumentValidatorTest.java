@@ -0,0 +1,120 @@
+package cn.chollter.agent.demo.mcp;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 工具参数校验器测试类
+ *
+ * @author Chollter
+ * @since 1.0.0
+ */
+class ToolArgumentValidatorTest {
+
+    private static final String SCHEMA = """
+            {"type":"object","properties":{\
+            "path":{"type":"string","minLength":1},\
+            "depth":{"type":"integer","minimum":0,"maximum":10},\
+            "recursive":{"type":"boolean"},\
+            "mode":{"type":"string","enum":["read","write"]},\
+            "exclude":{"type":"array","items":{"type":"string"}},\
+            "label":{"type":"string"}},\
+            "required":["path"],"additionalProperties":false}""";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private ToolArgumentValidator compile(String schema) throws IOException {
+        return ToolArgumentValidator.compile(objectMapper.readTree(schema));
+    }
+
+    @Test
+    void testValidArgumentsPassUnchanged() throws Exception {
+        ToolArgumentValidator.Result result = compile(SCHEMA).validate(
+                Map.of("path", "/tmp", "depth", 2, "recursive", true, "exclude", List.of("node_modules")));
+
+        assertTrue(result.isValid());
+        assertTrue(result.coercions().isEmpty());
+        assertEquals(Map.of("path", "/tmp", "depth", 2, "recursive", true, "exclude", List.of("node_modules")),
+                result.arguments());
+    }
+
+    @Test
+    void testSafeCoercions() throws Exception {
+        Map<String, Object> arguments = new HashMap<>();
+        arguments.put("path", "/tmp");
+        arguments.put("depth", "3");
+        arguments.put("recursive", "TRUE");
+        arguments.put("exclude", "[\"a\",\"b\"]");
+        arguments.put("label", 42);
+        arguments.put("mode", null);
+
+        ToolArgumentValidator.Result result = compile(SCHEMA).validate(arguments);
+
+        assertTrue(result.isValid(), result.errors().toString());
+        assertEquals(3, result.arguments().get("depth"));
+        assertEquals(true, result.arguments().get("recursive"));
+        assertEquals(List.of("a", "b"), result.arguments().get("exclude"));
+        assertEquals("42", result.arguments().get("label"));
+        // 可选参数为 null 时省略
+        assertFalse(result.arguments().containsKey("mode"));
+        assertEquals(5, result.coercions().size());
+    }
+
+    @Test
+    void testIntegralDecimalCoercedToInteger() throws Exception {
+        ToolArgumentValidator.Result result = compile(SCHEMA).validate(Map.of("path", "/tmp", "depth", 4.0));
+
+        assertTrue(result.isValid());
+        assertEquals(4, result.arguments().get("depth"));
+    }
+
+    @Test
+    void testErrorsListedPrecisely() throws Exception {
+        ToolArgumentValidator.Result result = compile(SCHEMA).validate(
+                Map.of("depth", "deep", "mode", "delete", "exclude", List.of("a", List.of()), "extra", 1));
+
+        assertFalse(result.isValid());
+        List<String> errors = result.errors();
+        assertTrue(errors.contains("缺少必填参数 path"), errors.toString());
+        assertTrue(errors.contains("参数 depth 应为 integer，实际为 string \"deep\""), errors.toString());
+        assertTrue(errors.contains("参数 mode 取值应为 [\"read\", \"write\"] 之一，实际为 \"delete\""), errors.toString());
+        assertTrue(errors.contains("参数 exclude[1] 应为 string，实际为 array []"), errors.toString());
+        assertTrue(errors.stream().anyMatch(e -> e.startsWith("不支持的参数 extra")), errors.toString());
+    }
+
+    @Test
+    void testRangeAndLength() throws Exception {
+        ToolArgumentValidator.Result result = compile(SCHEMA).validate(Map.of("path", "", "depth", 11));
+
+        assertEquals(Set.of("参数 path 长度不能少于 1，实际为 0", "参数 depth 不能大于 10，实际为 11"),
+                Set.copyOf(result.errors()));
+    }
+
+    @Test
+    void testAnyOfUsesFirstMatchingBranch() throws Exception {
+        ToolArgumentValidator validator = compile("""
+                {"type":"object","properties":{"id":{"anyOf":[{"type":"integer"},{"type":"string","pattern":"^[a-f0-9]{8}$"}]}}}""");
+
+        assertTrue(validator.validate(Map.of("id", 7)).isValid());
+        assertTrue(validator.validate(Map.of("id", "deadbeef")).isValid());
+        // 字符串 "12" 按第一个分支转换为整数
+        assertEquals(12, validator.validate(Map.of("id", "12")).arguments().get("id"));
+        assertFalse(validator.validate(Map.of("id", "xyz")).isValid());
+    }
+
+    @Test
+    void testMissingSchemaAcceptsAnything() {
+        ToolArgumentValidator.Result result = ToolArgumentValidator.compile(null).validate(Map.of("any", "thing"));
+
+        assertTrue(result.isValid());
+        assertEquals(Map.of("any", "thing"), result.arguments());
+    }
+}
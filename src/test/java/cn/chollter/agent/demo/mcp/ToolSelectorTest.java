@@ -0,0 +1,37 @@
+package cn.chollter.agent.demo.mcp;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 工具范围测试类
+ *
+ * @author Chollter
+ * @since 1.0.0
+ */
+class ToolSelectorTest {
+
+    @Test
+    void testNullAndBlankEntriesIgnored() {
+        ToolSelector selector = ToolSelector.of(Arrays.asList(null, " ", "code"), Arrays.asList(" github:* ", null, ""));
+
+        assertEquals(Set.of("code"), selector.tags());
+        assertEquals(Set.of("github:*"), selector.names());
+        assertTrue(selector.matches("github:create_issue", "create_issue", Set.of()));
+        assertTrue(selector.matches("fs:read_file", "read_file", Set.of("code")));
+        assertFalse(selector.matches("fs:read_file", "read_file", Set.of("ops")));
+    }
+
+    @Test
+    void testOnlyBlankEntriesSelectsAll() {
+        ToolSelector selector = new ToolSelector(Set.of(""), new HashSet<>(Arrays.asList(null, " ")));
+
+        assertTrue(selector.isEmpty());
+        assertTrue(selector.matches("fs:read_file", "read_file", Set.of()));
+    }
+}
@@ -0,0 +1,109 @@
+package cn.chollter.agent.demo.mcp.content;
+
+import cn.chollter.agent.demo.mcp.dto.CallToolResult;
+import cn.chollter.agent.demo.mcp.dto.ContentBlock;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 大内容落盘测试类
+ *
+ * @author Chollter
+ * @since 1.0.0
+ */
+class ContentStoreTest {
+
+    private ContentStore store;
+    private ObjectMapper objectMapper;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        store = new ContentStore(100, 10, Duration.ofMinutes(1));
+        objectMapper = new ObjectMapper().registerModule(
+                new SimpleModule().addDeserializer(ContentBlock.class, new ContentBlockDeserializer(store)));
+    }
+
+    @AfterEach
+    void tearDown() {
+        store.close();
+    }
+
+    @Test
+    void testSmallContentStaysInline() throws Exception {
+        CallToolResult result = parse(Map.of("type", "text", "text", "小内容"));
+
+        ContentBlock block = result.content().get(0);
+        assertFalse(block.isSpilled());
+        assertEquals("小内容", result.joinText());
+    }
+
+    @Test
+    void testToolErrorIsMarked() throws Exception {
+        CallToolResult result = objectMapper.readValue(objectMapper.writeValueAsString(Map.of(
+                "content", List.of(Map.of("type", "text", "text", "文件不存在")), "isError", true)), CallToolResult.class);
+
+        assertTrue(result.isError());
+        assertEquals("Error: 文件不存在", result.joinText());
+    }
+
+    @Test
+    void testLargeTextIsSpilledWithPreview() throws Exception {
+        String text = "文件内容-".repeat(100);
+        CallToolResult result = parse(Map.of("type", "text", "text", text));
+
+        ContentBlock block = result.content().get(0);
+        assertTrue(block.isSpilled());
+        assertEquals(text.substring(0, 10), block.text());
+        assertTrue(result.joinText().contains("句柄: " + block.handle().id()));
+        assertEquals(text, store.readText(block.handle().id()));
+        assertEquals("文件内容", store.readText(block.handle().id(), 0, 12));
+    }
+
+    @Test
+    void testLargeBinaryIsDecodedToDisk() throws Exception {
+        byte[] bytes = new byte[300];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) i;
+        }
+        CallToolResult result = parse(Map.of("type", "image", "mimeType", "image/png",
+                "data", Base64.getEncoder().encodeToString(bytes)));
+
+        ContentBlock block = result.content().get(0);
+        assertTrue(block.isSpilled());
+        assertNull(block.data());
+        ByteBuffer mapped = store.map(block.handle().id());
+        byte[] read = new byte[mapped.remaining()];
+        mapped.get(read);
+        assertArrayEquals(bytes, read);
+        assertTrue(result.joinText().startsWith("[image: image/png，300 字节"));
+    }
+
+    @Test
+    void testReleaseDeletesFile() throws Exception {
+        CallToolResult result = parse(Map.of("type", "text", "text", "x".repeat(200)));
+        ContentHandle handle = result.content().get(0).handle();
+        assertTrue(Files.exists(handle.path()));
+
+        store.release(handle.id());
+
+        assertTrue(store.get(handle.id()).isEmpty());
+        assertFalse(Files.exists(handle.path()));
+    }
+
+    private CallToolResult parse(Map<String, Object> block) throws Exception {
+        String json = objectMapper.writeValueAsString(Map.of("content", List.of(block)));
+        return objectMapper.readValue(json, CallToolResult.class);
+    }
+}
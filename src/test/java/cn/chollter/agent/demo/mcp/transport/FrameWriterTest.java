@@ -0,0 +1,236 @@
+package cn.chollter.agent.demo.mcp.transport;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 消息写入器测试类
+ *
+ * @author Chollter
+ * @since 1.0.0
+ */
+class FrameWriterTest {
+
+    @Test
+    void testConcurrentFramesCoalescedIntoBatches() throws Exception {
+        RecordingStream stream = new RecordingStream();
+        try (FrameWriter writer = new FrameWriter("test", stream)) {
+            // 写出目标阻塞期间到达的消息在下一批一起写出
+            stream.block();
+            CompletableFuture<Void> first = writer.send("{\"id\":0}");
+            List<CompletableFuture<Void>> futures = new ArrayList<>();
+            List<Thread> producers = new ArrayList<>();
+            for (int p = 0; p < 4; p++) {
+                int producer = p;
+                Thread thread = new Thread(() -> {
+                    for (int i = 0; i < 50; i++) {
+                        CompletableFuture<Void> written = writer.send("{\"p\":" + producer + ",\"i\":" + i + "}");
+                        synchronized (futures) {
+                            futures.add(written);
+                        }
+                    }
+                });
+                producers.add(thread);
+                thread.start();
+            }
+            for (Thread thread : producers) {
+                thread.join();
+            }
+            stream.release();
+
+            first.get(5, TimeUnit.SECONDS);
+            CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).get(5, TimeUnit.SECONDS);
+
+            List<String> lines = stream.lines();
+            assertEquals(201, lines.size());
+            // 同一生产者的消息保持发送顺序
+            for (int p = 0; p < 4; p++) {
+                String prefix = "{\"p\":" + p + ",";
+                List<String> own = lines.stream().filter(line -> line.startsWith(prefix)).toList();
+                for (int i = 0; i < 50; i++) {
+                    assertEquals(prefix + "\"i\":" + i + "}", own.get(i));
+                }
+            }
+            assertEquals(201, writer.getFramesWritten());
+            assertTrue(writer.getBatchesWritten() < 201);
+            assertEquals(writer.getBatchesWritten(), stream.flushes.get());
+        }
+    }
+
+    @Test
+    void testFrameLargerThanBuffer() throws Exception {
+        RecordingChannel channel = new RecordingChannel();
+        String large = "中".repeat(100_000);
+        try (FrameWriter writer = new FrameWriter("test", channel)) {
+            writer.send(large).get(5, TimeUnit.SECONDS);
+            writer.send("tail").get(5, TimeUnit.SECONDS);
+        }
+        assertEquals(List.of(large, "tail"), channel.lines());
+    }
+
+    @Test
+    void testWriteFailureFailsLaterFrames() throws Exception {
+        WritableByteChannel broken = new RecordingChannel() {
+            @Override
+            public int write(ByteBuffer src) throws IOException {
+                throw new IOException("Broken pipe");
+            }
+        };
+        try (FrameWriter writer = new FrameWriter("test", broken)) {
+            ExecutionException e = assertThrows(ExecutionException.class,
+                    () -> writer.send("a").get(5, TimeUnit.SECONDS));
+            assertEquals("Broken pipe", e.getCause().getMessage());
+            assertThrows(ExecutionException.class, () -> writer.send("b").get(5, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    void testCloseWritesQueuedFrames() throws Exception {
+        RecordingStream stream = new RecordingStream();
+        FrameWriter writer = new FrameWriter("test", stream);
+        stream.block();
+        CompletableFuture<Void> first = writer.send("a");
+        CompletableFuture<Void> second = writer.send("b");
+        CompletableFuture.delayedExecutor(100, TimeUnit.MILLISECONDS).execute(stream::release);
+
+        // close 等待已入队的消息写出
+        writer.close();
+
+        assertTrue(first.isDone() && !first.isCompletedExceptionally());
+        assertTrue(second.isDone() && !second.isCompletedExceptionally());
+        assertEquals(List.of("a", "b"), stream.lines());
+        assertThrows(ExecutionException.class, () -> writer.send("late").get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testCloseGivesUpOnBlockedTarget() throws Exception {
+        RecordingStream stream = new RecordingStream();
+        FrameWriter writer = new FrameWriter("test", stream);
+        stream.block();
+        try {
+            writer.send("stuck");
+            // 写线程阻塞在第一条消息上之后再入队
+            assertTrue(stream.entered.await(5, TimeUnit.SECONDS));
+            CompletableFuture<Void> queued = writer.send("queued");
+
+            long start = System.nanoTime();
+            writer.close();
+            long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+            assertTrue(elapsedMs < 3000, "close 应在有限时间内返回: " + elapsedMs);
+            assertThrows(ExecutionException.class, () -> queued.get(5, TimeUnit.SECONDS));
+        } finally {
+            stream.release();
+        }
+    }
+
+    private static class RecordingStream extends OutputStream {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final AtomicInteger flushes = new AtomicInteger();
+        private final CountDownLatch entered = new CountDownLatch(1);
+        private volatile CountDownLatch gate;
+
+        void block() {
+            gate = new CountDownLatch(1);
+        }
+
+        void release() {
+            gate.countDown();
+        }
+
+        List<String> lines() {
+            synchronized (bytes) {
+                return List.of(bytes.toString(StandardCharsets.UTF_8).split("\n"));
+            }
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            entered.countDown();
+            CountDownLatch latch = gate;
+            if (latch != null) {
+                try {
+                    latch.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+            }
+            synchronized (bytes) {
+                bytes.write(b, off, len);
+            }
+        }
+
+        @Override
+        public void flush() {
+            flushes.incrementAndGet();
+        }
+    }
+
+    private static class RecordingChannel implements WritableByteChannel {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private volatile CountDownLatch gate;
+
+        void block() {
+            gate = new CountDownLatch(1);
+        }
+
+        void release() {
+            gate.countDown();
+        }
+
+        List<String> lines() {
+            synchronized (bytes) {
+                String text = bytes.toString(StandardCharsets.UTF_8);
+                return List.of(text.split("\n"));
+            }
+        }
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            CountDownLatch latch = gate;
+            if (latch != null) {
+                try {
+                    latch.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+            }
+            int length = src.remaining();
+            byte[] chunk = new byte[length];
+            src.get(chunk);
+            synchronized (bytes) {
+                bytes.write(chunk, 0, length);
+            }
+            return length;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
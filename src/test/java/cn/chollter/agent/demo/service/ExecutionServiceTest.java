@@ -108,6 +108,39 @@ class ExecutionServiceTest {
         verify(executionRepository, times(1)).save(testExecution);
     }
 
+    @Test
+    void testTimeoutExecution() {
+        when(executionRepository.findByExecutionId("exec-123"))
+                .thenReturn(Optional.of(testExecution));
+        when(executionRepository.save(any(Execution.class))).thenReturn(testExecution);
+
+        executionService.timeoutExecution("exec-123", "Tool timed out", 30000L);
+
+        assertEquals("Tool timed out", testExecution.getErrorMessage());
+        assertEquals(30000L, testExecution.getDurationMs());
+        assertEquals(Execution.ExecutionStatus.TIMEOUT, testExecution.getStatus());
+        assertFalse(testExecution.getSuccess());
+
+        verify(executionRepository, times(1)).save(testExecution);
+    }
+
+    @Test
+    void testTimeoutExecutionKeepsAnswer() {
+        when(executionRepository.findByExecutionId("exec-123"))
+                .thenReturn(Optional.of(testExecution));
+        when(executionRepository.save(any(Execution.class))).thenReturn(testExecution);
+
+        executionService.timeoutExecution("exec-123", "Final answer", List.of(), 3, 30000L);
+
+        assertEquals("Final answer", testExecution.getFinalAnswer());
+        assertEquals(3, testExecution.getSteps());
+        assertEquals(30000L, testExecution.getDurationMs());
+        assertEquals(Execution.ExecutionStatus.TIMEOUT, testExecution.getStatus());
+        assertTrue(testExecution.getSuccess());
+
+        verify(executionRepository, times(1)).save(testExecution);
+    }
+
     @Test
     void testGetExecutionByExecutionId() {
         when(executionRepository.findByExecutionId("exec-123"))
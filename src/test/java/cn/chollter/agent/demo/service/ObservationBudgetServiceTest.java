@@ -0,0 +1,179 @@
+package cn.chollter.agent.demo.service;
+
+import cn.chollter.agent.demo.agent.Tool;
+import cn.chollter.agent.demo.agent.ToolExecutionContext;
+import cn.chollter.agent.demo.mcp.content.ContentStore;
+import cn.chollter.agent.demo.mcp.content.ReadContentTool;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * ObservationBudgetService 和 ObservationCompactor 测试类
+ *
+ * @author Chollter
+ * @since 1.0.0
+ */
+class ObservationBudgetServiceTest {
+
+    private static final Pattern HANDLE = Pattern.compile("句柄: (\\S+)]$");
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private ContentStore contentStore;
+    private ObservationBudgetService budget;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        contentStore = new ContentStore(1 << 20, 100, Duration.ofMinutes(1));
+        budget = new ObservationBudgetService(200, 500, 50, contentStore);
+    }
+
+    @AfterEach
+    void tearDown() {
+        contentStore.close();
+    }
+
+    @Test
+    void testSmallObservationIsUnchanged() {
+        ToolExecutionContext context = new ToolExecutionContext();
+
+        assertEquals("ok", budget.apply(tool(null), "ok", context));
+        assertEquals(1, context.getObservationTokens());
+    }
+
+    @Test
+    void testListingKeepsWholeLinesAndFullCopyIsRetrievable() throws Exception {
+        StringBuilder listing = new StringBuilder();
+        for (int i = 0; i < 500; i++) {
+            listing.append("src/main/java/File").append(i).append(".java\n");
+        }
+        String original = listing.toString();
+
+        String result = budget.apply(tool(null), original, null);
+
+        assertTrue(ObservationCompactor.estimateTokens(result) < 260, result);
+        assertTrue(result.startsWith("src/main/java/File0.java\nsrc/main/java/File1.java\n"));
+        assertTrue(result.contains("src/main/java/File499.java"));
+        assertTrue(result.contains("...[省略第 "));
+
+        Matcher matcher = HANDLE.matcher(result);
+        assertTrue(matcher.find(), result);
+        assertEquals(original, contentStore.readText(matcher.group(1)));
+    }
+
+    @Test
+    void testJsonStaysValidAndKeepsAllFields() throws Exception {
+        List<Map<String, Object>> items = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            items.add(Map.of("name", "repo-" + i, "stars", i));
+        }
+        String json = objectMapper.writerWithDefaultPrettyPrinter()
+                .writeValueAsString(Map.of("total", 200, "description", "x".repeat(2000), "items", items));
+
+        String compacted = ObservationCompactor.compact(json, 200);
+
+        assertTrue(ObservationCompactor.estimateTokens(compacted) <= 200, compacted);
+        JsonNode node = objectMapper.readTree(compacted);
+        assertEquals(200, node.path("total").asInt());
+        assertTrue(node.path("description").asText().contains("省略"));
+        JsonNode kept = node.path("items");
+        assertEquals("repo-0", kept.get(0).path("name").asText());
+        assertTrue(kept.get(kept.size() - 1).asText().startsWith("...[省略 "));
+    }
+
+    @Test
+    void testCodeKeepsDeclarationOutline() {
+        StringBuilder code = new StringBuilder("package demo;\n\npublic class Big {\n");
+        for (int i = 0; i < 60; i++) {
+            code.append("    public void method").append(i).append("() {\n");
+            for (int j = 0; j < 10; j++) {
+                code.append("        call(").append(j).append(");\n");
+            }
+            code.append("    }\n");
+        }
+        code.append("}\n");
+
+        assertEquals(ObservationCompactor.Kind.CODE, ObservationCompactor.detect(code.toString()));
+        String compacted = ObservationCompactor.compact(code.toString(), 400);
+
+        assertTrue(ObservationCompactor.estimateTokens(compacted) <= 400, compacted);
+        assertTrue(compacted.startsWith("package demo;"));
+        assertTrue(compacted.contains("其中的声明如下"));
+        assertTrue(compacted.matches("(?s).*\\nL\\d+: public void method\\d+\\(\\) \\{\\n.*"), compacted);
+    }
+
+    @Test
+    void testExecutionBudgetShrinksLaterObservations() {
+        ToolExecutionContext context = new ToolExecutionContext();
+        String large = "word ".repeat(2000);
+
+        String first = budget.apply(tool(null), large, context);
+        assertTrue(ObservationCompactor.estimateTokens(first) < 260, first);
+        assertEquals(200, budget.limitFor(tool(null), context));
+
+        String second = budget.apply(tool(null), large, context);
+        assertTrue(context.getObservationTokens() > 450);
+        // 预算用完后每个结果仍保留 min-tokens
+        assertEquals(50, budget.limitFor(tool(null), context));
+        String third = budget.apply(tool(null), large, context);
+        assertTrue(ObservationCompactor.estimateTokens(third) < ObservationCompactor.estimateTokens(second));
+
+        // 工具自身的上限优先于全局上限
+        assertEquals(80, budget.limitFor(tool(80), new ToolExecutionContext()));
+    }
+
+    @Test
+    void testReadContentNotCompactedWhenBudgetExhausted() {
+        ToolExecutionContext context = new ToolExecutionContext();
+        String large = "word ".repeat(2000);
+        budget.apply(tool(null), large, context);
+        budget.apply(tool(null), large, context);
+        assertEquals(50, budget.limitFor(tool(null), context));
+        long used = context.getObservationTokens();
+
+        // 分段读取的结果原样返回，不再生成新句柄，但仍计入预算
+        String page = budget.apply(tool(ReadContentTool.NAME, 64000), large, context);
+
+        assertEquals(large, page);
+        assertEquals(used + ObservationCompactor.estimateTokens(large), context.getObservationTokens());
+    }
+
+    private static Tool tool(Integer maxTokens) {
+        return tool("test", maxTokens);
+    }
+
+    private static Tool tool(String name, Integer maxTokens) {
+        return new Tool() {
+            @Override
+            public String getName() {
+                return name;
+            }
+
+            @Override
+            public String getDescription() {
+                return "test";
+            }
+
+            @Override
+            public String execute(Map<String, Object> parameters) {
+                return "";
+            }
+
+            @Override
+            public Integer getMaxObservationTokens() {
+                return maxTokens;
+            }
+        };
+    }
+}
@@ -0,0 +1,160 @@
+package cn.chollter.agent.demo.service;
+
+import cn.chollter.agent.demo.agent.Tool;
+import cn.chollter.agent.demo.agent.ToolExecutionContext;
+import cn.chollter.agent.demo.mcp.content.ContentStore;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * ToolExecutionService 测试类
+ *
+ * @author Chollter
+ * @since 1.0.0
+ */
+class ToolExecutionServiceTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ContentStore contentStore = newContentStore();
+    private final ToolExecutionService toolExecutionService = new ToolExecutionService(Duration.ofMillis(200), 2,
+            new ObservationBudgetService(2000, 12000, 256, contentStore), objectMapper);
+
+    @AfterEach
+    void tearDown() {
+        toolExecutionService.destroy();
+        contentStore.close();
+    }
+
+    private static ContentStore newContentStore() {
+        try {
+            return new ContentStore(1024, 100, Duration.ofMinutes(1));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Test
+    void testFastToolReturnsResult() {
+        Tool tool = new TestTool("fast", null, params -> "ok:" + params.get("q"));
+
+        assertEquals("ok:1", toolExecutionService.execute(tool, Map.of("q", 1)));
+    }
+
+    @Test
+    void testSlowToolIsInterruptedAndReportedAsTimeout() throws Exception {
+        CountDownLatch interrupted = new CountDownLatch(1);
+        Tool tool = new TestTool("slow", Duration.ofMillis(100), params -> {
+            try {
+                Thread.sleep(10_000);
+                return "never";
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+                throw new IllegalStateException(e);
+            }
+        });
+
+        ToolExecutionContext context = new ToolExecutionContext();
+        String observation = ToolExecutionContext.call(context, () -> toolExecutionService.execute(tool, Map.of()));
+
+        JsonNode json = objectMapper.readTree(observation);
+        assertEquals("TIMEOUT", json.path("status").asText());
+        assertEquals("slow", json.path("tool").asText());
+        assertEquals(100, json.path("timeoutMs").asLong());
+        assertEquals(1, context.getTimeouts());
+        assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testToolWithoutOwnTimeoutUsesGlobalTimeout() {
+        Tool tool = new TestTool("default", null, params -> "x");
+        Tool custom = new TestTool("custom", Duration.ofSeconds(5), params -> "x");
+
+        assertEquals(Duration.ofMillis(200), toolExecutionService.getTimeout(tool));
+        assertEquals(Duration.ofSeconds(5), toolExecutionService.getTimeout(custom));
+    }
+
+    @Test
+    void testFailureBecomesErrorObservation() {
+        Tool tool = new TestTool("broken", null, params -> {
+            throw new IllegalArgumentException("bad input");
+        });
+
+        ToolExecutionContext context = new ToolExecutionContext();
+        String observation = ToolExecutionContext.call(context, () -> toolExecutionService.execute(tool, Map.of()));
+
+        assertEquals("Error: 工具执行失败 - bad input", observation);
+        assertFalse(context.hasTimeouts());
+    }
+
+    @Test
+    void testExecuteAllRunsConcurrentlyAndKeepsOrder() {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        Function<Map<String, Object>, String> slow = params -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                running.decrementAndGet();
+            }
+            return "r" + params.get("i");
+        };
+        List<ToolExecutionService.Invocation> invocations = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            invocations.add(new ToolExecutionService.Invocation(new TestTool("t" + i, null, slow), Map.of("i", i)));
+        }
+        invocations.add(1, new ToolExecutionService.Invocation(new TestTool("broken", null, params -> {
+            throw new IllegalStateException("boom");
+        }), Map.of()));
+
+        long start = System.nanoTime();
+        List<String> results = toolExecutionService.executeAll(invocations);
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertEquals(List.of("r0", "Error: 工具执行失败 - boom", "r1", "r2", "r3"), results);
+        // 并发上限为 2：4 个 100ms 的调用约 200ms 完成，且同时执行的调用不超过 2 个
+        assertTrue(elapsedMs < 390, "elapsed " + elapsedMs);
+        assertTrue(maxRunning.get() <= 2);
+    }
+
+    private record TestTool(String name, Duration timeout,
+                            Function<Map<String, Object>, String> body) implements Tool {
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public String getDescription() {
+            return name;
+        }
+
+        @Override
+        public String execute(Map<String, Object> parameters) {
+            return body.apply(parameters);
+        }
+
+        @Override
+        public Duration getTimeout() {
+            return timeout;
+        }
+    }
+}